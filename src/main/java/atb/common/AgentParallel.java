@@ -0,0 +1,228 @@
+/*
+ * Copyright (c) 2013 David Jelenc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     David Jelenc - initial API and implementation
+ */
+package atb.common;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs computations that are independent for every agent on blocks of
+ * consecutive agents in parallel.
+ * <p>
+ * A computation stores the result of every agent into its own slot, for
+ * instance into an array indexed by agents, and the caller combines the
+ * results afterwards in the order of agents. Results are therefore the same
+ * regardless of the number of threads and of the way agents are split into
+ * blocks. Computations must not modify state that is shared between agents.
+ * <p>
+ * Computations run sequentially when the number of agents is below the
+ * threshold. Otherwise they run on at most the given share of available
+ * processors, so that runs which are themselves executed in parallel do not
+ * oversubscribe the machine. Full share uses the common fork-join pool;
+ * smaller shares use a dedicated pool of the corresponding size, which is
+ * shared by all instances with the same size.
+ *
+ * @author David
+ */
+public final class AgentParallel {
+
+    /**
+     * A computation over a block of consecutive agents.
+     */
+    public interface Block {
+
+        /**
+         * Computes results of agents from the given range.
+         *
+         * @param from First agent (inclusive)
+         * @param to   Last agent (exclusive)
+         */
+        void compute(int from, int to);
+    }
+
+    /**
+     * An object that runs its computations with an {@link AgentParallel},
+     * which callers may replace, for instance to give every run of a batch a
+     * smaller share of processors.
+     */
+    public interface Holder {
+
+        /**
+         * Sets how computations over agents run in parallel.
+         *
+         * @param parallel Parallel execution of agents
+         */
+        void setParallel(AgentParallel parallel);
+    }
+
+    // default number of agents from which computations run in parallel
+    public static final int DEFAULT_THRESHOLD = 256;
+
+    // number of blocks per thread, so that threads can balance the load
+    private static final int BLOCKS_PER_THREAD = 8;
+
+    // dedicated pools by their parallelism
+    private static final ConcurrentMap<Integer, ForkJoinPool> POOLS = new ConcurrentHashMap<Integer, ForkJoinPool>();
+
+    private final int threshold;
+    private final double share;
+
+    /**
+     * Creates an instance that runs computations with at least
+     * {@link #DEFAULT_THRESHOLD} agents in parallel on all processors.
+     */
+    public AgentParallel() {
+        this(DEFAULT_THRESHOLD, 1d);
+    }
+
+    /**
+     * Creates an instance with the given threshold and share of processors.
+     *
+     * @param threshold A positive number of agents from which computations run
+     *                  in parallel
+     * @param share     Share of available processors from (0, 1]
+     */
+    public AgentParallel(int threshold, double share) {
+        if (threshold < 1)
+            throw new IllegalArgumentException(String.format(
+                    "The parallel threshold must be positive, but was %d",
+                    threshold));
+
+        if (!(share > 0 && share <= 1))
+            throw new IllegalArgumentException(String.format(
+                    "The share of processors must be in (0, 1], but was %.2f",
+                    share));
+
+        this.threshold = threshold;
+        this.share = share;
+    }
+
+    public int getThreshold() {
+        return threshold;
+    }
+
+    public double getShare() {
+        return share;
+    }
+
+    /**
+     * Returns the number of threads that run computations in parallel.
+     *
+     * @return The number of threads
+     */
+    public int getParallelism() {
+        final int processors = Runtime.getRuntime().availableProcessors();
+        return Math.max(1, (int) Math.round(share * processors));
+    }
+
+    /**
+     * Returns true if computations for the given number of agents run in
+     * parallel.
+     *
+     * @param agents Number of agents
+     * @return True if computations run in parallel
+     */
+    public boolean isParallel(int agents) {
+        return agents >= threshold && agents > 1 && getParallelism() > 1;
+    }
+
+    /**
+     * Runs the given computation for agents from 0 to agents - 1 and returns
+     * when all agents have been processed.
+     *
+     * @param agents Number of agents
+     * @param block  Computation
+     */
+    public void forEach(int agents, Block block) {
+        if (isParallel(agents))
+            forEachInParallel(agents, block);
+        else
+            block.compute(0, agents);
+    }
+
+    /**
+     * Runs the given computation for agents from 0 to agents - 1 on the
+     * given share of processors regardless of the threshold. The method is
+     * meant for callers that measure the amount of work differently, for
+     * instance by the number of matrix entries.
+     *
+     * @param agents Number of agents
+     * @param block  Computation
+     */
+    public void forEachInParallel(int agents, Block block) {
+        final int parallelism = getParallelism();
+
+        if (agents < 2 || parallelism < 2) {
+            block.compute(0, agents);
+            return;
+        }
+
+        final int grain = Math.max(1, agents / (parallelism * BLOCKS_PER_THREAD));
+        pool(parallelism).invoke(new Range(block, 0, agents, grain));
+    }
+
+    /**
+     * Returns a pool that runs at most the given number of threads.
+     *
+     * @param parallelism Number of threads
+     * @return The pool
+     */
+    private static ForkJoinPool pool(int parallelism) {
+        if (parallelism >= ForkJoinPool.getCommonPoolParallelism())
+            return ForkJoinPool.commonPool();
+
+        ForkJoinPool pool = POOLS.get(parallelism);
+
+        if (null == pool) {
+            final ForkJoinPool created = new ForkJoinPool(parallelism);
+            pool = POOLS.putIfAbsent(parallelism, created);
+
+            if (null == pool) {
+                pool = created;
+            } else {
+                created.shutdown();
+            }
+        }
+
+        return pool;
+    }
+
+    /**
+     * A task that runs a computation over a range of agents and splits ranges
+     * that are larger than the grain in halves.
+     */
+    private static final class Range extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Block block;
+        private final int from, to, grain;
+
+        Range(Block block, int from, int to, int grain) {
+            this.block = block;
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= grain) {
+                block.compute(from, to);
+            } else {
+                final int middle = (from + to) >>> 1;
+                invokeAll(new Range(block, from, middle, grain),
+                        new Range(block, middle, to, grain));
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2013 David Jelenc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     David Jelenc - initial API and implementation
+ */
+package atb.common;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Admits tasks while the sum of their estimated footprints stays within a
+ * limit. A task is always admitted when no other task holds memory, so tasks
+ * that exceed the limit on their own still run, one at a time.
+ * <p>
+ * Since {@link #acquire(long)} blocks, tasks should acquire the budget on
+ * threads of a dedicated executor and not on the common fork-join pool, which
+ * trust models use for parallel computations.
+ *
+ * @author David
+ */
+public final class MemoryBudget {
+
+    private static final String LIMIT_EX = "The limit must be a positive number of bytes, but was %d.";
+    private static final String BYTES_EX = "The number of bytes must be non-negative, but was %d.";
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    private final long limit;
+    private long used;
+
+    /**
+     * Creates a budget of the given number of bytes.
+     *
+     * @param limit Number of bytes
+     */
+    public MemoryBudget(long limit) {
+        if (limit <= 0)
+            throw new IllegalArgumentException(String.format(LIMIT_EX, limit));
+
+        this.limit = limit;
+    }
+
+    /**
+     * Blocks until the given number of bytes fits into the budget and
+     * reserves it.
+     *
+     * @param bytes Number of bytes
+     * @throws InterruptedException If the thread is interrupted while waiting
+     */
+    public void acquire(long bytes) throws InterruptedException {
+        validate(bytes);
+        lock.lock();
+
+        try {
+            while (used > 0 && bytes > limit - used)
+                released.await();
+
+            used += bytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the given number of bytes to the budget.
+     *
+     * @param bytes Number of bytes
+     */
+    public void release(long bytes) {
+        validate(bytes);
+        lock.lock();
+
+        try {
+            used -= bytes;
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of bytes that are currently reserved.
+     *
+     * @return Number of bytes
+     */
+    public long getUsed() {
+        lock.lock();
+
+        try {
+            return used;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of bytes in the budget.
+     *
+     * @return Number of bytes
+     */
+    public long getLimit() {
+        return limit;
+    }
+
+    private static void validate(long bytes) {
+        if (bytes < 0)
+            throw new IllegalArgumentException(String.format(BYTES_EX, bytes));
+    }
+}
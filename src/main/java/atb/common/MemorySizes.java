@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2013 David Jelenc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     David Jelenc - initial API and implementation
+ */
+package atb.common;
+
+import atb.interfaces.GrowingPopulation;
+import atb.interfaces.MemoryFootprint;
+import atb.interfaces.Scenario;
+
+/**
+ * Approximate sizes of objects and arrays on the heap of a 64-bit virtual
+ * machine with compressed references, in which objects are aligned to 8
+ * bytes.
+ *
+ * @author David
+ */
+public final class MemorySizes {
+
+    public static final int REFERENCE = 4;
+    public static final int OBJECT_HEADER = 12;
+    public static final int ARRAY_HEADER = 16;
+
+    // an entry of a (linked) hash map: hash, key, value, next, before, after
+    public static final int MAP_ENTRY = 40;
+    // a boxed integer or double
+    public static final int BOXED_INT = 16, BOXED_DOUBLE = 16;
+    // an opinion: four ints and two doubles
+    public static final long OPINION = object(4 * 4 + 2 * 8);
+    // an experience: three ints and a double
+    public static final long EXPERIENCE = object(3 * 4 + 8);
+
+    private MemorySizes() {
+    }
+
+    /**
+     * Rounds the given number of bytes up to the alignment of objects.
+     *
+     * @param bytes Number of bytes
+     * @return Aligned number of bytes
+     */
+    public static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+
+    /**
+     * Returns the size of an object with fields of the given total size.
+     *
+     * @param fieldBytes Total size of fields
+     * @return Size of the object
+     */
+    public static long object(long fieldBytes) {
+        return align(OBJECT_HEADER + fieldBytes);
+    }
+
+    /**
+     * Returns the size of an array.
+     *
+     * @param length       Length of the array
+     * @param elementBytes Size of an element: 8 for longs and doubles, 4 for
+     *                     ints, floats and references, 1 for bytes and
+     *                     booleans
+     * @return Size of the array
+     */
+    public static long array(long length, int elementBytes) {
+        return align(ARRAY_HEADER + length * elementBytes);
+    }
+
+    /**
+     * Returns the size of a (linked) hash map with integer keys without its
+     * values.
+     *
+     * @param entries Number of entries
+     * @return Size of the map
+     */
+    public static long map(long entries) {
+        long table = 16;
+
+        while (table * 3 < entries * 4)
+            table *= 2;
+
+        return object(6 * REFERENCE + 4 * 4) + array(table, REFERENCE)
+                + entries * (MAP_ENTRY + BOXED_INT);
+    }
+
+    /**
+     * Returns the size of an array list and of its elements.
+     *
+     * @param size         Number of elements
+     * @param elementBytes Size of an element, for instance {@link #BOXED_INT}
+     *                     or {@link #OPINION}
+     * @return Size of the list
+     */
+    public static long list(long size, long elementBytes) {
+        return object(3 * 4) + array(size, REFERENCE) + size * elementBytes;
+    }
+
+    /**
+     * Returns the size of the given array including all nested arrays.
+     * Elements that are not arrays count as references only.
+     *
+     * @param array Array of primitives or of objects
+     * @return Size of the array or 0, if the array is null
+     */
+    public static long deep(Object array) {
+        if (null == array)
+            return 0;
+
+        if (array instanceof Object[]) {
+            final Object[] elements = (Object[]) array;
+            long bytes = array(elements.length, REFERENCE);
+
+            for (Object element : elements)
+                if (null != element && element.getClass().isArray())
+                    bytes += deep(element);
+
+            return bytes;
+        }
+
+        if (array instanceof long[])
+            return array(((long[]) array).length, 8);
+
+        if (array instanceof double[])
+            return array(((double[]) array).length, 8);
+
+        if (array instanceof int[])
+            return array(((int[]) array).length, 4);
+
+        if (array instanceof float[])
+            return array(((float[]) array).length, 4);
+
+        if (array instanceof short[])
+            return array(((short[]) array).length, 2);
+
+        if (array instanceof char[])
+            return array(((char[]) array).length, 2);
+
+        if (array instanceof byte[])
+            return array(((byte[]) array).length, 1);
+
+        if (array instanceof boolean[])
+            return array(((boolean[]) array).length, 1);
+
+        throw new IllegalArgumentException(String.format(
+                "Not an array: %s", array.getClass().getName()));
+    }
+
+    /**
+     * Estimates the number of bytes that a trust model or a scenario retains
+     * in a run with the given number of agents and services. Instances that
+     * do not implement {@link MemoryFootprint} are assumed to keep an opinion
+     * and a map entry for every pair of agents and every service.
+     *
+     * @param component Trust model or scenario
+     * @param agents    Number of agents
+     * @param services  Number of services
+     * @return Estimated number of bytes
+     */
+    public static long estimate(Object component, int agents, int services) {
+        if (component instanceof MemoryFootprint)
+            return ((MemoryFootprint) component).estimateRetainedBytes(agents,
+                    services);
+
+        final long pairs = (long) agents * agents * services;
+        return pairs * (OPINION + REFERENCE + MAP_ENTRY);
+    }
+
+    /**
+     * Returns the number of bytes that a trust model or a scenario currently
+     * retains.
+     *
+     * @param component Trust model or scenario
+     * @return Number of bytes or 0, if the instance does not implement
+     * {@link MemoryFootprint}
+     */
+    public static long retained(Object component) {
+        if (component instanceof MemoryFootprint)
+            return ((MemoryFootprint) component).getRetainedBytes();
+
+        return 0;
+    }
+
+    /**
+     * Returns the number of agents at the end of a run of the given duration.
+     *
+     * @param scenario Initialized scenario
+     * @param duration Number of ticks in the run
+     * @return Number of agents
+     */
+    public static int maximalAgents(Scenario scenario, int duration) {
+        if (scenario instanceof GrowingPopulation)
+            return ((GrowingPopulation) scenario).getMaximalAgents(duration);
+
+        return scenario.getAgents().size();
+    }
+}
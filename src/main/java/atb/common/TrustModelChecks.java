@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2013 David Jelenc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     David Jelenc - initial API and implementation
+ */
+package atb.common;
+
+import atb.interfaces.PrimitiveTrustModel;
+import atb.interfaces.TrustModel;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compatibility checks for trust models. Evaluation protocols, metrics and
+ * partner selection may call {@link TrustModel#getTrust(int)} any number of
+ * times, so computing trust must not change the state of a trust model.
+ *
+ * @author David
+ */
+public final class TrustModelChecks {
+
+    private TrustModelChecks() {
+    }
+
+    /**
+     * Returns true if requesting trust changes the trust that the given model
+     * computes. The method requests trust for every given service twice and
+     * compares the results; the second round starts only after the first has
+     * finished, so side effects across services are detected as well. If the
+     * model implements {@link PrimitiveTrustModel}, the trust it writes into
+     * primitive buffers has to equal the computed map.
+     * <p>
+     * The check should be run on a model that has already received some
+     * experiences and opinions.
+     *
+     * @param tm       Trust model
+     * @param services Types of services
+     * @return True if computing trust has side effects
+     */
+    public static boolean hasSideEffects(TrustModel<?> tm, List<Integer> services) {
+        final Map<Integer, Map<Integer, Object>> first = new HashMap<Integer, Map<Integer, Object>>();
+
+        for (int service : services)
+            first.put(service, new HashMap<Integer, Object>(tm.getTrust(service)));
+
+        for (int service : services) {
+            final Map<Integer, Object> trust = first.get(service);
+
+            if (!trust.equals(tm.getTrust(service)))
+                return true;
+
+            if (tm instanceof PrimitiveTrustModel
+                    && !equalsPrimitive((PrimitiveTrustModel) tm, service, trust))
+                return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Checks whether the trust that the model writes into primitive buffers
+     * equals the given map of trust values.
+     *
+     * @param tm      Trust model
+     * @param service Type of service
+     * @param trust   Map of trust values
+     * @return True if both hold the same trust values
+     */
+    private static boolean equalsPrimitive(PrimitiveTrustModel tm, int service,
+                                           Map<Integer, Object> trust) {
+        int size = 0;
+
+        for (int agent : trust.keySet())
+            size = Math.max(size, agent + 1);
+
+        final double[] values = new double[size];
+        final BitSet known = new BitSet(size);
+        tm.getTrust(service, values, known);
+
+        if (known.cardinality() != trust.size())
+            return false;
+
+        for (Map.Entry<Integer, Object> e : trust.entrySet()) {
+            if (!known.get(e.getKey()) || !(e.getValue() instanceof Number))
+                return false;
+
+            final double value = ((Number) e.getValue()).doubleValue();
+
+            if (Double.compare(value, values[e.getKey()]) != 0)
+                return false;
+        }
+
+        return true;
+    }
+}
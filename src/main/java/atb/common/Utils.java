@@ -115,4 +115,52 @@ public class Utils {
             return output;
         }
     }
+
+    /**
+     * Sorts the first {@code length} elements of an array of indexes in
+     * ascending order of their keys, as defined by
+     * {@link Double#compare(double, double)}. The sort is stable, so indexes
+     * with equal keys keep their relative order.
+     * <p>
+     * The buffer must hold at least {@code length} elements; it lets callers
+     * sort repeatedly without allocating.
+     *
+     * @param indexes Indexes into the array of keys
+     * @param length  Number of indexes to sort
+     * @param keys    Keys of indexes
+     * @param buffer  Temporary storage
+     */
+    public static void sortIndexes(int[] indexes, int length, double[] keys,
+                                   int[] buffer) {
+        // bottom-up merge sort that alternates between the arrays
+        int[] src = indexes, dst = buffer;
+
+        for (int width = 1; width < length; width *= 2) {
+            for (int low = 0; low < length; low += 2 * width) {
+                final int mid = Math.min(low + width, length);
+                final int high = Math.min(low + 2 * width, length);
+                int i = low, j = mid, k = low;
+
+                while (i < mid && j < high) {
+                    if (Double.compare(keys[src[j]], keys[src[i]]) < 0)
+                        dst[k++] = src[j++];
+                    else
+                        dst[k++] = src[i++];
+                }
+
+                while (i < mid)
+                    dst[k++] = src[i++];
+
+                while (j < high)
+                    dst[k++] = src[j++];
+            }
+
+            final int[] tmp = src;
+            src = dst;
+            dst = tmp;
+        }
+
+        if (src != indexes)
+            System.arraycopy(src, 0, indexes, 0, length);
+    }
 }
@@ -96,6 +96,8 @@ public class DecisionsModeA extends NoDecisions {
 
         subscribers = new ArrayList<MetricSubscriber>();
         results = new HashMap<Integer, Double>();
+        bounds = new HashMap<Integer, Double>();
+        capabilityIndexes = new HashMap<Integer, CapabilityIndex>();
     }
 
     @Override
@@ -116,11 +118,8 @@ public class DecisionsModeA extends NoDecisions {
         // convey agents
         tm.setAgents(agents);
 
-        // get opinions
-        final List<Opinion> opinions = scn.generateOpinions();
-
-        // convey opinions to the trust model
-        tm.processOpinions(opinions);
+        // get opinions and convey them to the trust model
+        conveyOpinions(tm, scn);
 
         // Get interaction partners in a map
         // Convert Map to a TreeMap to ensure deterministic iteration
@@ -147,11 +146,10 @@ public class DecisionsModeA extends NoDecisions {
 
             // accuracy
             final Accuracy accuracy = getAccuracyInstance(service);
-            final int accKey = accuracy.getClass().hashCode() ^ service;
-            final double accValue = accuracy.evaluate(tm.getTrust(service),
+            final double accValue = evaluateAccuracy(accuracy, tm, service,
                     capabilities);
 
-            results.put(accKey, accValue);
+            putAccuracyResults(accuracy, service, accValue);
 
             final Integer agent = partners.get(service);
 
@@ -159,7 +157,8 @@ public class DecisionsModeA extends NoDecisions {
             if (null != agent) {
                 final Utility utility = getUtilityInstance(service);
                 final int utilKey = utility.getClass().hashCode() ^ service;
-                final double utilValue = utility.evaluate(capabilities, agent);
+                final double utilValue = evaluateUtility(utility, service,
+                        capabilities, agent);
 
                 results.put(utilKey, utilValue);
             }
@@ -109,6 +109,8 @@ public class DecisionsModeB extends DecisionsModeA {
 
         subscribers = new ArrayList<MetricSubscriber>();
         results = new HashMap<Integer, Double>();
+        bounds = new HashMap<Integer, Double>();
+        capabilityIndexes = new HashMap<Integer, CapabilityIndex>();
     }
 
     @Override
@@ -136,11 +138,8 @@ public class DecisionsModeB extends DecisionsModeA {
         // convey opinion requests to scenario
         scnOP.setOpinionRequests(opReqs);
 
-        // get opinions
-        final List<Opinion> opinions = scn.generateOpinions();
-
-        // convey opinions to the trust model
-        tm.processOpinions(opinions);
+        // get opinions and convey them to the trust model
+        conveyOpinions(tm, scn);
 
         // get interaction partners from TM
         // Convert Map to a TreeMap to ensure deterministic iteration
@@ -166,11 +165,10 @@ public class DecisionsModeB extends DecisionsModeA {
 
             // accuracy
             final Accuracy accuracy = getAccuracyInstance(service);
-            final int accKey = accuracy.getClass().hashCode() ^ service;
-            final double accValue = accuracy.evaluate(tm.getTrust(service),
+            final double accValue = evaluateAccuracy(accuracy, tm, service,
                     capabilities);
 
-            results.put(accKey, accValue);
+            putAccuracyResults(accuracy, service, accValue);
 
             final Integer agent = partners.get(service);
 
@@ -178,7 +176,8 @@ public class DecisionsModeB extends DecisionsModeA {
             if (null != agent) {
                 final Utility utility = getUtilityInstance(service);
                 final int utilKey = utility.getClass().hashCode() ^ service;
-                final double utilValue = utility.evaluate(capabilities, agent);
+                final double utilValue = evaluateUtility(utility, service,
+                        capabilities, agent);
 
                 results.put(utilKey, utilValue);
             }
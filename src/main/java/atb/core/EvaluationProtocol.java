@@ -57,6 +57,12 @@ public abstract class EvaluationProtocol {
      */
     protected Map<Integer, Double> results;
 
+    /**
+     * Temporary variable that holds confidence bounds of approximate accuracy
+     * metrics; keys are formed in the same way as in {@link #results}
+     */
+    protected Map<Integer, Double> bounds;
+
     /**
      * Subscribers to this evaluation run
      */
@@ -296,4 +302,26 @@ public abstract class EvaluationProtocol {
             return result;
         }
     }
+
+    /**
+     * Returns the confidence bound of the given approximate accuracy metric
+     * for the given service. The bound is the half-width of the confidence
+     * interval around the value returned by {@link #getResult(int, Metric)}.
+     *
+     * @param service The type of service
+     * @param metric  The metric
+     * @return The confidence bound
+     * @see atb.interfaces.ApproximateAccuracy
+     */
+    public final double getConfidenceBound(int service, Metric metric) {
+        final Double bound;
+        bound = bounds.get(metric.getClass().hashCode() ^ service);
+
+        if (null == bound) {
+            throw new IllegalArgumentException(
+                    String.format(INVALID_QUERY, metric, service));
+        } else {
+            return bound;
+        }
+    }
 }
@@ -64,6 +64,18 @@ public class NoDecisions extends EvaluationProtocol {
      * Map of service to accuracy metrics
      */
     protected Map<Integer, Accuracy> serviceAccuracy = null;
+    /**
+     * Map of service to capability indexes
+     */
+    protected Map<Integer, CapabilityIndex> capabilityIndexes = null;
+    /**
+     * Reusable buffer of trust degrees for primitive accuracy evaluation
+     */
+    private double[] trustBuffer = new double[0];
+    /**
+     * Reusable bit-set of agents with trust degrees
+     */
+    private final BitSet knownBuffer = new BitSet();
     /**
      * Trust model
      */
@@ -102,6 +114,8 @@ public class NoDecisions extends EvaluationProtocol {
 
         subscribers = new ArrayList<MetricSubscriber>();
         results = new HashMap<Integer, Double>();
+        bounds = new HashMap<Integer, Double>();
+        capabilityIndexes = new HashMap<Integer, CapabilityIndex>();
     }
 
     @Override
@@ -122,11 +136,8 @@ public class NoDecisions extends EvaluationProtocol {
         // convey agents
         trustModel.setAgents(agents);
 
-        // get opinions
-        final List<Opinion> opinions = scenario.generateOpinions();
-
-        // convey opinions
-        trustModel.processOpinions(opinions);
+        // get and convey opinions
+        conveyOpinions(trustModel, scenario);
 
         // generate experiences
         final List<Experience> experiences = scenario.generateExperiences();
@@ -144,11 +155,32 @@ public class NoDecisions extends EvaluationProtocol {
 
             // accuracy
             final Accuracy accuracy = getAccuracyInstance(service);
-            final int accKey = accuracy.getClass().hashCode() ^ service;
-            final double accValue = accuracy
-                    .evaluate(trustModel.getTrust(service), capabilities);
+            final double accValue = evaluateAccuracy(accuracy, trustModel,
+                    service, capabilities);
 
-            results.put(accKey, accValue);
+            putAccuracyResults(accuracy, service, accValue);
+        }
+    }
+
+    /**
+     * Instructs the scenario to generate opinions and conveys them to the
+     * trust model.
+     * <p>
+     * If the scenario implements {@link OpinionRefresh} and the trust model
+     * implements {@link IncrementalOpinions}, only new and refreshed opinions
+     * are generated and conveyed. Otherwise the scenario generates all
+     * opinions.
+     *
+     * @param tm  Trust model
+     * @param scn Scenario
+     */
+    protected void conveyOpinions(TrustModel<?> tm, Scenario scn) {
+        if (scn instanceof OpinionRefresh && tm instanceof IncrementalOpinions) {
+            final List<Opinion> deltas = ((OpinionRefresh) scn)
+                    .generateOpinionDeltas();
+            ((IncrementalOpinions) tm).processOpinionDeltas(deltas);
+        } else {
+            tm.processOpinions(scn.generateOpinions());
         }
     }
 
@@ -158,7 +190,9 @@ public class NoDecisions extends EvaluationProtocol {
      * Method retrieves the instance from the the map of all ranking metric
      * instances. If for the given service, the map does not contain a metric
      * instance, the method creates a new instance, initializes it with
-     * parameters, adds instance to the map and returns the instance.
+     * parameters, adds instance to the map and returns the instance. Metrics
+     * that implement {@link SampledAccuracy} also receive the seed of the run
+     * and the service.
      *
      * @param service Type of service
      * @return An instance of the metric
@@ -170,6 +204,11 @@ public class NoDecisions extends EvaluationProtocol {
             try {
                 metric = (Accuracy) accuracyClass.newInstance();
                 metric.initialize(accuracyParameters);
+
+                if (metric instanceof SampledAccuracy)
+                    ((SampledAccuracy) metric).setSamplingStream(runSeed(),
+                            service);
+
                 serviceAccuracy.put(service, metric);
             } catch (Exception e) {
                 throw new Error(String.format(CREATION_ERROR, accuracyClass,
@@ -180,6 +219,166 @@ public class NoDecisions extends EvaluationProtocol {
         return metric;
     }
 
+    /**
+     * Returns the seed of the scenario's random generator or 0, if the
+     * scenario has no generator.
+     *
+     * @return Seed of the run
+     */
+    protected int runSeed() {
+        final RandomGenerator generator = getScenario().getRandomGenerator();
+        return null == generator ? 0 : generator.getSeed();
+    }
+
+    /**
+     * Evaluates the accuracy of trust values for the given service.
+     * <p>
+     * If the metric implements {@link PrimitiveAccuracy}, the trust model
+     * implements {@link PrimitiveTrustModel} and the capabilities are given
+     * for agents 0 to n-1, trust values are conveyed through reusable
+     * primitive buffers, and metrics that implement {@link IndexedAccuracy}
+     * receive the {@link CapabilityIndex} of the service. Otherwise the method
+     * falls back to {@link Accuracy#evaluate(Map, Map)}.
+     * <p>
+     * Metrics that implement {@link GroupAccuracy} first receive the agent
+     * groups of the scenario, if the scenario implements {@link AgentGroups}.
+     *
+     * @param accuracy     Accuracy metric
+     * @param tm           Trust model
+     * @param service      Type of service
+     * @param capabilities Capabilities of agents for the given service
+     * @return The accuracy of trust values
+     */
+    protected double evaluateAccuracy(Accuracy accuracy, TrustModel<?> tm,
+                                      int service, Map<Integer, Double> capabilities) {
+        if (accuracy instanceof GroupAccuracy && getScenario() instanceof AgentGroups) {
+            ((GroupAccuracy) accuracy).setAgentGroups(((AgentGroups) getScenario())
+                    .getAgentGroups());
+        }
+
+        if (accuracy instanceof PrimitiveAccuracy
+                && tm instanceof PrimitiveTrustModel) {
+            final CapabilityIndex index = getCapabilityIndex(service, capabilities);
+
+            if (null != index) {
+                if (trustBuffer.length != index.size())
+                    trustBuffer = new double[index.size()];
+
+                knownBuffer.clear();
+                ((PrimitiveTrustModel) tm).getTrust(service, trustBuffer, knownBuffer);
+
+                if (accuracy instanceof IndexedAccuracy) {
+                    return ((IndexedAccuracy) accuracy).evaluate(trustBuffer,
+                            knownBuffer, index);
+                } else {
+                    return ((PrimitiveAccuracy) accuracy).evaluate(trustBuffer,
+                            knownBuffer, index.getCapabilities());
+                }
+            }
+        }
+
+        return accuracy.evaluate(tm.getTrust(service), capabilities);
+    }
+
+    /**
+     * Evaluates the utility of the interaction with the given agent. Metrics
+     * that implement {@link IndexedUtility} receive the
+     * {@link CapabilityIndex} of the service when one can be built.
+     *
+     * @param utility      Utility metric
+     * @param service      Type of service
+     * @param capabilities Capabilities of agents for the given service
+     * @param agent        The agent that was selected for the interaction
+     * @return The utility of the interaction
+     */
+    protected double evaluateUtility(Utility utility, int service,
+                                     Map<Integer, Double> capabilities, int agent) {
+        if (utility instanceof IndexedUtility) {
+            final CapabilityIndex index = getCapabilityIndex(service, capabilities);
+
+            if (null != index)
+                return ((IndexedUtility) utility).evaluate(index, agent);
+        }
+
+        return utility.evaluate(capabilities, agent);
+    }
+
+    /**
+     * Returns the capability index for the given service.
+     * <p>
+     * If the scenario implements {@link VersionedCapabilities}, the index is
+     * rebuilt only when the version of capabilities changes. Otherwise it is
+     * rebuilt on every call, reusing the array of the previous index.
+     *
+     * @param service      Type of service
+     * @param capabilities Capabilities of agents for the given service
+     * @return The capability index, or null if capabilities are not given
+     * for agents 0 to n-1
+     */
+    protected CapabilityIndex getCapabilityIndex(int service,
+                                                 Map<Integer, Double> capabilities) {
+        final Scenario scn = getScenario();
+        final boolean versioned = scn instanceof VersionedCapabilities;
+        final long version = (versioned ? ((VersionedCapabilities) scn)
+                .getCapabilityVersion() : 0);
+        final CapabilityIndex cached = capabilityIndexes.get(service);
+
+        if (versioned && null != cached && cached.getVersion() == version)
+            return cached;
+
+        final int n = capabilities.size();
+        final double[] values;
+
+        if (!versioned && null != cached && cached.size() == n)
+            values = cached.getCapabilities();
+        else
+            values = new double[n];
+
+        for (Entry<Integer, Double> e : capabilities.entrySet()) {
+            final int agent = e.getKey();
+
+            if (agent < 0 || agent >= n || null == e.getValue()) {
+                capabilityIndexes.remove(service);
+                return null;
+            }
+
+            values[agent] = e.getValue();
+        }
+
+        final CapabilityIndex index = new CapabilityIndex(values, version);
+        capabilityIndexes.put(service, index);
+        return index;
+    }
+
+    /**
+     * Stores the result of the accuracy metric for the given service. If the
+     * metric is an {@link ApproximateAccuracy}, the method also stores its
+     * confidence bound. If the metric is a {@link CompositeAccuracy}, the
+     * method also stores the results of its components under the keys of their
+     * classes.
+     *
+     * @param accuracy Accuracy metric
+     * @param service  Type of service
+     * @param value    The result of the accuracy metric
+     */
+    protected void putAccuracyResults(Accuracy accuracy, int service, double value) {
+        results.put(accuracy.getClass().hashCode() ^ service, value);
+
+        if (accuracy instanceof ApproximateAccuracy) {
+            bounds.put(accuracy.getClass().hashCode() ^ service,
+                    ((ApproximateAccuracy) accuracy).getConfidenceBound());
+        }
+
+        if (accuracy instanceof CompositeAccuracy) {
+            final CompositeAccuracy composite = (CompositeAccuracy) accuracy;
+
+            for (Class<? extends Accuracy> component : composite.getComponents()) {
+                results.put(component.hashCode() ^ service,
+                        composite.getComponentResult(component));
+            }
+        }
+    }
+
     @Override
     public TrustModel<?> getTrustModel() {
         return trustModel;
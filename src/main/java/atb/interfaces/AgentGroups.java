@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) 2013 David Jelenc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     David Jelenc - initial API and implementation
+ */
+package atb.interfaces;
+
+import java.util.BitSet;
+import java.util.Map;
+
+/**
+ * Optional interface for scenarios that partition agents into named groups,
+ * such as attackers and their targets.
+ * <p>
+ * The evaluation protocol conveys the groups to accuracy metrics that
+ * implement {@link GroupAccuracy}. Because groups belong to a scenario
+ * instance, several runs of the same scenario can be evaluated concurrently.
+ *
+ * @author David
+ */
+public interface AgentGroups {
+
+    /**
+     * Returns groups of agents of this scenario instance.
+     * <p>
+     * Keys represent names of groups, while values are bit-sets in which set
+     * bits represent agents that belong to the group.
+     *
+     * @return A map of agent groups
+     */
+    Map<String, BitSet> getAgentGroups();
+}
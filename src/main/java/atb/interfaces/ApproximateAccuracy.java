@@ -0,0 +1,31 @@
+/*
+ * Copyright (c) 2013 David Jelenc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     David Jelenc - initial API and implementation
+ */
+package atb.interfaces;
+
+/**
+ * Interface for accuracy metrics that estimate their value instead of
+ * computing it exactly.
+ * <p>
+ * Besides the estimate, such metrics report a confidence bound: the
+ * half-width of the confidence interval around the last estimate. The
+ * evaluation protocol publishes the bound alongside the result.
+ *
+ * @author David
+ */
+public interface ApproximateAccuracy extends Accuracy {
+
+    /**
+     * Returns the confidence bound of the last evaluation.
+     *
+     * @return The half-width of the confidence interval
+     */
+    double getConfidenceBound();
+}
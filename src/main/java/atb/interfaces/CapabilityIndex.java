@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2013 David Jelenc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     David Jelenc - initial API and implementation
+ */
+package atb.interfaces;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * An index of capabilities of agents for a single service.
+ * <p>
+ * Agents are represented by array indexes 0 to n-1. Besides capabilities,
+ * the index provides the order of agents by capabilities, their ranks, the
+ * maximal capability and prefix sums of sorted capabilities. The evaluation
+ * protocol builds an index once and reuses it for as long as the capabilities
+ * do not change (see {@link VersionedCapabilities}). Everything but
+ * capabilities is computed on first use.
+ * <p>
+ * Arrays returned by the index are shared and must not be modified.
+ *
+ * @author David
+ */
+public final class CapabilityIndex {
+    private final double[] capabilities;
+    private final long version;
+
+    // agents in the ascending order of capabilities
+    private int[] order;
+
+    // 1 + number of agents with strictly lower capabilities
+    private int[] minRank;
+
+    // ascending ranks where tied agents receive the mean of their positions
+    private double[] fractionalRank;
+
+    // prefixSums[k] is the sum of the k lowest capabilities
+    private double[] prefixSums;
+
+    /**
+     * Creates an index of given capabilities.
+     *
+     * @param capabilities Capabilities, indexed by agents
+     * @param version      Version of capabilities
+     */
+    public CapabilityIndex(double[] capabilities, long version) {
+        this.capabilities = capabilities;
+        this.version = version;
+    }
+
+    /**
+     * Returns the number of agents.
+     */
+    public int size() {
+        return capabilities.length;
+    }
+
+    /**
+     * Returns the version of capabilities from which the index was built.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns capabilities, indexed by agents.
+     */
+    public double[] getCapabilities() {
+        return capabilities;
+    }
+
+    /**
+     * Returns agents in the ascending order of their capabilities. Agents with
+     * equal capabilities are ordered by their IDs.
+     */
+    public int[] getOrder() {
+        sort();
+        return order;
+    }
+
+    /**
+     * Returns the rank of the agent in the ascending order, where tied agents
+     * receive the lowest of their positions. Ranks start with 1.
+     *
+     * @param agent Agent
+     * @return The rank of the agent
+     */
+    public int getMinRank(int agent) {
+        sort();
+        return minRank[agent];
+    }
+
+    /**
+     * Returns the rank of the agent in the ascending order, where tied agents
+     * receive the mean of their positions. Ranks start with 1.
+     *
+     * @param agent Agent
+     * @return The fractional rank of the agent
+     */
+    public double getFractionalRank(int agent) {
+        sort();
+        return fractionalRank[agent];
+    }
+
+    /**
+     * Returns the maximal capability, or {@link Double#NEGATIVE_INFINITY} if
+     * there are no agents.
+     */
+    public double getMax() {
+        sort();
+        return order.length == 0 ? Double.NEGATIVE_INFINITY
+                : capabilities[order[order.length - 1]];
+    }
+
+    /**
+     * Returns the sum of the given number of lowest capabilities.
+     *
+     * @param count Number of capabilities, from 0 to n
+     * @return The sum of capabilities
+     */
+    public double getPrefixSum(int count) {
+        sort();
+        return prefixSums[count];
+    }
+
+    /**
+     * Sorts agents and computes ranks and prefix sums, if not done already.
+     */
+    private void sort() {
+        if (null != order)
+            return;
+
+        final int n = capabilities.length;
+        final Integer[] agents = new Integer[n];
+
+        for (int i = 0; i < n; i++)
+            agents[i] = i;
+
+        // stable sort keeps agents with equal capabilities ordered by IDs
+        Arrays.sort(agents, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a1, Integer a2) {
+                return Double.compare(capabilities[a1], capabilities[a2]);
+            }
+        });
+
+        final int[] sorted = new int[n];
+        minRank = new int[n];
+        fractionalRank = new double[n];
+        prefixSums = new double[n + 1];
+
+        for (int start = 0, end; start < n; start = end) {
+            end = start + 1;
+
+            while (end < n && Double.compare(capabilities[agents[start]],
+                    capabilities[agents[end]]) == 0)
+                end++;
+
+            for (int i = start; i < end; i++) {
+                sorted[i] = agents[i];
+                minRank[agents[i]] = start + 1;
+                fractionalRank[agents[i]] = (start + end + 1) / 2d;
+                prefixSums[i + 1] = prefixSums[i] + capabilities[agents[i]];
+            }
+        }
+
+        order = sorted;
+    }
+}
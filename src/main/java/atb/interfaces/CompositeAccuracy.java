@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2013 David Jelenc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     David Jelenc - initial API and implementation
+ */
+package atb.interfaces;
+
+import java.util.Set;
+
+/**
+ * Interface for accuracy metrics that compute the values of several accuracy
+ * metrics in a single evaluation.
+ * <p>
+ * Besides the result of the composite metric itself, the evaluation protocol
+ * publishes the result of every component under the component's class. The
+ * results can therefore be obtained with an instance of the component, for
+ * instance {@code getResult(service, new KendallsTauB())}.
+ *
+ * @author David
+ */
+public interface CompositeAccuracy extends Accuracy {
+
+    /**
+     * Returns the classes of accuracy metrics that this metric computes.
+     *
+     * @return A set of accuracy metric classes
+     */
+    Set<Class<? extends Accuracy>> getComponents();
+
+    /**
+     * Returns the result of the given component from the last evaluation.
+     *
+     * @param component Class of the component
+     * @return The value of the component, or {@link Double#NaN} if it could not
+     * be computed
+     */
+    double getComponentResult(Class<? extends Accuracy> component);
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright (c) 2013 David Jelenc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     David Jelenc - initial API and implementation
+ */
+package atb.interfaces;
+
+import java.util.BitSet;
+import java.util.Map;
+
+/**
+ * Optional interface for accuracy metrics that evaluate trust with respect to
+ * groups of agents.
+ * <p>
+ * If the scenario implements {@link AgentGroups}, the evaluation protocol
+ * conveys its groups to the metric before every evaluation.
+ *
+ * @author David
+ */
+public interface GroupAccuracy extends Accuracy {
+
+    /**
+     * Sets the groups of agents that are used in the following evaluations.
+     *
+     * @param groups A map of agent groups, as returned by
+     *               {@link AgentGroups#getAgentGroups()}
+     */
+    void setAgentGroups(Map<String, BitSet> groups);
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright (c) 2013 David Jelenc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     David Jelenc - initial API and implementation
+ */
+package atb.interfaces;
+
+/**
+ * Optional interface for scenarios in which new agents enter the system
+ * during a run.
+ * <p>
+ * Batch runners use the maximal number of agents to estimate the memory
+ * footprint of runs; for other scenarios, they use the initial number of
+ * agents.
+ *
+ * @author David
+ */
+public interface GrowingPopulation {
+
+    /**
+     * Returns the number of agents at the end of a run of the given
+     * duration. The method is called on initialized instances before the
+     * run starts.
+     *
+     * @param duration Number of ticks in the run
+     * @return Number of agents
+     */
+    int getMaximalAgents(int duration);
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2013 David Jelenc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     David Jelenc - initial API and implementation
+ */
+package atb.interfaces;
+
+import java.util.List;
+
+/**
+ * Optional interface for trust models that can process opinions
+ * incrementally.
+ * <p>
+ * Trust models that implement this interface keep the latest opinion of every
+ * reporter about every target and service, so that the evaluation protocol
+ * can convey only opinions that are new or changed whenever the scenario
+ * implements {@link OpinionRefresh}.
+ *
+ * @author David
+ */
+public interface IncrementalOpinions {
+
+    /**
+     * Conveys opinions to the trust model (see
+     * {@link TrustModel#processOpinions(List)}).
+     *
+     * @param opinions List of opinions
+     */
+    void processOpinions(List<Opinion> opinions);
+
+    /**
+     * Conveys new and changed opinions to the trust model. Every opinion
+     * replaces the previous opinion of the same reporter about the same target
+     * and service; opinions that are not conveyed remain unchanged.
+     * <p>
+     * Since the trust model keeps the latest opinion of every pair, deltas are
+     * processed like any other opinions by default.
+     *
+     * @param opinions List of new and changed opinions
+     */
+    default void processOpinionDeltas(List<Opinion> opinions) {
+        processOpinions(opinions);
+    }
+}
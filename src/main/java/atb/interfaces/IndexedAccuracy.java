@@ -0,0 +1,33 @@
+/*
+ * Copyright (c) 2013 David Jelenc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     David Jelenc - initial API and implementation
+ */
+package atb.interfaces;
+
+import java.util.BitSet;
+
+/**
+ * Optional interface for accuracy metrics that read capabilities from a
+ * {@link CapabilityIndex} instead of sorting them on every evaluation.
+ *
+ * @author David
+ */
+public interface IndexedAccuracy extends PrimitiveAccuracy {
+
+    /**
+     * Evaluates given trust values against indexed capabilities.
+     *
+     * @param trust Trust degrees, indexed by agents. Only values of agents
+     *              that are set in the bit-set are meaningful
+     * @param known A bit-set of agents that have trust degrees
+     * @param index Index of capabilities
+     * @return An evaluation score between 0 and 1, inclusively.
+     */
+    double evaluate(double[] trust, BitSet known, CapabilityIndex index);
+}
@@ -0,0 +1,29 @@
+/*
+ * Copyright (c) 2013 David Jelenc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     David Jelenc - initial API and implementation
+ */
+package atb.interfaces;
+
+/**
+ * Optional interface for utility metrics that read capabilities from a
+ * {@link CapabilityIndex}.
+ *
+ * @author David
+ */
+public interface IndexedUtility extends Utility {
+
+    /**
+     * Evaluates the utility of interacting with the given agent.
+     *
+     * @param index Index of capabilities
+     * @param agent The agent that was selected for the interaction
+     * @return The utility of the interaction
+     */
+    double evaluate(CapabilityIndex index, int agent);
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2013 David Jelenc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     David Jelenc - initial API and implementation
+ */
+package atb.interfaces;
+
+/**
+ * Optional interface for trust models and scenarios that report how much heap
+ * they retain.
+ * <p>
+ * Batch runners use estimates to decide how many evaluation runs fit into
+ * memory at once, and actual values to log the footprint of runs. Values are
+ * approximations that count arrays and objects reachable from the instance,
+ * assuming a 64-bit virtual machine with compressed references; objects that
+ * are shared between instances, such as enumeration constants, are not
+ * counted.
+ *
+ * @author David
+ */
+public interface MemoryFootprint {
+
+    /**
+     * Estimates the number of bytes that an instance retains in a run with
+     * the given number of agents and services. Estimates assume that every
+     * agent reports about every other agent, so they are upper bounds for
+     * most scenarios. The method may be called before the instance is
+     * initialized.
+     *
+     * @param agents   Number of agents
+     * @param services Number of services
+     * @return Estimated number of bytes
+     */
+    long estimateRetainedBytes(int agents, int services);
+
+    /**
+     * Returns the number of bytes that this instance currently retains. The
+     * method is called on initialized instances.
+     *
+     * @return Number of bytes
+     */
+    long getRetainedBytes();
+}
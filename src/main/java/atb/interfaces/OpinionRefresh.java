@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2013 David Jelenc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     David Jelenc - initial API and implementation
+ */
+package atb.interfaces;
+
+import java.util.List;
+
+/**
+ * Optional interface for scenarios that can report opinions incrementally.
+ * <p>
+ * Instead of re-reporting an opinion for every pair of a reporter and a
+ * target at every step, the scenario reports only opinions that are new or
+ * due for a refresh. All pairs that are not silent report at the first step
+ * and whenever capabilities change, which is also when agents join and
+ * deception models change; afterwards a pair re-reports once every refresh
+ * period, and then only with the refresh probability. The
+ * evaluation protocol uses {@link #generateOpinionDeltas()} instead of
+ * {@link Scenario#generateOpinions()} when the trust model implements
+ * {@link IncrementalOpinions}.
+ * <p>
+ * By default, the period and the probability are 1, so that every pair
+ * re-reports at every step.
+ *
+ * @author David
+ */
+public interface OpinionRefresh {
+
+    /**
+     * Sets how often pairs of reporters and targets re-report their opinions.
+     *
+     * @param period      A positive number of steps between two refreshes
+     * @param probability Probability from (0, 1] with which a pair re-reports
+     *                    when its refresh is due
+     */
+    void setOpinionRefresh(int period, double probability);
+
+    /**
+     * Returns the number of steps between two refreshes of an opinion.
+     *
+     * @return The refresh period
+     */
+    int getRefreshPeriod();
+
+    /**
+     * Returns the probability with which an opinion is re-reported when its
+     * refresh is due.
+     *
+     * @return The refresh probability
+     */
+    double getRefreshProbability();
+
+    /**
+     * Generates {@link Opinion} tuples of pairs that are new or due for a
+     * refresh.
+     *
+     * @return List of new and refreshed opinions
+     */
+    List<Opinion> generateOpinionDeltas();
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2013 David Jelenc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     David Jelenc - initial API and implementation
+ */
+package atb.interfaces;
+
+import java.util.BitSet;
+
+/**
+ * Optional interface for accuracy metrics that can evaluate trust values
+ * given as primitive arrays.
+ * <p>
+ * Agents are represented by array indexes; the length of the capabilities
+ * array equals the number of agents. The evaluation protocol uses this method
+ * instead of {@link Accuracy#evaluate(java.util.Map, java.util.Map)}
+ * whenever the trust model implements {@link PrimitiveTrustModel}. Both
+ * methods must return the same score for the same input.
+ *
+ * @author David
+ */
+public interface PrimitiveAccuracy extends Accuracy {
+
+    /**
+     * Evaluates given trust values against given capabilities.
+     *
+     * @param trust        Trust degrees, indexed by agents. Only values of agents
+     *                     that are set in the bit-set are meaningful
+     * @param known        A bit-set of agents that have trust degrees
+     * @param capabilities Capabilities, indexed by agents
+     * @return An evaluation score between 0 and 1, inclusively.
+     */
+    double evaluate(double[] trust, BitSet known, double[] capabilities);
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) 2013 David Jelenc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     David Jelenc - initial API and implementation
+ */
+package atb.interfaces;
+
+import java.util.BitSet;
+
+/**
+ * Optional interface for trust models with numeric trust degrees that can
+ * convey trust values through primitive arrays.
+ * <p>
+ * Trust models that implement this interface let the evaluation protocol
+ * pass computed trust to a {@link PrimitiveAccuracy} metric without building
+ * a map on every evaluation.
+ *
+ * @author David
+ */
+public interface PrimitiveTrustModel {
+
+    /**
+     * Writes trust degrees for the given service into the given array.
+     * <p>
+     * For every agent that has a trust degree and whose ID is smaller than the
+     * length of the array, the method stores the trust degree at the index of
+     * the agent and sets the corresponding bit in the bit-set. The caller
+     * clears the bit-set beforehand. The values must equal those returned by
+     * {@link TrustModel#getTrust(int)}.
+     *
+     * @param service Type of service
+     * @param trust   Array that receives trust degrees
+     * @param known   Bit-set that receives agents with trust degrees
+     */
+    void getTrust(int service, double[] trust, BitSet known);
+}
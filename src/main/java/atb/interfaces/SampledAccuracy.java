@@ -0,0 +1,34 @@
+/*
+ * Copyright (c) 2013 David Jelenc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     David Jelenc - initial API and implementation
+ */
+package atb.interfaces;
+
+/**
+ * Optional interface for accuracy metrics that estimate their value from
+ * random samples of agents.
+ * <p>
+ * The evaluation protocol creates one metric instance per service. Right after
+ * it initializes an instance, it conveys the seed of the scenario and the
+ * service, so that instances for different services and runs draw independent
+ * samples.
+ *
+ * @author David
+ */
+public interface SampledAccuracy extends ApproximateAccuracy {
+
+    /**
+     * Mixes the given seed of the run and the service into the seed of the
+     * generator that draws samples.
+     *
+     * @param runSeed Seed of the scenario's random generator
+     * @param service Type of service that the instance evaluates
+     */
+    void setSamplingStream(int runSeed, int service);
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright (c) 2013 David Jelenc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     David Jelenc - initial API and implementation
+ */
+package atb.interfaces;
+
+/**
+ * Optional interface for scenarios that track changes of capabilities.
+ * <p>
+ * The version must change whenever the capabilities that
+ * {@link Scenario#getCapabilities(int)} returns change, including when agents
+ * are added. While the version stays the same, the evaluation protocol reuses
+ * the {@link CapabilityIndex} it built from the capabilities.
+ *
+ * @author David
+ */
+public interface VersionedCapabilities {
+
+    /**
+     * Returns the current version of capabilities.
+     *
+     * @return The version of capabilities
+     */
+    long getCapabilityVersion();
+}
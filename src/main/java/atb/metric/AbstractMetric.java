@@ -14,10 +14,7 @@ import atb.common.Tuple;
 import atb.interfaces.Metric;
 import atb.interfaces.ParametersPanel;
 
-import java.util.Collections;
-import java.util.LinkedHashMap;
-import java.util.Map;
-import java.util.PriorityQueue;
+import java.util.*;
 
 public abstract class AbstractMetric implements Metric {
 
@@ -216,4 +213,66 @@ public abstract class AbstractMetric implements Metric {
 
         return rankings;
     }
+
+    /**
+     * Converts maps of trust values and capabilities into arrays, in which
+     * agents are represented by their positions in the map of capabilities.
+     * <p>
+     * Numeric trust values are copied as they are. If any trust value is not a
+     * number, all trust values are replaced with their positions in the
+     * ordering of trust values, where equal values share a position.
+     *
+     * @param trust        A map of trust values
+     * @param capabilities A map of capabilities
+     * @param values       Array that receives trust values
+     * @param known        Bit-set that receives agents with trust values
+     * @param caps         Array that receives capabilities
+     * @return True, if all trust values are numbers
+     */
+    protected <T extends Comparable<T>> boolean toArrays(Map<Integer, T> trust,
+                                                         Map<Integer, Double> capabilities, double[] values,
+                                                         BitSet known, double[] caps) {
+        final List<Tuple<Integer, T>> ordinals = new ArrayList<Tuple<Integer, T>>();
+        boolean numeric = true;
+        int index = 0;
+
+        for (Map.Entry<Integer, Double> e : capabilities.entrySet()) {
+            final T value = trust.get(e.getKey());
+            caps[index] = e.getValue();
+
+            if (null != value) {
+                known.set(index);
+                ordinals.add(new Tuple<Integer, T>(index, value));
+
+                if (value instanceof Number)
+                    values[index] = ((Number) value).doubleValue();
+                else
+                    numeric = false;
+            }
+
+            index++;
+        }
+
+        if (!numeric) {
+            Collections.sort(ordinals, new Comparator<Tuple<Integer, T>>() {
+                @Override
+                public int compare(Tuple<Integer, T> o1, Tuple<Integer, T> o2) {
+                    return o1.second.compareTo(o2.second);
+                }
+            });
+
+            T previous = null;
+            int position = 0;
+
+            for (Tuple<Integer, T> tuple : ordinals) {
+                if (null != previous && previous.compareTo(tuple.second) != 0)
+                    position++;
+
+                values[tuple.first] = position;
+                previous = tuple.second;
+            }
+        }
+
+        return numeric;
+    }
 }
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2013 David Jelenc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     David Jelenc - initial API and implementation
+ */
+package atb.metric;
+
+import atb.common.DefaultRandomGenerator;
+import atb.common.Utils;
+import atb.interfaces.ParameterCondition;
+import atb.interfaces.PrimitiveAccuracy;
+import atb.interfaces.RandomGenerator;
+import atb.interfaces.SampledAccuracy;
+
+import java.util.BitSet;
+import java.util.Map;
+
+/**
+ * Base class for accuracy metrics that estimate their value from a random
+ * sample of agents instead of comparing all agents.
+ * <p>
+ * The metrics draw samples from their own random generator, so that sampling
+ * does not disturb the random stream of the scenario or the trust model. The
+ * metrics accept two optional parameters: the sample size (default
+ * {@value #DEFAULT_SAMPLE_SIZE}) and the seed of their random generator
+ * (default 0). The evaluation protocol mixes the seed of the run and the
+ * service into that seed (see {@link #setSamplingStream(int, int)}), so the
+ * instances for different services do not draw the same agents.
+ * <p>
+ * Every estimate is accompanied by a confidence bound at the
+ * {@value #CONFIDENCE} confidence level, which is derived from Hoeffding's
+ * inequality.
+ *
+ * @author David
+ */
+public abstract class AbstractSampledMetric extends AbstractMetric implements
+        PrimitiveAccuracy, SampledAccuracy {
+    protected static final ParameterCondition<Integer> VAL_SAMPLE_SIZE;
+    protected static final ParameterCondition<Integer> VAL_SEED;
+
+    public static final int DEFAULT_SAMPLE_SIZE = 1000;
+    public static final double CONFIDENCE = 0.95;
+
+    static {
+        VAL_SAMPLE_SIZE = new ParameterCondition<Integer>() {
+            @Override
+            public void eval(Integer var) {
+                if (var < 1)
+                    throw new IllegalArgumentException(String.format(
+                            "The sample size must be positive, but was %d.",
+                            var));
+            }
+        };
+        VAL_SEED = new ParameterCondition<Integer>() {
+            @Override
+            public void eval(Integer var) {
+                if (null == var)
+                    throw new IllegalArgumentException(
+                            "The seed must not be null.");
+            }
+        };
+    }
+
+    // number of samples per evaluation
+    protected int sampleSize;
+
+    // seed from the parameters and the generator that is used only for
+    // sampling
+    protected int seed;
+    protected RandomGenerator generator;
+
+    // confidence bound of the last evaluation
+    protected double bound;
+
+    @Override
+    public void initialize(Object... params) {
+        if (null == params || params.length == 0) {
+            sampleSize = DEFAULT_SAMPLE_SIZE;
+            seed = 0;
+        } else {
+            sampleSize = Utils.extractParameter(VAL_SAMPLE_SIZE, 0, params);
+            seed = params.length > 1 ? Utils.extractParameter(VAL_SEED, 1,
+                    params) : 0;
+        }
+
+        generator = new DefaultRandomGenerator(seed);
+    }
+
+    @Override
+    public void setSamplingStream(int runSeed, int service) {
+        generator = new DefaultRandomGenerator(seed ^ (runSeed * 0x9E3779B9)
+                ^ (service * 0x85EBCA6B));
+    }
+
+    @Override
+    public <T extends Comparable<T>> double evaluate(Map<Integer, T> trust,
+                                                     Map<Integer, Double> capabilities) {
+        final int n = capabilities.size();
+        final double[] values = new double[n];
+        final double[] caps = new double[n];
+        final BitSet known = new BitSet(n);
+
+        toArrays(trust, capabilities, values, known, caps);
+
+        return evaluate(values, known, caps);
+    }
+
+    @Override
+    public double getConfidenceBound() {
+        return bound;
+    }
+
+    /**
+     * Returns the Hoeffding bound for the mean of the given number of
+     * independent samples that fall into an interval of the given width.
+     *
+     * @param samples Number of samples
+     * @param range   Width of the interval that contains the samples
+     * @return The half-width of the confidence interval at the
+     * {@value #CONFIDENCE} level
+     */
+    protected static double hoeffding(int samples, double range) {
+        return range * Math.sqrt(Math.log(2d / (1d - CONFIDENCE)) / (2d * samples));
+    }
+
+    /**
+     * Draws a random agent.
+     *
+     * @param n Number of agents
+     * @return A random agent from [0, n)
+     */
+    protected int nextAgent(int n) {
+        return generator.nextIntFromTo(0, n - 1);
+    }
+}
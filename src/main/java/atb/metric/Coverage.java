@@ -10,11 +10,12 @@
  */
 package atb.metric;
 
-import atb.interfaces.Accuracy;
+import atb.interfaces.PrimitiveAccuracy;
 
+import java.util.BitSet;
 import java.util.Map;
 
-public class Coverage extends AbstractMetric implements Accuracy {
+public class Coverage extends AbstractMetric implements PrimitiveAccuracy {
 
     @Override
     public <T extends Comparable<T>> double evaluate(Map<Integer, T> trust,
@@ -25,4 +26,15 @@ public class Coverage extends AbstractMetric implements Accuracy {
             return ((double) trust.size()) / capabilities.size();
         }
     }
+
+    @Override
+    public double evaluate(double[] trust, BitSet known, double[] capabilities) {
+        final int size = known.cardinality();
+
+        if (size == 0) {
+            return 0;
+        } else {
+            return ((double) size) / capabilities.length;
+        }
+    }
 }
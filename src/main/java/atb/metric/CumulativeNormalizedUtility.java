@@ -10,12 +10,13 @@
  */
 package atb.metric;
 
-import atb.interfaces.Utility;
+import atb.interfaces.CapabilityIndex;
+import atb.interfaces.IndexedUtility;
 
 import java.util.Map;
 
 public class CumulativeNormalizedUtility extends AbstractMetric
-        implements Utility {
+        implements IndexedUtility {
 
     private double total, maximal;
 
@@ -42,6 +43,17 @@ public class CumulativeNormalizedUtility extends AbstractMetric
         return total / maximal;
     }
 
+    @Override
+    public double evaluate(CapabilityIndex index, int agent) {
+        total += index.getCapabilities()[agent];
+
+        final double max = index.getMax();
+        maximal += (Double.compare(max, Double.MIN_VALUE) > 0 ? max
+                : Double.MIN_VALUE);
+
+        return total / maximal;
+    }
+
     @Override
     public String toString() {
         return "Cumulative normalized utility";
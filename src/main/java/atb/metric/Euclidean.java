@@ -10,8 +10,9 @@
  */
 package atb.metric;
 
-import atb.interfaces.Accuracy;
+import atb.interfaces.PrimitiveAccuracy;
 
+import java.util.BitSet;
 import java.util.Map;
 
 /**
@@ -34,7 +35,7 @@ import java.util.Map;
  *
  * @author David
  */
-public class Euclidean extends AbstractMetric implements Accuracy {
+public class Euclidean extends AbstractMetric implements PrimitiveAccuracy {
     private static final String INCOMPATIBLE_METRIC = "Metric requires that trust is computed in floating point numbers from [0, 1].";
     private static final IllegalArgumentException UP = new IllegalArgumentException(
             INCOMPATIBLE_METRIC);
@@ -66,6 +67,26 @@ public class Euclidean extends AbstractMetric implements Accuracy {
         return Math.sqrt(sumofSquares);
     }
 
+    @Override
+    public double evaluate(double[] trust, BitSet known, double[] capabilities) {
+        if (known.isEmpty()) {
+            return Double.POSITIVE_INFINITY;
+        }
+
+        double sumofSquares = 0;
+
+        for (int a = known.nextSetBit(0); a >= 0; a = known.nextSetBit(a + 1)) {
+            if (trust[a] > 1d || trust[a] < 0d)
+                throw UP;
+
+            final double difference = capabilities[a] - trust[a];
+
+            sumofSquares += difference * difference;
+        }
+
+        return Math.sqrt(sumofSquares);
+    }
+
     @Override
     public String toString() {
         return "Euclidean difference";
@@ -0,0 +1,260 @@
+/*
+ * Copyright (c) 2013 David Jelenc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     David Jelenc - initial API and implementation
+ */
+package atb.metric;
+
+import atb.common.Utils;
+import atb.interfaces.Accuracy;
+import atb.interfaces.CapabilityIndex;
+import atb.interfaces.CompositeAccuracy;
+import atb.interfaces.IndexedAccuracy;
+
+import java.util.*;
+
+/**
+ * Computes Kendall's Tau-a, Kendall's Tau-b, weighted Kendall's Tau, coverage
+ * and mean absolute error in a single pass.
+ * <p>
+ * Instead of comparing all pairs of agents, the metric takes the order of
+ * agents by capabilities from the {@link CapabilityIndex} and sorts agents by
+ * trust. Then it sweeps agents in the order of trust and counts concordant and
+ * discordant pairs with a Fenwick tree indexed by capability ranks. Thus an
+ * evaluation takes O(n log n) time.
+ * <p>
+ * The metric returns Kendall's Tau-a as its own result; the values of the
+ * remaining metrics are available as components. The mean absolute error is
+ * {@link Double#NaN} when trust values are not numbers from [0, 1].
+ *
+ * @author David
+ */
+public class FusedAccuracy extends AbstractMetric implements IndexedAccuracy,
+        CompositeAccuracy {
+    private static final String UNKNOWN_COMPONENT = "Metric '%s' is not a component of '%s'.";
+    private static final Set<Class<? extends Accuracy>> COMPONENTS;
+
+    static {
+        final Set<Class<? extends Accuracy>> components = new LinkedHashSet<Class<? extends Accuracy>>();
+        components.add(KendallsTauA.class);
+        components.add(KendallsTauB.class);
+        components.add(WeightedKendallsTau.class);
+        components.add(Coverage.class);
+        components.add(MeanAbsoluteError.class);
+        COMPONENTS = Collections.unmodifiableSet(components);
+    }
+
+    // results of the last evaluation
+    private double kta, ktb, wkt, coverage, mae;
+
+    // agents sorted by capabilities and then by trust
+    private int[] order = new int[0];
+    private int[] buffer = new int[0];
+
+    // Fenwick tree of counts and capability sums, indexed by capability ranks
+    private long[] treeCount = new long[0];
+    private double[] treeSum = new double[0];
+
+    @Override
+    public <T extends Comparable<T>> double evaluate(Map<Integer, T> trust,
+                                                     Map<Integer, Double> capabilities) {
+        final int n = capabilities.size();
+        final double[] values = new double[n];
+        final double[] caps = new double[n];
+        final BitSet known = new BitSet(n);
+        final boolean numeric = toArrays(trust, capabilities, values, known, caps);
+        final double result = evaluate(values, known, caps);
+
+        if (!numeric)
+            mae = Double.NaN;
+
+        return result;
+    }
+
+    @Override
+    public double evaluate(double[] trust, BitSet known, double[] capabilities) {
+        return evaluate(trust, known, new CapabilityIndex(capabilities, 0));
+    }
+
+    @Override
+    public double evaluate(double[] trust, BitSet known, CapabilityIndex index) {
+        final double[] capabilities = index.getCapabilities();
+        final int[] byCapability = index.getOrder();
+        final int n = capabilities.length;
+        ensureCapacity(n);
+
+        // coverage and mean absolute error; agents in the order of capabilities
+        int m = 0;
+        double sumOfErrors = 0;
+        boolean unitInterval = true;
+
+        for (int a : byCapability) {
+            if (!known.get(a))
+                continue;
+
+            order[m++] = a;
+            sumOfErrors += Math.abs(capabilities[a] - trust[a]);
+
+            if (trust[a] > 1d || trust[a] < 0d)
+                unitInterval = false;
+        }
+
+        coverage = (m == 0 ? 0 : ((double) m) / n);
+
+        if (m == 0)
+            mae = Double.POSITIVE_INFINITY;
+        else
+            mae = (unitInterval ? sumOfErrors / n : Double.NaN);
+
+        // count ties and sum pairwise differences of capabilities
+        int groupStart = 0;
+        long tiedCapabilities = 0;
+        double sumOfDifferences = 0, prefix = 0;
+
+        for (int j = 0; j < m; j++) {
+            final double c = capabilities[order[j]];
+
+            if (j == 0 || Double.compare(capabilities[order[j - 1]], c) != 0)
+                groupStart = j;
+
+            tiedCapabilities += j - groupStart;
+            sumOfDifferences += j * c - prefix;
+            prefix += c;
+        }
+
+        // sweep agents by trust; the tree holds agents with strictly lower trust
+        Utils.sortIndexes(order, m, trust, buffer);
+        Arrays.fill(treeCount, 0, n + 1, 0L);
+        Arrays.fill(treeSum, 0, n + 1, 0d);
+
+        long concordant = 0, discordant = 0, tiedRanks = 0, inserted = 0;
+        double weightedConcordant = 0;
+
+        for (int start = 0, end; start < m; start = end) {
+            end = start + 1;
+
+            while (end < m && Double.compare(trust[order[start]], trust[order[end]]) == 0)
+                end++;
+
+            for (int j = start; j < end; j++) {
+                final int agent = order[j];
+                final int rank = index.getMinRank(agent);
+                final long lower = count(rank - 1);
+
+                concordant += lower;
+                discordant += inserted - count(rank);
+                weightedConcordant += lower * capabilities[agent] - sum(rank - 1);
+            }
+
+            for (int j = start; j < end; j++)
+                add(index.getMinRank(order[j]), capabilities[order[j]], n);
+
+            final long group = end - start;
+            tiedRanks += group * (group - 1) / 2;
+            inserted += group;
+        }
+
+        // Kendall's Tau-a
+        final double allPairs = n * (n - 1d) / 2d;
+        kta = ((concordant - discordant) / allPairs + 1d) / 2d;
+
+        if (m == 0) {
+            ktb = wkt = 0;
+        } else if (m == 1) {
+            ktb = wkt = 1;
+        } else {
+            // Kendall's Tau-b
+            final double pairs = m * (m - 1d) / 2d;
+            ktb = ((concordant - discordant)
+                    / Math.sqrt((pairs - tiedRanks) * (pairs - tiedCapabilities)) + 1d) / 2d;
+
+            // weighted Kendall's Tau
+            wkt = weightedConcordant / sumOfDifferences;
+        }
+
+        return kta;
+    }
+
+    @Override
+    public Set<Class<? extends Accuracy>> getComponents() {
+        return COMPONENTS;
+    }
+
+    @Override
+    public double getComponentResult(Class<? extends Accuracy> component) {
+        if (KendallsTauA.class == component) {
+            return kta;
+        } else if (KendallsTauB.class == component) {
+            return ktb;
+        } else if (WeightedKendallsTau.class == component) {
+            return wkt;
+        } else if (Coverage.class == component) {
+            return coverage;
+        } else if (MeanAbsoluteError.class == component) {
+            return mae;
+        } else {
+            throw new IllegalArgumentException(String.format(
+                    UNKNOWN_COMPONENT, component, this));
+        }
+    }
+
+    /**
+     * Resizes buffers so that they can hold the given number of agents.
+     *
+     * @param n Number of agents
+     */
+    private void ensureCapacity(int n) {
+        if (order.length < n) {
+            order = new int[n];
+            buffer = new int[n];
+            treeCount = new long[n + 1];
+            treeSum = new double[n + 1];
+        }
+    }
+
+    /**
+     * Returns the number of inserted agents with capability ranks up to the
+     * given rank.
+     */
+    private long count(int rank) {
+        long count = 0;
+
+        for (int i = rank; i > 0; i -= i & -i)
+            count += treeCount[i];
+
+        return count;
+    }
+
+    /**
+     * Returns the sum of capabilities of inserted agents with capability ranks
+     * up to the given rank.
+     */
+    private double sum(int rank) {
+        double sum = 0;
+
+        for (int i = rank; i > 0; i -= i & -i)
+            sum += treeSum[i];
+
+        return sum;
+    }
+
+    /**
+     * Inserts an agent with the given capability rank and capability.
+     */
+    private void add(int rank, double capability, int size) {
+        for (int i = rank; i <= size; i += i & -i) {
+            treeCount[i] += 1;
+            treeSum[i] += capability;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Fused accuracy (KTA, KTB, WKT, Coverage, MAE)";
+    }
+}
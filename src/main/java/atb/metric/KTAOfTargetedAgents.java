@@ -10,72 +10,215 @@
  */
 package atb.metric;
 
-import atb.interfaces.Accuracy;
+import atb.common.Utils;
+import atb.interfaces.CapabilityIndex;
+import atb.interfaces.GroupAccuracy;
+import atb.interfaces.IndexedAccuracy;
 import atb.scenario.TargetedAttack;
 
-import java.util.List;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Map;
-import java.util.Map.Entry;
 
 /**
  * Evaluates trust in {@link TargetedAttack} scenario.
  * <p>
  * It derives from Kendall's Tau-A, except that -- when evaluating pairs of
  * comparisons -- it skips pairs when one of the agents is the attacker or when
- * both of agents are neutrals. Therefore this method will throw an
- * {@link IllegalArgumentException} if not used on the {@link TargetedAttack}
- * scenario.
+ * both of agents are neutrals. Groups of attackers and neutrals are conveyed
+ * by the evaluation protocol (see {@link GroupAccuracy}); therefore this
+ * method will throw an {@link IllegalArgumentException} if not used on a
+ * scenario that provides them, such as the {@link TargetedAttack}.
  * <p>
  * The reasoning for skipping those pairs is to narrow the measurement of trust
  * only on the attacked agents; attackers and neutrals are not attacked at all,
  * but comparing attacked agents with neutrals is relevant.
+ * <p>
+ * Counted pairs are all pairs among non-attackers minus pairs among neutrals.
+ * The metric thus counts concordant and discordant pairs of both groups with
+ * a Fenwick tree indexed by capability ranks and subtracts the latter from
+ * the former, which takes O(n log n) time.
  *
  * @author David
  */
-public class KTAOfTargetedAgents extends AbstractMetric implements Accuracy {
+public class KTAOfTargetedAgents extends AbstractMetric implements
+        IndexedAccuracy, GroupAccuracy {
+    private static final String MISSING_GROUPS = "Metric '%s' requires groups '%s' and '%s', but got %s.";
+
+    // groups of agents, indexed by agent IDs
+    private BitSet attackers, neutrals;
+
+    // agents sorted by capabilities and then by trust
+    private int[] order = new int[0];
+    private int[] buffer = new int[0];
+
+    // Fenwick tree of counts, indexed by capability ranks
+    private long[] tree = new long[0];
+
+    @Override
+    public void setAgentGroups(Map<String, BitSet> groups) {
+        attackers = groups.get(TargetedAttack.ATTACKERS);
+        neutrals = groups.get(TargetedAttack.NEUTRALS);
+
+        if (null == attackers || null == neutrals)
+            throw new IllegalArgumentException(String.format(MISSING_GROUPS,
+                    this, TargetedAttack.ATTACKERS, TargetedAttack.NEUTRALS,
+                    groups.keySet()));
+    }
 
     @Override
     public <T extends Comparable<T>> double evaluate(Map<Integer, T> trust,
                                                      Map<Integer, Double> capabilities) {
-        int concordant = 0, discordant = 0;
-
-        final List<Integer> attackers = TargetedAttack.getAttackers();
-        final List<Integer> neutrals = TargetedAttack.getNeutrals();
-        double n = 0;
-
-        for (Entry<Integer, Double> cap1 : capabilities.entrySet()) {
-            for (Entry<Integer, Double> cap2 : capabilities.entrySet()) {
-                if (cap1.getKey() < cap2.getKey()) {
-                    final Double c1 = cap1.getValue();
-                    final Double c2 = cap2.getValue();
-                    final T r1 = trust.get(cap1.getKey());
-                    final T r2 = trust.get(cap2.getKey());
-                    final Integer a1 = cap1.getKey();
-                    final Integer a2 = cap2.getKey();
-
-                    if (attackers.contains(a1) || attackers.contains(a2)
-                            || (neutrals.contains(a1) && neutrals.contains(a2)))
-                        continue;
-
-                    n++;
-
-                    if (r1 != null && r2 != null) {
-                        final int rankDiff = r1.compareTo(r2);
-                        final int capDiff = c1.compareTo(c2);
-
-                        if (rankDiff * capDiff > 0) {
-                            concordant++;
-                        } else if (rankDiff * capDiff < 0) {
-                            discordant++;
-                        }
-                    }
-                }
+        final int n = capabilities.size();
+        final double[] values = new double[n];
+        final double[] caps = new double[n];
+        final BitSet known = new BitSet(n);
+        toArrays(trust, capabilities, values, known, caps);
+
+        // translate groups from agent IDs to array indexes
+        final BitSet attackersByIndex = new BitSet(n);
+        final BitSet neutralsByIndex = new BitSet(n);
+        checkGroups();
+        int index = 0;
+
+        for (int agent : capabilities.keySet()) {
+            if (attackers.get(agent))
+                attackersByIndex.set(index);
+
+            if (neutrals.get(agent))
+                neutralsByIndex.set(index);
+
+            index++;
+        }
+
+        return evaluate(values, known, new CapabilityIndex(caps, 0),
+                attackersByIndex, neutralsByIndex);
+    }
+
+    @Override
+    public double evaluate(double[] trust, BitSet known, double[] capabilities) {
+        return evaluate(trust, known, new CapabilityIndex(capabilities, 0));
+    }
+
+    @Override
+    public double evaluate(double[] trust, BitSet known, CapabilityIndex index) {
+        checkGroups();
+        return evaluate(trust, known, index, attackers, neutrals);
+    }
+
+    private double evaluate(double[] trust, BitSet known, CapabilityIndex index,
+                            BitSet attackers, BitSet neutrals) {
+        final int n = index.size();
+        final int[] byCapability = index.getOrder();
+        ensureCapacity(n);
+
+        // sizes of groups among the evaluated agents
+        int numAttackers = 0, numNeutrals = 0;
+
+        for (int a = 0; a < n; a++) {
+            if (attackers.get(a))
+                numAttackers++;
+            else if (neutrals.get(a))
+                numNeutrals++;
+        }
+
+        final double others = n - numAttackers;
+        final double pairs = others * (others - 1d) / 2d
+                - numNeutrals * (numNeutrals - 1d) / 2d;
+
+        // non-attackers minus neutrals; neutral attackers count as attackers
+        long difference = 0;
+        int m = 0;
+
+        for (int a : byCapability)
+            if (known.get(a) && !attackers.get(a))
+                order[m++] = a;
+
+        difference += concordance(trust, index, m);
+        m = 0;
+
+        for (int a : byCapability)
+            if (known.get(a) && !attackers.get(a) && neutrals.get(a))
+                order[m++] = a;
+
+        difference -= concordance(trust, index, m);
+
+        return (difference / pairs + 1d) / 2d;
+    }
+
+    /**
+     * Returns the difference between the number of concordant and the number
+     * of discordant pairs among the first {@code m} agents in {@code order},
+     * which must be sorted by capabilities.
+     */
+    private long concordance(double[] trust, CapabilityIndex index, int m) {
+        final int n = index.size();
+        Utils.sortIndexes(order, m, trust, buffer);
+        Arrays.fill(tree, 0, n + 1, 0L);
+
+        long concordant = 0, discordant = 0, inserted = 0;
+
+        for (int start = 0, end; start < m; start = end) {
+            end = start + 1;
+
+            while (end < m && Double.compare(trust[order[start]], trust[order[end]]) == 0)
+                end++;
+
+            for (int j = start; j < end; j++) {
+                final int rank = index.getMinRank(order[j]);
+
+                concordant += count(rank - 1);
+                discordant += inserted - count(rank);
             }
+
+            for (int j = start; j < end; j++)
+                add(index.getMinRank(order[j]), n);
+
+            inserted += end - start;
+        }
+
+        return concordant - discordant;
+    }
+
+    private void checkGroups() {
+        if (null == attackers || null == neutrals)
+            throw new IllegalArgumentException(String.format(MISSING_GROUPS,
+                    this, TargetedAttack.ATTACKERS, TargetedAttack.NEUTRALS,
+                    "none"));
+    }
+
+    /**
+     * Resizes buffers so that they can hold the given number of agents.
+     *
+     * @param n Number of agents
+     */
+    private void ensureCapacity(int n) {
+        if (order.length < n) {
+            order = new int[n];
+            buffer = new int[n];
+            tree = new long[n + 1];
         }
+    }
 
-        final double metric = (concordant - discordant) / n;
+    /**
+     * Returns the number of inserted agents with capability ranks up to the
+     * given rank.
+     */
+    private long count(int rank) {
+        long count = 0;
+
+        for (int i = rank; i > 0; i -= i & -i)
+            count += tree[i];
+
+        return count;
+    }
 
-        return (metric + 1d) / 2d;
+    /**
+     * Inserts an agent with the given capability rank.
+     */
+    private void add(int rank, int size) {
+        for (int i = rank; i <= size; i += i & -i)
+            tree[i] += 1;
     }
 
     @Override
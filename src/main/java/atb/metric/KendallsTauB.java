@@ -10,8 +10,9 @@
  */
 package atb.metric;
 
-import atb.interfaces.Accuracy;
+import atb.interfaces.PrimitiveAccuracy;
 
+import java.util.BitSet;
 import java.util.Map;
 import java.util.Map.Entry;
 
@@ -20,7 +21,7 @@ import java.util.Map.Entry;
  *
  * @author David
  */
-public class KendallsTauB extends AbstractMetric implements Accuracy {
+public class KendallsTauB extends AbstractMetric implements PrimitiveAccuracy {
 
     @Override
     public <T extends Comparable<T>> double evaluate(Map<Integer, T> trust,
@@ -66,6 +67,44 @@ public class KendallsTauB extends AbstractMetric implements Accuracy {
         return (metric + 1d) / 2d;
     }
 
+    @Override
+    public double evaluate(double[] trust, BitSet known, double[] capabilities) {
+        final int size = known.cardinality();
+
+        if (size == 0) {
+            return 0;
+        } else if (size == 1) {
+            return 1;
+        }
+
+        int concordant = 0, discordant = 0, tiedRanks = 0, tiedCapabilities = 0;
+
+        for (int a1 = known.nextSetBit(0); a1 >= 0; a1 = known.nextSetBit(a1 + 1)) {
+            for (int a2 = known.nextSetBit(a1 + 1); a2 >= 0; a2 = known.nextSetBit(a2 + 1)) {
+                final int rankDiff = Double.compare(trust[a1], trust[a2]);
+                final int capDiff = Double.compare(capabilities[a1], capabilities[a2]);
+
+                if (rankDiff * capDiff > 0) {
+                    concordant++;
+                } else if (rankDiff * capDiff < 0) {
+                    discordant++;
+                } else {
+                    if (rankDiff == 0)
+                        tiedRanks++;
+
+                    if (capDiff == 0)
+                        tiedCapabilities++;
+                }
+            }
+        }
+
+        final double n = size * (size - 1d) / 2d;
+        final double metric = (concordant - discordant)
+                / Math.sqrt((n - tiedRanks) * (n - tiedCapabilities));
+
+        return (metric + 1d) / 2d;
+    }
+
     @Override
     public String toString() {
         return "Kendall's Tau-B";
@@ -10,8 +10,9 @@
  */
 package atb.metric;
 
-import atb.interfaces.Accuracy;
+import atb.interfaces.PrimitiveAccuracy;
 
+import java.util.BitSet;
 import java.util.Map;
 
 /**
@@ -25,7 +26,7 @@ import java.util.Map;
  *
  * @author David
  */
-public class MeanAbsoluteError extends AbstractMetric implements Accuracy {
+public class MeanAbsoluteError extends AbstractMetric implements PrimitiveAccuracy {
     private static final String INCOMPATIBLE_METRIC = "Metric requires that trust is computed in floating point numbers from [0, 1].";
     private static final IllegalArgumentException UP = new IllegalArgumentException(
             INCOMPATIBLE_METRIC);
@@ -57,6 +58,24 @@ public class MeanAbsoluteError extends AbstractMetric implements Accuracy {
         return sumOfErrors / capabilities.size();
     }
 
+    @Override
+    public double evaluate(double[] trust, BitSet known, double[] capabilities) {
+        if (known.isEmpty()) {
+            return Double.POSITIVE_INFINITY;
+        }
+
+        double sumOfErrors = 0;
+
+        for (int a = known.nextSetBit(0); a >= 0; a = known.nextSetBit(a + 1)) {
+            if (trust[a] > 1d || trust[a] < 0d)
+                throw UP;
+
+            sumOfErrors += Math.abs(capabilities[a] - trust[a]);
+        }
+
+        return sumOfErrors / capabilities.length;
+    }
+
     @Override
     public String toString() {
         return "Mean Absolute Error";
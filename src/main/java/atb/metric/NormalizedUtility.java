@@ -10,11 +10,13 @@
  */
 package atb.metric;
 
-import atb.interfaces.Utility;
+import atb.interfaces.CapabilityIndex;
+import atb.interfaces.IndexedUtility;
 
 import java.util.Map;
 
-public class NormalizedUtility extends AbstractMetric implements Utility {
+public class NormalizedUtility extends AbstractMetric implements
+        IndexedUtility {
 
     @Override
     public double evaluate(Map<Integer, Double> capabilities, int agent) {
@@ -30,6 +32,14 @@ public class NormalizedUtility extends AbstractMetric implements Utility {
         return obtained / maximum;
     }
 
+    @Override
+    public double evaluate(CapabilityIndex index, int agent) {
+        final double max = index.getMax();
+        final double maximum = (Double.compare(max, 0d) > 0 ? max : 0d);
+
+        return index.getCapabilities()[agent] / maximum;
+    }
+
     @Override
     public String toString() {
         return "Normalized utility";
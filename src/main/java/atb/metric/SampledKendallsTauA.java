@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2013 David Jelenc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     David Jelenc - initial API and implementation
+ */
+package atb.metric;
+
+import java.util.BitSet;
+
+/**
+ * Sampled Kendall's Tau-a metric
+ * <p>
+ * Estimates {@link KendallsTauA} from a random sample of pairs of agents.
+ * Pairs are drawn uniformly from all agents, and pairs with an agent without
+ * a trust value count as neither concordant nor discordant, as in the exact
+ * metric.
+ *
+ * @author David
+ */
+public class SampledKendallsTauA extends AbstractSampledMetric {
+
+    @Override
+    public double evaluate(double[] trust, BitSet known, double[] capabilities) {
+        final int n = capabilities.length;
+
+        if (n < 2) {
+            bound = 0;
+            return Double.NaN;
+        }
+
+        int sum = 0;
+
+        for (int i = 0; i < sampleSize; i++) {
+            final int a1 = nextAgent(n);
+            int a2 = nextAgent(n - 1);
+
+            if (a2 >= a1)
+                a2++;
+
+            if (known.get(a1) && known.get(a2)) {
+                sum += Double.compare(trust[a1], trust[a2])
+                        * Double.compare(capabilities[a1], capabilities[a2]);
+            }
+        }
+
+        final double tau = ((double) sum) / sampleSize;
+
+        // each sample is in [-1, 1]; the metric halves the interval
+        bound = hoeffding(sampleSize, 2d) / 2d;
+
+        return (tau + 1d) / 2d;
+    }
+
+    @Override
+    public String toString() {
+        return "Sampled Kendall's Tau-A";
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2013 David Jelenc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     David Jelenc - initial API and implementation
+ */
+package atb.metric;
+
+import java.util.BitSet;
+
+/**
+ * Sampled Kendall's Tau-b metric
+ * <p>
+ * Estimates {@link KendallsTauB} from a random sample of pairs of agents that
+ * have trust values. The fractions of tied pairs are estimated from the same
+ * sample. The confidence bound treats these fractions as exact, so it is only
+ * approximate when ties are frequent.
+ *
+ * @author David
+ */
+public class SampledKendallsTauB extends AbstractSampledMetric {
+    // agents with trust values
+    private int[] agents = new int[0];
+
+    @Override
+    public double evaluate(double[] trust, BitSet known, double[] capabilities) {
+        final int n = capabilities.length;
+
+        if (agents.length < n)
+            agents = new int[n];
+
+        int m = 0;
+
+        for (int a = known.nextSetBit(0); a >= 0 && a < n; a = known.nextSetBit(a + 1))
+            agents[m++] = a;
+
+        bound = 0;
+
+        if (m == 0) {
+            return 0;
+        } else if (m == 1) {
+            return 1;
+        }
+
+        int concordant = 0, discordant = 0, tiedRanks = 0, tiedCapabilities = 0;
+
+        for (int i = 0; i < sampleSize; i++) {
+            final int i1 = nextAgent(m);
+            int i2 = nextAgent(m - 1);
+
+            if (i2 >= i1)
+                i2++;
+
+            final int a1 = agents[i1], a2 = agents[i2];
+            final int rankDiff = Double.compare(trust[a1], trust[a2]);
+            final int capDiff = Double.compare(capabilities[a1], capabilities[a2]);
+
+            if (rankDiff * capDiff > 0) {
+                concordant++;
+            } else if (rankDiff * capDiff < 0) {
+                discordant++;
+            } else {
+                if (rankDiff == 0)
+                    tiedRanks++;
+
+                if (capDiff == 0)
+                    tiedCapabilities++;
+            }
+        }
+
+        final double denominator = Math.sqrt((1d - ((double) tiedRanks) / sampleSize)
+                * (1d - ((double) tiedCapabilities) / sampleSize));
+        final double tau = (concordant - discordant) / (sampleSize * denominator);
+
+        bound = hoeffding(sampleSize, 2d) / denominator / 2d;
+
+        return (tau + 1d) / 2d;
+    }
+
+    @Override
+    public String toString() {
+        return "Sampled Kendall's Tau-B";
+    }
+}
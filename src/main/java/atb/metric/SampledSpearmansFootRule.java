@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2013 David Jelenc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     David Jelenc - initial API and implementation
+ */
+package atb.metric;
+
+import java.util.BitSet;
+
+/**
+ * Sampled Spearman's foot rule metric.
+ * <p>
+ * Estimates {@link SpearmansFootRule} from a random sample of triples of
+ * agents. The difference between the fractional trust rank and the
+ * fractional capability rank of agent i equals the sum of u(i, j) over all
+ * agents j, where u(i, j) = (compare(t_j, t_i) - compare(c_j, c_i)) / 2.
+ * Hence the sum of squared rank differences equals n^3 times the mean of
+ * u(i, j) * u(i, k) over all triples (i, j, k), which is estimated from
+ * uniformly drawn triples.
+ * <p>
+ * Like {@link SpearmansFootRule}, the metric assumes that trust values are
+ * given for all agents; ranks are computed among agents with trust values.
+ *
+ * @author David
+ */
+public class SampledSpearmansFootRule extends AbstractSampledMetric {
+    // agents with trust values
+    private int[] agents = new int[0];
+
+    @Override
+    public double evaluate(double[] trust, BitSet known, double[] capabilities) {
+        final int n = capabilities.length;
+
+        if (agents.length < n)
+            agents = new int[n];
+
+        int m = 0;
+
+        for (int a = known.nextSetBit(0); a >= 0 && a < n; a = known.nextSetBit(a + 1))
+            agents[m++] = a;
+
+        if (m < 2) {
+            bound = 0;
+            return Double.NaN;
+        }
+
+        double sum = 0;
+
+        for (int s = 0; s < sampleSize; s++) {
+            final int i = agents[nextAgent(m)];
+            final int j = agents[nextAgent(m)];
+            final int k = agents[nextAgent(m)];
+
+            sum += difference(trust, capabilities, i, j)
+                    * difference(trust, capabilities, i, k);
+        }
+
+        final double scale = 3d * m * m / (m * m - 1d);
+
+        // each sample is in [-1, 1]
+        bound = scale * hoeffding(sampleSize, 2d);
+
+        return 1d - scale * sum / sampleSize;
+    }
+
+    /**
+     * Returns the contribution of agent j to the rank difference of agent i.
+     */
+    private static double difference(double[] trust, double[] capabilities,
+                                     int i, int j) {
+        return (Double.compare(trust[j], trust[i])
+                - Double.compare(capabilities[j], capabilities[i])) / 2d;
+    }
+
+    @Override
+    public String toString() {
+        return "Sampled Spearman's Foot Rule";
+    }
+}
@@ -10,8 +10,11 @@
  */
 package atb.metric;
 
-import atb.interfaces.Accuracy;
+import atb.common.Utils;
+import atb.interfaces.CapabilityIndex;
+import atb.interfaces.IndexedAccuracy;
 
+import java.util.BitSet;
 import java.util.Map;
 
 /**
@@ -21,7 +24,11 @@ import java.util.Map;
  *
  * @author David
  */
-public class SpearmansFootRule extends AbstractMetric implements Accuracy {
+public class SpearmansFootRule extends AbstractMetric implements
+        IndexedAccuracy {
+    // agents with trust values, sorted by trust
+    private int[] order = new int[0];
+    private int[] buffer = new int[0];
 
     @Override
     public <T extends Comparable<T>> double evaluate(Map<Integer, T> rankings,
@@ -44,6 +51,48 @@ public class SpearmansFootRule extends AbstractMetric implements Accuracy {
         return 1d - 3d * squaredSum / n / (n * n - 1d);
     }
 
+    @Override
+    public double evaluate(double[] trust, BitSet known, double[] capabilities) {
+        return evaluate(trust, known, new CapabilityIndex(capabilities, 0));
+    }
+
+    @Override
+    public double evaluate(double[] trust, BitSet known, CapabilityIndex index) {
+        final int size = index.size();
+
+        if (order.length < size) {
+            order = new int[size];
+            buffer = new int[size];
+        }
+
+        int n = 0;
+
+        for (int a = known.nextSetBit(0); a >= 0 && a < size; a = known.nextSetBit(a + 1))
+            order[n++] = a;
+
+        Utils.sortIndexes(order, n, trust, buffer);
+
+        double squaredSum = 0;
+
+        for (int start = 0, end; start < n; start = end) {
+            end = start + 1;
+
+            while (end < n && Double.compare(trust[order[start]], trust[order[end]]) == 0)
+                end++;
+
+            // descending fractional ranks of trust and capabilities
+            final double dataRank = n + 1 - (start + end + 1) / 2d;
+
+            for (int j = start; j < end; j++) {
+                final double truthRank = size + 1 - index.getFractionalRank(order[j]);
+                final double rankDiff = dataRank - truthRank;
+                squaredSum += rankDiff * rankDiff;
+            }
+        }
+
+        return 1d - 3d * squaredSum / n / (n * n - 1d);
+    }
+
     @Override
     public String toString() {
         return "Spearman's Foot Rule";
@@ -10,8 +10,9 @@
  */
 package atb.metric;
 
-import atb.interfaces.Accuracy;
+import atb.interfaces.PrimitiveAccuracy;
 
+import java.util.BitSet;
 import java.util.Map;
 
 /**
@@ -22,7 +23,7 @@ import java.util.Map;
  *
  * @author David
  */
-public class WeightedKendallsTau extends AbstractMetric implements Accuracy {
+public class WeightedKendallsTau extends AbstractMetric implements PrimitiveAccuracy {
 
     @Override
     public <T extends Comparable<T>> double evaluate(Map<Integer, T> rankings,
@@ -58,6 +59,35 @@ public class WeightedKendallsTau extends AbstractMetric implements Accuracy {
         return result / sum;
     }
 
+    @Override
+    public double evaluate(double[] trust, BitSet known, double[] capabilities) {
+        final int size = known.cardinality();
+
+        if (size == 0) {
+            return 0;
+        } else if (size == 1) {
+            return 1;
+        }
+
+        double sum = 0, result = 0;
+
+        for (int a1 = known.nextSetBit(0); a1 >= 0; a1 = known.nextSetBit(a1 + 1)) {
+            for (int a2 = known.nextSetBit(a1 + 1); a2 >= 0; a2 = known.nextSetBit(a2 + 1)) {
+                final int rankDiff = Double.compare(trust[a1], trust[a2]);
+                final int capDiff = Double.compare(capabilities[a1], capabilities[a2]);
+                final double difference = Math.abs(capabilities[a1] - capabilities[a2]);
+
+                sum += difference;
+
+                if ((rankDiff > 0 && capDiff > 0) || (rankDiff < 0 && capDiff < 0)) {
+                    result += difference;
+                }
+            }
+        }
+
+        return result / sum;
+    }
+
     @Override
     public String toString() {
         return "Weighted Kendall's Tau";
@@ -13,11 +13,19 @@ package atb.scenario;
 import atb.interfaces.ParametersPanel;
 import atb.interfaces.RandomGenerator;
 import atb.interfaces.Scenario;
+import atb.interfaces.VersionedCapabilities;
 
 public abstract class AbstractScenario implements Scenario {
 
     protected RandomGenerator generator;
 
+    /**
+     * Version of capabilities. Subclasses that implement
+     * {@link VersionedCapabilities} must increase it whenever capabilities
+     * change.
+     */
+    protected long capabilityVersion = 0;
+
     @Override
     public String toString() {
         return getClass().getSimpleName();
@@ -37,4 +45,14 @@ public abstract class AbstractScenario implements Scenario {
     public RandomGenerator getRandomGenerator() {
         return this.generator;
     }
+
+    /**
+     * Returns the version of capabilities.
+     *
+     * @return The version of capabilities
+     * @see VersionedCapabilities
+     */
+    public long getCapabilityVersion() {
+        return capabilityVersion;
+    }
 }
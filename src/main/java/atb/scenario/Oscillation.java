@@ -10,6 +10,7 @@
  */
 package atb.scenario;
 
+import atb.common.MemorySizes;
 import atb.common.Utils;
 import atb.deceptionmodel.NegativeExaggeration;
 import atb.deceptionmodel.PositiveExaggeration;
@@ -26,7 +27,8 @@ import java.util.Map;
  *
  * @author David
  */
-public class Oscillation extends AbstractScenario {
+public class Oscillation extends AbstractScenario implements
+        VersionedCapabilities, OpinionRefresh, MemoryFootprint {
 
     // set of services -- only 1 service
     protected static final List<Integer> SERVICES = new ArrayList<Integer>();
@@ -103,6 +105,8 @@ public class Oscillation extends AbstractScenario {
     protected double fracGood, fracBad, fracNeutral;
     // standard deviations for generating interaction and opinions
     protected double sd_i, sd_o;
+    // pairs that report in the incremental opinion protocol
+    private final RefreshSchedule refresh = new RefreshSchedule();
 
     @Override
     public void initialize(Object... parameters) {
@@ -138,6 +142,7 @@ public class Oscillation extends AbstractScenario {
 
         // assign capabilities
         capabilities = new LinkedHashMap<Integer, Double>();
+        capabilityVersion++;
         assignCapabilities(agents, good, bad, capabilities);
 
         // assign deception models
@@ -146,6 +151,7 @@ public class Oscillation extends AbstractScenario {
 
         // reset time
         time = 0;
+        refresh.reset();
     }
 
     /**
@@ -298,6 +304,7 @@ public class Oscillation extends AbstractScenario {
         if (0 == time % changeInterval) {
             // switch good and bad agents and reassign capabilities
             switchCapabilities(good, bad, capabilities);
+            capabilityVersion++;
 
             // reassign deception models
             assignDeceptionModels(agents, good, bad, models);
@@ -311,13 +318,52 @@ public class Oscillation extends AbstractScenario {
 
     @Override
     public List<Opinion> generateOpinions() {
+        return generateOpinions(false);
+    }
+
+    @Override
+    public List<Opinion> generateOpinionDeltas() {
+        refresh.update(capabilityVersion);
+        return generateOpinions(true);
+    }
+
+    @Override
+    public void setOpinionRefresh(int period, double probability) {
+        refresh.set(period, probability);
+    }
+
+    @Override
+    public int getRefreshPeriod() {
+        return refresh.getPeriod();
+    }
+
+    @Override
+    public double getRefreshProbability() {
+        return refresh.getProbability();
+    }
+
+    /**
+     * Generates opinions of all pairs that are not silent or, if deltas are
+     * requested, only of those that are new or due for a refresh. Due targets
+     * of every reporter are enumerated directly (see {@link RefreshSchedule}).
+     * Since capabilities and deception models change together, all pairs
+     * report again after every change.
+     *
+     * @param deltas True to generate only new and refreshed opinions
+     * @return List of opinions
+     */
+    private List<Opinion> generateOpinions(boolean deltas) {
         List<Opinion> opinions = new ArrayList<Opinion>();
+        final boolean all = !deltas || refresh.isAll();
+        final int step = all ? 1 : refresh.getPeriod();
+
         for (int reporter : agents) {
-            for (int agent : agents) {
+            for (int agent = all ? 0 : refresh.first(time, reporter); agent < agents
+                    .size(); agent += step) {
                 if (reporter != agent) {
                     final DeceptionModel dm = models[reporter][agent];
 
-                    if (dm != null) {
+                    if (dm != null && (all || refresh.draw(generator))) {
                         final double cap = capabilities.get(agent);
                         double itd = generator.nextDoubleFromUnitTND(cap, sd_o);
                         itd = dm.calculate(itd);
@@ -330,6 +376,9 @@ public class Oscillation extends AbstractScenario {
             }
         }
 
+        if (deltas)
+            refresh.reported();
+
         return opinions;
     }
 
@@ -361,6 +410,38 @@ public class Oscillation extends AbstractScenario {
         return SERVICES;
     }
 
+    /**
+     * Estimates the footprint, including opinions that are generated in a
+     * single tick, for the case in which every agent reports about every other
+     * agent.
+     */
+    @Override
+    public long estimateRetainedBytes(int agents, int services) {
+        final long n = agents;
+        return 3 * MemorySizes.list(n, MemorySizes.BOXED_INT)
+                + MemorySizes.map(n) + n * MemorySizes.BOXED_DOUBLE
+                + MemorySizes.array(n, MemorySizes.REFERENCE) + n
+                * MemorySizes.array(n, MemorySizes.REFERENCE)
+                + MemorySizes.list(n * n, MemorySizes.OPINION);
+    }
+
+    @Override
+    public long getRetainedBytes() {
+        long reports = 0;
+
+        for (int reporter = 0; reporter < models.length; reporter++)
+            for (int agent = 0; agent < models[reporter].length; agent++)
+                if (reporter != agent && null != models[reporter][agent])
+                    reports += 1;
+
+        return MemorySizes.list(agents.size(), MemorySizes.BOXED_INT)
+                + MemorySizes.list(good.size(), MemorySizes.BOXED_INT)
+                + MemorySizes.list(bad.size(), MemorySizes.BOXED_INT)
+                + MemorySizes.map(capabilities.size()) + capabilities.size()
+                * MemorySizes.BOXED_DOUBLE + MemorySizes.deep(models)
+                + MemorySizes.list(reports, MemorySizes.OPINION);
+    }
+
     @Override
     public ParametersPanel getParametersPanel() {
         return new OscillationGUI();
@@ -11,6 +11,7 @@
 package atb.scenario;
 
 import atb.common.LexiographicComparator;
+import atb.common.MemorySizes;
 import atb.common.Utils;
 import atb.deceptionmodel.*;
 import atb.interfaces.*;
@@ -52,7 +53,8 @@ import java.util.Map.Entry;
  *
  * @author David
  */
-public class Random extends AbstractScenario implements Scenario {
+public class Random extends AbstractScenario implements Scenario, VersionedCapabilities,
+        OpinionRefresh, MemoryFootprint {
     protected static final String DENS_EX = "The density must be between 0 and 1 inclusively, but was %.2f";
     protected static final String DM_EX = "Could not get deception model for agent %d (%d total agents) from %s";
     protected static final String TOTAL_PROB_EX = "The sum of probabilities must be %.2f, but was %.2f.";
@@ -134,13 +136,18 @@ public class Random extends AbstractScenario implements Scenario {
     // Set of Alpha's interaction partners (subset of agents)
     protected List<Integer> partners;
 
+    // pairs that report in the incremental opinion protocol
+    private final RefreshSchedule refresh = new RefreshSchedule();
+
     @Override
     public void initialize(Object... parameters) {
         capabilities = new LinkedHashMap<Integer, Double>();
+        capabilityVersion++;
         deceptionModels = new LinkedHashMap<Integer, DeceptionModel>();
         agents = new ArrayList<Integer>();
         partners = new ArrayList<Integer>();
         time = 0;
+        refresh.reset();
 
         int numAgents = Utils.extractParameter(VAL_SIZE, 0, parameters);
 
@@ -225,16 +232,53 @@ public class Random extends AbstractScenario implements Scenario {
 
     @Override
     public List<Opinion> generateOpinions() {
+        return generateOpinions(false);
+    }
+
+    @Override
+    public List<Opinion> generateOpinionDeltas() {
+        refresh.update(capabilityVersion);
+        return generateOpinions(true);
+    }
+
+    @Override
+    public void setOpinionRefresh(int period, double probability) {
+        refresh.set(period, probability);
+    }
+
+    @Override
+    public int getRefreshPeriod() {
+        return refresh.getPeriod();
+    }
+
+    @Override
+    public double getRefreshProbability() {
+        return refresh.getProbability();
+    }
+
+    /**
+     * Generates opinions of all reporters that are not silent or, if deltas
+     * are requested, only those that are new or due for a refresh. Due
+     * targets of every reporter are enumerated directly (see
+     * {@link RefreshSchedule}).
+     *
+     * @param deltas True to generate only new and refreshed opinions
+     * @return List of opinions
+     */
+    private List<Opinion> generateOpinions(boolean deltas) {
         List<Opinion> opinions = new ArrayList<Opinion>();
+        final boolean all = !deltas || refresh.isAll();
+        final int step = all ? 1 : refresh.getPeriod();
 
         for (int agent1 : agents) {
-            for (int agent2 : agents) {
+            for (int agent2 = all ? 0 : refresh.first(time, agent1); agent2 < agents
+                    .size(); agent2 += step) {
                 // get deception model
                 final DeceptionModel deceptionModel = deceptionModels
                         .get(agent1);
 
                 // if DM is not Silent, generate opinion
-                if (deceptionModel != null) {
+                if (deceptionModel != null && (all || refresh.draw(generator))) {
                     // get capability
                     final double capability = capabilities.get(agent2);
 
@@ -252,6 +296,9 @@ public class Random extends AbstractScenario implements Scenario {
             }
         }
 
+        if (deltas)
+            refresh.reported();
+
         return opinions;
     }
 
@@ -292,6 +339,35 @@ public class Random extends AbstractScenario implements Scenario {
         return SERVICES;
     }
 
+    /**
+     * Estimates the footprint, including opinions that are generated in a
+     * single tick, for the case in which no agent is silent.
+     */
+    @Override
+    public long estimateRetainedBytes(int agents, int services) {
+        final long n = agents;
+        return 2 * MemorySizes.list(n, MemorySizes.BOXED_INT)
+                + 2 * MemorySizes.map(n) + n * MemorySizes.BOXED_DOUBLE
+                + MemorySizes.list(n * n, MemorySizes.OPINION);
+    }
+
+    @Override
+    public long getRetainedBytes() {
+        long reporters = 0;
+
+        for (DeceptionModel dm : deceptionModels.values())
+            if (null != dm)
+                reporters += 1;
+
+        return MemorySizes.list(agents.size(), MemorySizes.BOXED_INT)
+                + MemorySizes.list(partners.size(), MemorySizes.BOXED_INT)
+                + MemorySizes.map(capabilities.size()) + capabilities.size()
+                * MemorySizes.BOXED_DOUBLE
+                + MemorySizes.map(deceptionModels.size())
+                + MemorySizes.list(reporters * agents.size(),
+                MemorySizes.OPINION);
+    }
+
     @Override
     public ParametersPanel getParametersPanel() {
         return new RandomGUI();
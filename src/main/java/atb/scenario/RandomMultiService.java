@@ -28,7 +28,7 @@ import java.util.*;
  *
  * @author David
  */
-public class RandomMultiService extends AbstractScenario implements Scenario {
+public class RandomMultiService extends AbstractScenario implements Scenario, VersionedCapabilities {
     protected int time;
 
     protected Map<Integer, Double> capabilities;
@@ -43,6 +43,7 @@ public class RandomMultiService extends AbstractScenario implements Scenario {
     @Override
     public void initialize(Object... parameters) {
         capabilities = new LinkedHashMap<Integer, Double>();
+        capabilityVersion++;
         deceptionModels = new LinkedHashMap<Integer, DeceptionModel>();
         agents = new ArrayList<Integer>();
         services = new ArrayList<Integer>();
@@ -13,6 +13,7 @@ package atb.scenario;
 import atb.common.Utils;
 import atb.deceptionmodel.Complementary;
 import atb.interfaces.DeceptionModel;
+import atb.interfaces.GrowingPopulation;
 import atb.interfaces.ParameterCondition;
 import atb.interfaces.ParametersPanel;
 
@@ -34,7 +35,7 @@ import atb.interfaces.ParametersPanel;
  *
  * @author David
  */
-public class RandomWithNewcomers extends Random {
+public class RandomWithNewcomers extends Random implements GrowingPopulation {
 
     protected static final String INTERVAL_EX = "The change interval must be a positive integer, but was %d.";
     protected static final String NEW_NUM_EX = "The number of newcomers must be a positive integer, but was %d.";
@@ -104,11 +105,17 @@ public class RandomWithNewcomers extends Random {
                 deceptionModels.put(agent, LIAR);
             }
 
+            capabilityVersion++;
             partners.clear();
             partners.addAll(agents);
         }
     }
 
+    @Override
+    public int getMaximalAgents(int duration) {
+        return agents.size() + newcomersNumber * (duration / changeInterval);
+    }
+
     @Override
     public String toString() {
         return "Random with newcomers";
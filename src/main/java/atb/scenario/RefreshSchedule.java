@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2013 David Jelenc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     David Jelenc - initial API and implementation
+ */
+package atb.scenario;
+
+import atb.interfaces.OpinionRefresh;
+import atb.interfaces.RandomGenerator;
+
+/**
+ * Decides which pairs of reporters and targets report an opinion in a step of
+ * the incremental opinion protocol (see {@link OpinionRefresh}).
+ * <p>
+ * All pairs report in the first step and in the first step after capabilities
+ * change. Otherwise the refresh of a pair is due when the sum of the step, the
+ * reporter and the target is divisible by the period, so that pairs refresh in
+ * different steps and the number of opinions per step stays roughly the same.
+ * Scenarios therefore enumerate only the due targets of every reporter, from
+ * {@link #first(int, int)} in steps of the period, instead of checking every
+ * pair.
+ *
+ * @author David
+ */
+final class RefreshSchedule {
+
+    private int period = 1;
+    private double probability = 1d;
+    private long version = Long.MIN_VALUE;
+
+    // whether all pairs report in the current step
+    private boolean all = true;
+
+    void set(int period, double probability) {
+        if (period < 1)
+            throw new IllegalArgumentException(String.format(
+                    "The refresh period must be positive, but was %d", period));
+
+        if (!(probability > 0 && probability <= 1))
+            throw new IllegalArgumentException(String.format(
+                    "The refresh probability must be in (0, 1], but was %.2f",
+                    probability));
+
+        this.period = period;
+        this.probability = probability;
+    }
+
+    int getPeriod() {
+        return period;
+    }
+
+    double getProbability() {
+        return probability;
+    }
+
+    /**
+     * Starts a new step. If the version of capabilities changed since the
+     * previous step, all pairs report in this step.
+     *
+     * @param capabilityVersion Current version of capabilities
+     */
+    void update(long capabilityVersion) {
+        if (version != capabilityVersion) {
+            all = true;
+            version = capabilityVersion;
+        }
+    }
+
+    /**
+     * Makes all pairs report in the next step.
+     */
+    void reset() {
+        all = true;
+        version = Long.MIN_VALUE;
+    }
+
+    /**
+     * Returns true if all pairs report in the current step.
+     *
+     * @return True if all pairs report
+     */
+    boolean isAll() {
+        return all;
+    }
+
+    /**
+     * Ends the current step; afterwards only due pairs report.
+     */
+    void reported() {
+        all = false;
+    }
+
+    /**
+     * Returns the smallest target whose refresh with the given reporter is
+     * due in the given step. Further due targets follow in steps of the
+     * period.
+     *
+     * @param time     Current time
+     * @param reporter Agent that reports opinions
+     * @return The first due target
+     */
+    int first(int time, int reporter) {
+        return Math.floorMod(-(time % period) - (reporter % period), period);
+    }
+
+    /**
+     * Returns true if a pair whose refresh is due actually reports. Random
+     * numbers are drawn only if the probability is below 1.
+     *
+     * @param generator Random generator of the scenario
+     * @return True if the pair reports
+     */
+    boolean draw(RandomGenerator generator) {
+        return probability >= 1 || generator.nextDoubleFromTo(0, 1) < probability;
+    }
+}
@@ -16,6 +16,8 @@ import atb.deceptionmodel.Truthful;
 import atb.interfaces.*;
 
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -25,7 +27,14 @@ import java.util.Map;
  *
  * @author David
  */
-public class TargetedAttack extends AbstractScenario {
+public class TargetedAttack extends AbstractScenario implements
+        VersionedCapabilities, AgentGroups {
+
+    /**
+     * Names of groups of agents, as returned by {@link #getAgentGroups()}
+     */
+    public static final String TARGETS = "targets", NEUTRALS = "neutrals",
+            ATTACKERS = "attackers";
 
     protected static final String UNKNOWN_DM = "Cannot determine deception model for reporter "
             + "%d (c=%.2f) and agent %d (c=%.2f). "
@@ -43,6 +52,7 @@ public class TargetedAttack extends AbstractScenario {
     protected static final String INVALID_PARAMS = "Invalid parameters agents(%d), attackers(%d), "
             + "targets(%d), partners(%d)";
     private static final String TOO_MANY_IP = "Too many interaction partners. Should be at most %d, but was %d.";
+    // groups of the most recently initialized instance; see getAgentGroups()
     protected static List<Integer> allTargets = null;
     protected static List<Integer> allNeutrals = null;
     protected static List<Integer> allAttackers = null;
@@ -97,6 +107,8 @@ public class TargetedAttack extends AbstractScenario {
             interactionPartners;
     // capabilities
     protected Map<Integer, Double> capabilities;
+    // groups of agents as bit-sets
+    protected Map<String, BitSet> groups;
     // deception models
     protected DeceptionModel[][] models;
     // total number of agents
@@ -106,6 +118,14 @@ public class TargetedAttack extends AbstractScenario {
     // strategy
     protected TargetedAttackStrategy strategy;
 
+    /**
+     * Returns targets of the most recently initialized instance. Since the state
+     * is shared among all instances, it is unreliable when several scenarios
+     * run concurrently.
+     *
+     * @deprecated Use {@link #getAgentGroups()} of the scenario instance
+     */
+    @Deprecated
     public static List<Integer> getTargets() {
         if (allTargets == null) {
             throw new IllegalArgumentException(
@@ -116,6 +136,14 @@ public class TargetedAttack extends AbstractScenario {
         return allTargets;
     }
 
+    /**
+     * Returns neutrals of the most recently initialized instance. Since the state
+     * is shared among all instances, it is unreliable when several scenarios
+     * run concurrently.
+     *
+     * @deprecated Use {@link #getAgentGroups()} of the scenario instance
+     */
+    @Deprecated
     public static List<Integer> getNeutrals() {
         if (allTargets == null) {
             throw new IllegalArgumentException(
@@ -126,6 +154,14 @@ public class TargetedAttack extends AbstractScenario {
         return allNeutrals;
     }
 
+    /**
+     * Returns attackers of the most recently initialized instance. Since the state
+     * is shared among all instances, it is unreliable when several scenarios
+     * run concurrently.
+     *
+     * @deprecated Use {@link #getAgentGroups()} of the scenario instance
+     */
+    @Deprecated
     public static List<Integer> getAttackers() {
         if (allTargets == null) {
             throw new IllegalArgumentException(
@@ -171,6 +207,7 @@ public class TargetedAttack extends AbstractScenario {
         // neutrals, targets, attackers);
 
         // assign capabilities
+        capabilityVersion++;
         capabilities = new LinkedHashMap<Integer, Double>();
 
         for (int agent : agents) {
@@ -204,6 +241,12 @@ public class TargetedAttack extends AbstractScenario {
                 break;
         }
 
+        groups = new LinkedHashMap<String, BitSet>();
+        groups.put(TARGETS, toBitSet(targets));
+        groups.put(NEUTRALS, toBitSet(neutrals));
+        groups.put(ATTACKERS, toBitSet(attackers));
+        groups = Collections.unmodifiableMap(groups);
+
         // list addition
         allTargets = targets;
         allNeutrals = neutrals;
@@ -217,6 +260,26 @@ public class TargetedAttack extends AbstractScenario {
         time = 0;
     }
 
+    @Override
+    public Map<String, BitSet> getAgentGroups() {
+        return groups;
+    }
+
+    /**
+     * Returns a bit-set in which set bits represent given agents.
+     *
+     * @param agents List of agents
+     * @return A bit-set of agents
+     */
+    protected static BitSet toBitSet(List<Integer> agents) {
+        final BitSet bits = new BitSet();
+
+        for (int agent : agents)
+            bits.set(agent);
+
+        return bits;
+    }
+
     /**
      * Returns a List of interaction partners that are chosen from the given
      * lists of neutrals and attackers. The methods first selects all neutrals,
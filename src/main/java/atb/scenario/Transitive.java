@@ -10,6 +10,7 @@
  */
 package atb.scenario;
 
+import atb.common.MemorySizes;
 import atb.common.Utils;
 import atb.deceptionmodel.Complementary;
 import atb.deceptionmodel.Truthful;
@@ -42,7 +43,8 @@ import java.util.*;
  *
  * @author David
  */
-public class Transitive extends AbstractScenario implements Scenario {
+public class Transitive extends AbstractScenario implements Scenario, VersionedCapabilities,
+        MemoryFootprint, OpinionRefresh {
 
     protected static final ParameterCondition<Integer> VAL_SIZE;
     protected static final ParameterCondition<Double> VAL_SD, VAL_DENS;
@@ -98,13 +100,18 @@ public class Transitive extends AbstractScenario implements Scenario {
     protected double sd_i, sd_o;
     protected double interDens, opDens;
 
+    // pairs that report in the incremental opinion protocol
+    private final RefreshSchedule refresh = new RefreshSchedule();
+
     @Override
     public void initialize(Object... parameters) {
         agents = new ArrayList<Integer>();
         partners = new ArrayList<Integer>();
         capabilities = new LinkedHashMap<Integer, Double>();
+        capabilityVersion++;
         dms = null;
         time = 0;
+        refresh.reset();
 
         // extract number of agents and services
         int numAgents = Utils.extractParameter(VAL_SIZE, 0, parameters);
@@ -134,14 +141,49 @@ public class Transitive extends AbstractScenario implements Scenario {
 
     @Override
     public List<Opinion> generateOpinions() {
+        return generateOpinions(false);
+    }
+
+    @Override
+    public List<Opinion> generateOpinionDeltas() {
+        refresh.update(capabilityVersion);
+        return generateOpinions(true);
+    }
+
+    @Override
+    public void setOpinionRefresh(int period, double probability) {
+        refresh.set(period, probability);
+    }
+
+    @Override
+    public int getRefreshPeriod() {
+        return refresh.getPeriod();
+    }
+
+    @Override
+    public double getRefreshProbability() {
+        return refresh.getProbability();
+    }
+
+    /**
+     * Generates opinions of all pairs that are not silent or, if deltas are
+     * requested, only of those that are new or due for a refresh. Due targets
+     * of every reporter are enumerated directly (see {@link RefreshSchedule}).
+     *
+     * @param deltas True to generate only new and refreshed opinions
+     * @return List of opinions
+     */
+    private List<Opinion> generateOpinions(boolean deltas) {
         final List<Opinion> opinions = new ArrayList<Opinion>();
+        final boolean all = !deltas || refresh.isAll();
+        final int step = all ? 1 : refresh.getPeriod();
 
         Opinion opinion = null;
         double cap, itd;
 
         for (int a1 : agents) {
-            for (int a2 : agents) {
-                if (dms[a1][a2] != null) {
+            for (int a2 = all ? 0 : refresh.first(time, a1); a2 < agents.size(); a2 += step) {
+                if (dms[a1][a2] != null && (all || refresh.draw(generator))) {
                     // get capability
                     cap = capabilities.get(a2);
 
@@ -156,6 +198,9 @@ public class Transitive extends AbstractScenario implements Scenario {
             }
         }
 
+        if (deltas)
+            refresh.reported();
+
         return opinions;
     }
 
@@ -304,6 +349,37 @@ public class Transitive extends AbstractScenario implements Scenario {
         return SERVICES;
     }
 
+    /**
+     * Estimates the footprint, including opinions that are generated in a
+     * single tick, for the case in which every agent reports about every other
+     * agent.
+     */
+    @Override
+    public long estimateRetainedBytes(int agents, int services) {
+        final long n = agents;
+        return 2 * MemorySizes.list(n, MemorySizes.BOXED_INT)
+                + MemorySizes.map(n) + n * MemorySizes.BOXED_DOUBLE
+                + MemorySizes.array(n, MemorySizes.REFERENCE) + n
+                * MemorySizes.array(n, MemorySizes.REFERENCE)
+                + MemorySizes.list(n * n, MemorySizes.OPINION);
+    }
+
+    @Override
+    public long getRetainedBytes() {
+        long reports = 0;
+
+        for (DeceptionModel[] row : dms)
+            for (DeceptionModel dm : row)
+                if (null != dm)
+                    reports += 1;
+
+        return MemorySizes.list(agents.size(), MemorySizes.BOXED_INT)
+                + MemorySizes.list(partners.size(), MemorySizes.BOXED_INT)
+                + MemorySizes.map(capabilities.size()) + capabilities.size()
+                * MemorySizes.BOXED_DOUBLE + MemorySizes.deep(dms)
+                + MemorySizes.list(reports, MemorySizes.OPINION);
+    }
+
     @Override
     public ParametersPanel getParametersPanel() {
         return new TransitiveGUI();
@@ -66,6 +66,15 @@ public class TransitiveOpinionProviderSelection
         return opinions;
     }
 
+    /**
+     * Returns all requested opinions, since the trust model decides which
+     * opinions it needs at every step.
+     */
+    @Override
+    public List<Opinion> generateOpinionDeltas() {
+        return generateOpinions();
+    }
+
     @Override
     public String toString() {
         return "Transitive with opinion provider selection";
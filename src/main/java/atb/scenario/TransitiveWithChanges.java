@@ -85,6 +85,8 @@ public class TransitiveWithChanges extends Transitive {
                 counter += 1;
             }
 
+            capabilityVersion++;
+
             // reassign deception models
             dms = assignDeceptionModels(agents, capabilities, opDens);
 
@@ -10,10 +10,14 @@
  */
 package atb.trustmodel;
 
+import atb.common.MemorySizes;
 import atb.interfaces.Experience;
+import atb.interfaces.IncrementalOpinions;
+import atb.interfaces.MemoryFootprint;
 import atb.interfaces.Opinion;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -30,7 +34,8 @@ import static atb.trustmodel.TD.*;
  *
  * @author David
  */
-public class AbdulRahmanHailes extends AbstractTrustModel<TD> {
+public class AbdulRahmanHailes extends AbstractTrustModel<TD> implements
+        MemoryFootprint, IncrementalOpinions {
 
     /**
      * Direct trust
@@ -42,16 +47,30 @@ public class AbdulRahmanHailes extends AbstractTrustModel<TD> {
     /**
      * Trusted recommender agents
      * <p>
-     * R[Agent][Service][TrustDegree] => {Semantic differences}
+     * R[Agent][Service][TrustDegree][Semantic difference + 3] => Frequency
      */
-    private ArrayList<Integer>[][][] R;
+    private int[][][][] R;
+
+    /**
+     * Semantic differences of recommender agents over all trust degrees
+     * <p>
+     * RU[Agent][Service][Semantic difference + 3] => Frequency
+     */
+    private int[][][] RU;
 
     /**
      * Received recommendations
      * <p>
-     * REC[Agent][Agent][Service] => TrustDegree
+     * REC(Agent, Agent)[Service] => TrustDegree
+     */
+    private AgentMatrix<TD[]> REC;
+
+    /**
+     * Recommenders of agents
+     * <p>
+     * RECOMMENDERS[Service] => index of recommenders by agents
      */
-    private TD[][][] REC;
+    private ReverseOpinionIndex[] RECOMMENDERS;
 
     /**
      * Returns the weight for given RTD. (See Table 3 in the paper.)
@@ -88,9 +107,49 @@ public class AbdulRahmanHailes extends AbstractTrustModel<TD> {
      * @return The mode of the list
      */
     public static int modeSD(ArrayList<Integer> list) {
-        if (list.isEmpty())
-            return 0; // my add-on
+        return modeSD(histogram(list));
+    }
 
+    /**
+     * Returns the mode from a histogram of semantic distances, in which index
+     * i holds the frequency of distance i - 3. The result is the same as that
+     * of {@link #modeSD(ArrayList)} for the list that the histogram was built
+     * from.
+     *
+     * @param vect Histogram of 7 frequencies
+     * @return The mode of the histogram
+     */
+    public static int modeSD(int[] vect) {
+        // find the mode in vector
+        int index = -1, max = 0;
+        boolean multiModal = false;
+
+        for (int i = 0; i < vect.length; i++) {
+            if (vect[i] > max) {
+                index = i;
+                max = vect[i];
+                multiModal = false;
+            } else if (vect[i] == max) {
+                multiModal = true;
+            }
+        }
+
+        // empty histogram -- my add-on
+        if (max == 0)
+            return 0;
+
+        return (multiModal ? 0 : index - 3);
+    }
+
+    /**
+     * Returns a histogram of semantic distances from the given list. The
+     * values in the list must be within [-3, 3] or an
+     * {@link IllegalArgumentException} is thrown.
+     *
+     * @param list List of values
+     * @return Histogram in which index i holds the frequency of value i - 3
+     */
+    public static int[] histogram(ArrayList<Integer> list) {
         // construct vector of frequencies
         int[] vect = new int[7];
         int value;
@@ -108,21 +167,7 @@ public class AbdulRahmanHailes extends AbstractTrustModel<TD> {
             vect[value + 3] += 1;
         }
 
-        // find the mode in vector
-        int index = -1, max = 0;
-        boolean multiModal = false;
-
-        for (int i = 0; i < vect.length; i++) {
-            if (vect[i] > max) {
-                index = i;
-                max = vect[i];
-                multiModal = false;
-            } else if (vect[i] == max) {
-                multiModal = true;
-            }
-        }
-
-        return (multiModal ? 0 : index - 3);
+        return vect;
     }
 
     /**
@@ -141,24 +186,32 @@ public class AbdulRahmanHailes extends AbstractTrustModel<TD> {
      * @return The mode value of the list.
      */
     public static int modeSDAbs(ArrayList<Integer> list) {
-        if (list.isEmpty())
-            return -1;
+        return modeSDAbs(histogram(list));
+    }
 
+    /**
+     * Returns a value that corresponds to the mode of absolute values in a
+     * histogram of semantic distances, in which index i holds the frequency of
+     * distance i - 3. The result is the same as that of
+     * {@link #modeSDAbs(ArrayList)} for the list that the histogram was built
+     * from.
+     *
+     * @param vect Histogram of 7 frequencies
+     * @return The mode value of the histogram, or -1 if it is empty
+     */
+    public static int modeSDAbs(int[] vect) {
         // construct statistical vector of absolute values
         int[] absVector = new int[4];
-        int value;
+        int total = 0;
 
-        for (int i = 0; i < list.size(); i++) {
-            value = Math.abs(list.get(i));
-
-            if (value > 3)
-                throw new IllegalArgumentException(String.format(
-                        "Invalid value %d. Should be within [-3, 3].",
-                        list.get(i)));
-
-            absVector[value] += 1;
+        for (int i = 0; i < vect.length; i++) {
+            absVector[Math.abs(i - 3)] += vect[i];
+            total += vect[i];
         }
 
+        if (total == 0)
+            return -1;
+
         // find mode of the statistical vector
         int max = 0, iMax = -1;
         for (int i = 0; i < absVector.length; i++) {
@@ -202,31 +255,43 @@ public class AbdulRahmanHailes extends AbstractTrustModel<TD> {
         return (max == 0 ? null : fromIndex(index));
     }
 
-    @SuppressWarnings("unchecked")
     @Override
     public void initialize(Object... params) {
+        invalidateTrust();
         Q = new int[1][1][values().length];
-        REC = new TD[1][1][1];
+        REC = new AgentMatrix<TD[]>();
+        REC.ensureSize(1);
+        RECOMMENDERS = new ReverseOpinionIndex[]{new ReverseOpinionIndex()};
 
-        R = (ArrayList<Integer>[][][]) new ArrayList[1][1][values().length];
-
-        for (int i = 0; i < R.length; i++)
-            for (int j = 0; j < R[i].length; j++)
-                for (int k = 0; k < R[i][j].length; k++)
-                    R[i][j][k] = new ArrayList<Integer>();
+        R = new int[1][1][values().length][7];
+        RU = new int[1][1][7];
     }
 
     @Override
     public void processOpinions(List<Opinion> opinions) {
+        invalidateTrust();
         expandArrays(null, opinions);
 
-        for (Opinion o : opinions)
-            REC[o.agent1][o.agent2][o.service] = TD
-                    .fromDouble(o.internalTrustDegree);
+        for (Opinion o : opinions) {
+            TD[] recommendations = REC.get(o.agent1, o.agent2);
+
+            if (null == recommendations || o.service >= recommendations.length) {
+                recommendations = null == recommendations
+                        ? new TD[RECOMMENDERS.length]
+                        : Arrays.copyOf(recommendations, RECOMMENDERS.length);
+                REC.set(o.agent1, o.agent2, recommendations);
+            }
+
+            if (null == recommendations[o.service])
+                RECOMMENDERS[o.service].add(o.agent2, o.agent1);
+
+            recommendations[o.service] = TD.fromDouble(o.internalTrustDegree);
+        }
     }
 
     @Override
     public void processExperiences(List<Experience> experiences) {
+        invalidateTrust();
         expandArrays(experiences, null);
 
         for (Experience e : experiences) {
@@ -235,16 +300,23 @@ public class AbdulRahmanHailes extends AbstractTrustModel<TD> {
             Q[e.agent][e.service][actual.ordinal()] += 1;
 
             // compare new experience with so far obtained opinions
-            for (int recommender = 0; recommender < REC.length; recommender++) {
-                if (REC[recommender][e.agent][e.service] != null) {
-                    // obtain the recommended value
-                    final TD recommended = REC[recommender][e.agent][e.service];
+            final ReverseOpinionIndex index = RECOMMENDERS[e.service];
+            final int[] recommenders = index.getReporters(e.agent);
+
+            for (int i = 0; i < index.size(e.agent); i++) {
+                final int recommender = recommenders[i];
 
+                // obtain the recommended value
+                final TD recommended = recommendation(recommender, e.agent,
+                        e.service);
+
+                if (recommended != null) {
                     // compute the difference between recommended and actual
                     final int diff = recommended.ordinal() - actual.ordinal();
 
                     // record the difference
-                    R[recommender][e.service][recommended.ordinal()].add(diff);
+                    R[recommender][e.service][recommended.ordinal()][diff + 3] += 1;
+                    RU[recommender][e.service][diff + 3] += 1;
                 }
             }
         }
@@ -252,13 +324,14 @@ public class AbdulRahmanHailes extends AbstractTrustModel<TD> {
 
     @Override
     public void calculateTrust() {
-        // later, dude.
+        invalidateTrust();
     }
 
     @Override
-    public Map<Integer, TD> getTrust(int service) {
+    protected Map<Integer, TD> computeTrust(int service) {
         final Map<Integer, TD> trust = new HashMap<Integer, TD>();
-        final ArrayList<Integer> union = new ArrayList<Integer>();
+        final ReverseOpinionIndex index = service < RECOMMENDERS.length
+                ? RECOMMENDERS[service] : new ReverseOpinionIndex();
 
         for (int agent = 0; agent < Q.length; agent++) {
             // mode from experiences
@@ -271,17 +344,16 @@ public class AbdulRahmanHailes extends AbstractTrustModel<TD> {
                 // if no experience exist, compute from recommendations
                 final int[] opinions = new int[4];
 
-                for (int recommender = 0; recommender < REC.length; recommender++) {
-                    final TD recommended = REC[recommender][agent][service];
+                final int[] recommenders = index.getReporters(agent);
+
+                for (int i = 0; i < index.size(agent); i++) {
+                    final int recommender = recommenders[i];
+                    final TD recommended = recommendation(recommender,
+                            agent, service);
 
                     if (recommended != null) {
                         // compute RTD
-                        union.clear();
-
-                        for (int j = 0; j < R[recommender][service].length; j++)
-                            union.addAll(R[recommender][service][j]);
-
-                        final int rtd = modeSDAbs(union);
+                        final int rtd = modeSDAbs(RU[recommender][service]);
 
                         // compute weight from RTD
                         final int weight = getWeight(rtd);
@@ -310,9 +382,27 @@ public class AbdulRahmanHailes extends AbstractTrustModel<TD> {
         return trust;
     }
 
+    /**
+     * Returns the trust degree that the recommender gave about the agent for
+     * the given service.
+     *
+     * @param recommender Recommender
+     * @param agent       Agent
+     * @param service     Service
+     * @return Trust degree or null, if there is no recommendation
+     */
+    private TD recommendation(int recommender, int agent, int service) {
+        final TD[] recommendations = REC.get(recommender, agent);
+
+        if (null == recommendations || service >= recommendations.length)
+            return null;
+
+        return recommendations[service];
+    }
+
     @Override
     public void setCurrentTime(int time) {
-
+        invalidateTrust();
     }
 
     /**
@@ -350,47 +440,106 @@ public class AbdulRahmanHailes extends AbstractTrustModel<TD> {
         }
 
         if (maxAgent > Q.length - 1 || maxService > Q[0].length - 1) {
-            // resize Q
-            int[][][] newQ = new int[maxAgent + 1][maxService
-                    + 1][values().length];
+            final int agents = maxAgent + 1;
+            final int services = maxService + 1;
+
+            // existing histograms are kept; only missing ones are allocated
+            Q = Arrays.copyOf(Q, agents);
+            R = Arrays.copyOf(R, agents);
+            RU = Arrays.copyOf(RU, agents);
+
+            for (int a = 0; a < agents; a++) {
+                Q[a] = expandServices(Q[a], services, values().length);
+                RU[a] = expandServices(RU[a], services, 7);
+
+                if (null == R[a] || R[a].length < services) {
+                    final int[][][] newR = null == R[a] ? new int[services][][]
+                            : Arrays.copyOf(R[a], services);
+
+                    for (int s = 0; s < services; s++)
+                        if (null == newR[s])
+                            newR[s] = new int[values().length][7];
+
+                    R[a] = newR;
+                }
+            }
 
-            for (int a = 0; a < Q.length; a++)
-                for (int s = 0; s < Q[a].length; s++)
-                    System.arraycopy(Q[a][s], 0, newQ[a][s], 0, Q[a][s].length);
+            // recommendations grow by rows on demand
+            REC.ensureSize(agents);
 
-            Q = newQ;
+            // add indexes of recommenders for new services
+            final int indexed = RECOMMENDERS.length;
+            RECOMMENDERS = Arrays.copyOf(RECOMMENDERS, services);
 
-            // resize REC
-            TD[][][] newREC = new TD[maxAgent + 1][maxAgent + 1][maxService
-                    + 1];
+            for (int s = indexed; s < RECOMMENDERS.length; s++)
+                RECOMMENDERS[s] = new ReverseOpinionIndex();
+        }
+    }
 
-            for (int a1 = 0; a1 < REC.length; a1++)
-                for (int a2 = 0; a2 < REC[a1].length; a2++)
-                    System.arraycopy(REC[a1][a2], 0, newREC[a1][a2], 0,
-                            REC[a1][a2].length);
+    /**
+     * Returns the given per-service histograms, if they cover all services,
+     * or their copy with empty histograms for new services otherwise.
+     *
+     * @param histograms Histograms by services or null
+     * @param services   Number of services
+     * @param length     Length of a single histogram
+     * @return Histograms by services
+     */
+    private static int[][] expandServices(int[][] histograms, int services,
+                                          int length) {
+        if (null != histograms && histograms.length >= services)
+            return histograms;
 
-            REC = newREC;
+        final int[][] expanded = null == histograms ? new int[services][]
+                : Arrays.copyOf(histograms, services);
 
-            // resize R
+        for (int s = 0; s < services; s++)
+            if (null == expanded[s])
+                expanded[s] = new int[length];
 
-            @SuppressWarnings("unchecked")
-            ArrayList<Integer>[][][] newR = (ArrayList<Integer>[][][]) new ArrayList[maxAgent
-                    + 1][maxService + 1][TD.values().length];
+        return expanded;
+    }
 
-            // copy existing
-            for (int i = 0; i < R.length; i++)
-                for (int j = 0; j < R[i].length; j++)
-                    System.arraycopy(R[i][j], 0, newR[i][j], 0, R[i][j].length);
+    @Override
+    public long estimateRetainedBytes(int agents, int services) {
+        final int degrees = values().length;
+        final int ref = MemorySizes.REFERENCE;
+
+        // histograms of an agent for a single service in Q, R and RU
+        final long histograms = MemorySizes.array(degrees, 4)
+                + MemorySizes.array(degrees, ref) + degrees
+                * MemorySizes.array(7, 4) + MemorySizes.array(7, 4);
+        final long direct = 3 * MemorySizes.array(agents, ref) + agents
+                * (3 * MemorySizes.array(services, ref) + services * histograms);
+
+        // rows of recommendations and lists of recommenders grow
+        // geometrically, so they may be up to twice as long as needed
+        final int capacity = 2 * agents;
+
+        // a recommendation of every agent about every other agent
+        final long recommendations = MemorySizes.array(capacity, ref) + agents
+                * (MemorySizes.array(capacity, ref) + agents
+                * MemorySizes.array(services, ref));
+
+        // recommenders of every agent for every service
+        final long recommenders = MemorySizes.array(services, ref) + services
+                * (MemorySizes.object(2 * ref) + MemorySizes.array(capacity, ref)
+                + MemorySizes.array(capacity, 4) + agents
+                * MemorySizes.array(capacity, 4));
+
+        return direct + recommendations + recommenders;
+    }
 
-            // initialize for new values
-            for (int i = 0; i < newR.length; i++)
-                for (int j = 0; j < newR[i].length; j++)
-                    for (int k = 0; k < newR[i][j].length; k++)
-                        if (newR[i][j][k] == null)
-                            newR[i][j][k] = new ArrayList<Integer>();
+    @Override
+    public long getRetainedBytes() {
+        long bytes = MemorySizes.deep(Q) + MemorySizes.deep(R)
+                + MemorySizes.deep(RU) + REC.retainedBytes()
+                + MemorySizes.array(RECOMMENDERS.length, MemorySizes.REFERENCE);
 
-            R = newR;
-        }
+        for (ReverseOpinionIndex index : RECOMMENDERS)
+            bytes += index.retainedBytes();
+
+        return bytes;
     }
 
     @Override
@@ -400,11 +549,11 @@ public class AbdulRahmanHailes extends AbstractTrustModel<TD> {
 
     @Override
     public void setAgents(List<Integer> agents) {
-
+        invalidateTrust();
     }
 
     @Override
     public void setServices(List<Integer> services) {
-
+        invalidateTrust();
     }
 }
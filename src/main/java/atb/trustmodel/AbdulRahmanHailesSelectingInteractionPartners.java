@@ -43,6 +43,7 @@ public class AbdulRahmanHailesSelectingInteractionPartners
     @Override
     public void setCurrentTime(int time) {
         this.time = time;
+        invalidateTrust();
     }
 
     @Override
@@ -14,9 +14,20 @@ import atb.interfaces.ParametersPanel;
 import atb.interfaces.RandomGenerator;
 import atb.interfaces.TrustModel;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * A template class for implementing {@link TrustModel} interfaces. It provides
  * default implementations to a couple of basic methods.
+ * <p>
+ * Computed trust is kept in immutable per-service snapshots. A snapshot is
+ * computed with {@link #computeTrust(int)} on the first call to
+ * {@link #getTrust(int)} after the inputs of the model changed, and then
+ * returned by all subsequent calls, so the evaluation protocol, metrics and
+ * partner selection can request trust as often as they need. Trust models
+ * call {@link #invalidateTrust()} whenever they receive new inputs.
  *
  * @param <T> The data type in which the trust model conveys trust
  * @author David
@@ -26,6 +37,40 @@ public abstract class AbstractTrustModel<T extends Comparable<T>>
 
     protected RandomGenerator generator;
 
+    // trust snapshots by services; discarded whenever the inputs change
+    private final Map<Integer, Map<Integer, T>> snapshots = new HashMap<Integer, Map<Integer, T>>();
+
+    @Override
+    public Map<Integer, T> getTrust(int service) {
+        Map<Integer, T> snapshot = snapshots.get(service);
+
+        if (null == snapshot) {
+            snapshot = Collections.unmodifiableMap(computeTrust(service));
+            snapshots.put(service, snapshot);
+        }
+
+        return snapshot;
+    }
+
+    /**
+     * Computes trust for the given service from the current inputs of the
+     * model. The computation must not change the trust that the model would
+     * compute next, that is, it must have no observable side effects.
+     *
+     * @param service Type of service
+     * @return Map where keys represent agents and values computed trust values
+     */
+    protected abstract Map<Integer, T> computeTrust(int service);
+
+    /**
+     * Discards computed trust snapshots. Trust models call this method when
+     * they receive time, agents, services, opinions or experiences, and when
+     * they calculate trust.
+     */
+    protected void invalidateTrust() {
+        snapshots.clear();
+    }
+
     @Override
     public void setRandomGenerator(RandomGenerator generator) {
         this.generator = generator;
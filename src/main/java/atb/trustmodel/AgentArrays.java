@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2013 David Jelenc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     David Jelenc - initial API and implementation
+ */
+package atb.trustmodel;
+
+import java.util.Arrays;
+
+/**
+ * Helpers for agent-indexed arrays that grow geometrically.
+ * <p>
+ * When an array has to hold an index beyond its length, it is replaced by a
+ * copy whose length grows by a half, so that adding agents one by one costs
+ * amortized constant time per agent. New cells are set to the given fill
+ * value.
+ *
+ * @author David
+ */
+public final class AgentArrays {
+
+    private AgentArrays() {
+    }
+
+    /**
+     * Returns the capacity of an array that currently has the given length
+     * and has to hold at least the required number of elements.
+     *
+     * @param length   Current length
+     * @param required Required length
+     * @return New length
+     */
+    public static int capacity(int length, int required) {
+        if (required <= length)
+            return length;
+
+        return Math.max(required, length + (length >> 1) + 1);
+    }
+
+    /**
+     * Returns the given array, if it can hold the given index, or its
+     * geometrically grown copy otherwise.
+     *
+     * @param array Array
+     * @param index Index to hold
+     * @param fill  Value of new cells
+     * @return Array whose length is greater than index
+     */
+    public static byte[] ensureIndex(byte[] array, int index, byte fill) {
+        if (index < array.length)
+            return array;
+
+        final int length = array.length;
+        final byte[] grown = Arrays.copyOf(array, capacity(length, index + 1));
+        Arrays.fill(grown, length, grown.length, fill);
+        return grown;
+    }
+
+    /**
+     * Returns the given array, if it can hold the given index, or its
+     * geometrically grown copy otherwise.
+     *
+     * @param array Array
+     * @param index Index to hold
+     * @param fill  Value of new cells
+     * @return Array whose length is greater than index
+     */
+    public static int[] ensureIndex(int[] array, int index, int fill) {
+        if (index < array.length)
+            return array;
+
+        final int length = array.length;
+        final int[] grown = Arrays.copyOf(array, capacity(length, index + 1));
+        Arrays.fill(grown, length, grown.length, fill);
+        return grown;
+    }
+
+    /**
+     * Returns the given array, if it can hold the given index, or its
+     * geometrically grown copy otherwise.
+     *
+     * @param array Array
+     * @param index Index to hold
+     * @param fill  Value of new cells
+     * @return Array whose length is greater than index
+     */
+    public static double[] ensureIndex(double[] array, int index, double fill) {
+        if (index < array.length)
+            return array;
+
+        final int length = array.length;
+        final double[] grown = Arrays.copyOf(array, capacity(length, index + 1));
+        Arrays.fill(grown, length, grown.length, fill);
+        return grown;
+    }
+
+    /**
+     * Returns the given array, if it can hold the given index, or its
+     * geometrically grown copy otherwise. New cells are null.
+     *
+     * @param array Array
+     * @param index Index to hold
+     * @return Array whose length is greater than index
+     */
+    public static <T> T[] ensureIndex(T[] array, int index) {
+        if (index < array.length)
+            return array;
+
+        return Arrays.copyOf(array, capacity(array.length, index + 1));
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2013 David Jelenc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     David Jelenc - initial API and implementation
+ */
+package atb.trustmodel;
+
+import atb.common.MemorySizes;
+
+/**
+ * A square matrix indexed by agents that grows without copying its contents.
+ * <p>
+ * Each row is a separate array that is allocated on the first write and grows
+ * geometrically (see {@link AgentArrays}) only when a write falls beyond its
+ * length; cells that were never written read as null. Enlarging the matrix
+ * therefore copies only the array of rows, which makes the growth of the
+ * population cost amortized constant time per new agent instead of a copy of
+ * the whole matrix.
+ *
+ * @param <T> Type of cells
+ * @author David
+ */
+public final class AgentMatrix<T> {
+    private static final String MSG_INDEX = "Index (%d, %d) is out of bounds for size %d";
+    private static final Object[] EMPTY = new Object[0];
+
+    private Object[][] rows = new Object[0][];
+    private int size;
+
+    /**
+     * Returns the number of agents, that is the number of rows and columns.
+     *
+     * @return Size of the matrix
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Enlarges the matrix so that it holds at least the given number of
+     * agents. The matrix never shrinks.
+     *
+     * @param size Number of agents
+     */
+    public void ensureSize(int size) {
+        if (size > this.size) {
+            rows = AgentArrays.ensureIndex(rows, size - 1);
+            this.size = size;
+        }
+    }
+
+    /**
+     * Returns the cell in the given row and column.
+     *
+     * @param row    Row
+     * @param column Column
+     * @return Value of the cell or null, if the cell was never set
+     */
+    @SuppressWarnings("unchecked")
+    public T get(int row, int column) {
+        checkIndex(row, column);
+
+        final Object[] cells = rows[row];
+
+        if (null == cells || column >= cells.length)
+            return null;
+
+        return (T) cells[column];
+    }
+
+    /**
+     * Sets the cell in the given row and column.
+     *
+     * @param row    Row
+     * @param column Column
+     * @param value  New value of the cell
+     * @return Previous value of the cell or null
+     */
+    public T set(int row, int column, T value) {
+        final T previous = get(row, column);
+
+        if (null != previous || null != value) {
+            final Object[] cells = null == rows[row] ? EMPTY : rows[row];
+            rows[row] = AgentArrays.ensureIndex(cells, column);
+            rows[row][column] = value;
+        }
+
+        return previous;
+    }
+
+    /**
+     * Returns the approximate number of bytes that the matrix retains. Cells
+     * that are arrays are included; other cells count as references only.
+     *
+     * @return Number of bytes
+     */
+    public long retainedBytes() {
+        return MemorySizes.object(2 * 4) + MemorySizes.deep(rows);
+    }
+
+    private void checkIndex(int row, int column) {
+        if (row < 0 || column < 0 || row >= size || column >= size)
+            throw new IndexOutOfBoundsException(String.format(MSG_INDEX, row,
+                    column, size));
+    }
+}
@@ -11,13 +11,19 @@
 package atb.trustmodel;
 
 import org.apache.commons.math3.distribution.BetaDistribution;
+import atb.common.AgentParallel;
+import atb.common.MemorySizes;
 import atb.common.Utils;
 import atb.interfaces.Experience;
+import atb.interfaces.IncrementalOpinions;
+import atb.interfaces.MemoryFootprint;
 import atb.interfaces.Opinion;
 import atb.interfaces.ParameterCondition;
 import atb.interfaces.ParametersPanel;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -29,12 +35,24 @@ import java.util.Map;
  * "Filtering out unfair ratings in bayesian reputation systems." Proc. 7th Int.
  * Workshop on Trust in Agent Societies. 2004.</b>
  * <p>
- * Note. This model is implemented very inefficiently. The implementation should
- * be optimized.
+ * Implementation notes
+ * <ul>
+ * <li>Quantiles of a rater's Beta distribution do not depend on the current
+ * reputation, so they are computed once per rater and agent. Quantiles for
+ * integer parameters (as obtained from undiscounted or fully discounted
+ * opinions with an integer FACTOR) are stored in a table.
+ * <li>Ratings are read from the column of the agent in the opinion store, and
+ * the sums of ratings are updated as liars are removed.
+ * <li>Ratings of agents are filtered in parallel (see
+ * {@link #setParallel(AgentParallel)}). Before agents are processed, the
+ * missing quantiles of all ratings are stored into the table sequentially,
+ * so that parallel filtering only reads it.
+ * </ul>
  *
  * @author David
  */
-public class BRSWithFiltering extends AbstractTrustModel<Double> {
+public class BRSWithFiltering extends AbstractTrustModel<Double> implements
+        IncrementalOpinions, MemoryFootprint, AgentParallel.Holder {
 
     /**
      * Factor to scale opinions with (it can be larger than with TRAVOS because
@@ -42,22 +60,33 @@ public class BRSWithFiltering extends AbstractTrustModel<Double> {
      */
     public static double FACTOR = 10;
     private static double Q = 0.01;
+    // parameters below this limit have their quantiles stored in a table
+    private static final int QUANTILES_LIMIT = 64;
     // aging factors for experiences and opinions
     public double lambdaEx = 1;
     public double lambdaOp = 0;
     // experiences
     public Map<Integer, ArrayList<Experience>> experiences = null;
-    public Opinion[][] opinions = null;
+    // latest opinions of raters
+    public OpinionStore opinions = null;
     private int time = 0;
+    // one more than the largest known agent
+    private int agents = 0;
     // temporary storage for experiences and opinions
     private List<Experience> exps;
     private List<Opinion> ops;
+    // table of lower and upper quantiles for integer parameters
+    private double[] quantiles = new double[0];
+    // filters ratings of agents in parallel
+    protected AgentParallel parallel = new AgentParallel();
 
     @Override
     public void initialize(Object... params) {
+        invalidateTrust();
         time = 0;
         experiences = new LinkedHashMap<Integer, ArrayList<Experience>>();
-        opinions = new Opinion[0][0];
+        opinions = new OpinionStore();
+        agents = 0;
 
         final ParameterCondition<Double> valLambda = new ParameterCondition<Double>() {
             @Override
@@ -96,30 +125,36 @@ public class BRSWithFiltering extends AbstractTrustModel<Double> {
 
         exps = null;
         ops = null;
+
+        quantiles = new double[2 * QUANTILES_LIMIT * QUANTILES_LIMIT];
+        Arrays.fill(quantiles, Double.NaN);
     }
 
     @Override
     public void setCurrentTime(int time) {
+        invalidateTrust();
         this.time = time;
     }
 
     @Override
     public void processExperiences(List<Experience> experiences) {
+        invalidateTrust();
         this.exps = experiences;
     }
 
     @Override
     public void processOpinions(List<Opinion> opinions) {
+        invalidateTrust();
         this.ops = opinions;
     }
 
     @Override
     public void calculateTrust() {
-        // make room for new values
-        expandArrays(exps, ops);
-
+        invalidateTrust();
         // store experiences
         for (Experience e : exps) {
+            agents = Math.max(agents, e.agent + 1);
+
             ArrayList<Experience> list = experiences.get(e.agent);
 
             if (null == list) {
@@ -132,21 +167,43 @@ public class BRSWithFiltering extends AbstractTrustModel<Double> {
         }
 
         // store opinions
-        for (Opinion o : ops)
-            opinions[o.agent1][o.agent2] = o;
+        for (Opinion o : ops) {
+            agents = Math.max(agents, Math.max(o.agent1, o.agent2) + 1);
+            opinions.put(o.agent1, o.agent2, o.internalTrustDegree, o.time);
+        }
     }
 
+    /**
+     * Sets how ratings of agents are filtered in parallel. Defaults to a new
+     * {@link AgentParallel}.
+     *
+     * @param parallel Parallel execution of agents
+     */
     @Override
-    public Map<Integer, Double> getTrust(int service) {
+    public void setParallel(AgentParallel parallel) {
+        this.parallel = parallel;
+    }
+
+    @Override
+    protected Map<Integer, Double> computeTrust(int service) {
         final Map<Integer, BRSPair> experienceTrust = computeExperiences();
-        final Map<Integer, Double> trust = new LinkedHashMap<Integer, Double>();
+        final double[] reputations = new double[agents];
 
-        for (int agent = 0; agent < opinions.length; agent++) {
-            final double reputation = filterRatings(agent, experienceTrust);
+        storeQuantiles();
 
-            if (!Double.isInfinite(reputation))
-                trust.put(agent, reputation);
-        }
+        parallel.forEach(reputations.length, new AgentParallel.Block() {
+            @Override
+            public void compute(int from, int to) {
+                for (int agent = from; agent < to; agent++)
+                    reputations[agent] = filterRatings(agent, experienceTrust);
+            }
+        });
+
+        final Map<Integer, Double> trust = new LinkedHashMap<Integer, Double>();
+
+        for (int agent = 0; agent < reputations.length; agent++)
+            if (!Double.isInfinite(reputations[agent]))
+                trust.put(agent, reputations[agent]);
 
         return trust;
     }
@@ -168,64 +225,72 @@ public class BRSWithFiltering extends AbstractTrustModel<Double> {
      */
     public double filterRatings(int agent,
                                 Map<Integer, BRSPair> experienceTrust) {
-        List<Integer> allRaters = new ArrayList<Integer>();
         double reputation = Double.NEGATIVE_INFINITY;
 
-        // find all raters
-        for (int rater = 0; rater < opinions.length; rater++)
-            if (null != opinions[rater][agent])
-                allRaters.add(rater);
+        // raters are the reporters of opinions in the column of the agent
+        final int numRaters = opinions.size(agent);
 
-        int numRatersPrevious = 0;
+        if (0 == numRaters)
+            return fromExperiences(agent, experienceTrust, reputation);
 
-        while (numRatersPrevious != allRaters.size()) {
-            numRatersPrevious = allRaters.size();
+        // ratings and quantiles of raters, indexed in the order of the column
+        final double[] ratingR = new double[numRaters];
+        final double[] ratingS = new double[numRaters];
+        final double[] lower = new double[numRaters];
+        final double[] upper = new double[numRaters];
 
-            double r = 0, s = 0;
-
-            if (experienceTrust.containsKey(agent)) {
-                r += experienceTrust.get(agent).R;
-                s += experienceTrust.get(agent).S;
-            }
-
-            for (int rater : allRaters) {
-                final Opinion o = opinions[rater][agent];
-                final double discount = Math.pow(lambdaOp, time - o.time);
-                final double rater_r = Math
-                        .round(FACTOR * o.internalTrustDegree);
-                final double rater_s = FACTOR - rater_r;
+        double r = 0, s = 0;
 
-                r += rater_r * discount;
-                s += rater_s * discount;
-            }
+        if (experienceTrust.containsKey(agent)) {
+            r += experienceTrust.get(agent).R;
+            s += experienceTrust.get(agent).S;
+        }
 
-            reputation = (r + 1) / (r + s + 2);
+        final double[] itds = opinions.getTrustDegrees(agent);
+        final int[] times = opinions.getTimes(agent);
 
-            final List<Integer> liars = new ArrayList<Integer>();
+        for (int i = 0; i < numRaters; i++) {
+            final double discount = Math.pow(lambdaOp, time - times[i]);
+            final double rounded = Math.round(FACTOR * itds[i]);
 
-            for (int rater : allRaters) {
-                final Opinion o = opinions[rater][agent];
-                final double discount = Math.pow(lambdaOp, time - o.time);
-                final double rater_r = (Math
-                        .round(FACTOR * o.internalTrustDegree)) * discount;
-                final double rater_s = (FACTOR - rater_r) * discount;
+            ratingR[i] = rounded * discount;
+            ratingS[i] = (FACTOR - rounded) * discount;
+            r += ratingR[i];
+            s += ratingS[i];
 
-                final BetaDistribution beta = new BetaDistribution(1 + rater_r,
-                        1 + rater_s);
+            final double rater_r = rounded * discount;
+            final double rater_s = (FACTOR - rater_r) * discount;
+            quantiles(rater_r, rater_s, lower, upper, i);
+        }
 
-                final double l = beta.inverseCumulativeProbability(Q);
-                final double u = beta.inverseCumulativeProbability(1 - Q);
+        final BitSet liars = new BitSet(numRaters);
+        boolean changed = true;
 
-                if (l > reputation || u < reputation)
-                    liars.add(rater);
+        while (changed) {
+            reputation = (r + 1) / (r + s + 2);
+            changed = false;
+
+            // remove liars and their ratings
+            for (int i = liars.nextClearBit(0); i < numRaters; i = liars
+                    .nextClearBit(i + 1)) {
+                if (lower[i] > reputation || upper[i] < reputation) {
+                    liars.set(i);
+                    r -= ratingR[i];
+                    s -= ratingS[i];
+                    changed = true;
+                }
             }
-
-            // remove liars
-            for (Integer liar : liars)
-                allRaters.remove(liar);
         }
 
-        // if no-one but Alpha knows this agent
+        return fromExperiences(agent, experienceTrust, reputation);
+    }
+
+    /**
+     * Returns the given reputation or, if it is infinite (no-one but Alpha
+     * knows the agent), the reputation computed from experiences.
+     */
+    private double fromExperiences(int agent,
+                                   Map<Integer, BRSPair> experienceTrust, double reputation) {
         if (Double.isInfinite(reputation)
                 && experienceTrust.containsKey(agent)) {
             final BRSPair p = experienceTrust.get(agent);
@@ -235,6 +300,68 @@ public class BRSWithFiltering extends AbstractTrustModel<Double> {
         return reputation;
     }
 
+    /**
+     * Stores quantiles of all current ratings that are missing from the table
+     * into the table.
+     */
+    private void storeQuantiles() {
+        final double[] lower = new double[1], upper = new double[1];
+
+        for (int agent = 0; agent < agents; agent++) {
+            final double[] itds = opinions.getTrustDegrees(agent);
+            final int[] times = opinions.getTimes(agent);
+
+            for (int i = 0; i < opinions.size(agent); i++) {
+                final double discount = Math.pow(lambdaOp, time - times[i]);
+                final double rater_r = Math.round(FACTOR * itds[i]) * discount;
+                final double rater_s = (FACTOR - rater_r) * discount;
+                quantiles(rater_r, rater_s, lower, upper, 0);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of quantile pairs stored in the table.
+     *
+     * @return Number of stored pairs
+     */
+    int storedQuantiles() {
+        int stored = 0;
+
+        for (int cell = 0; cell < quantiles.length; cell += 2)
+            if (!Double.isNaN(quantiles[cell]))
+                stored += 1;
+
+        return stored;
+    }
+
+    /**
+     * Stores the lower (Q) and the upper (1 - Q) quantile of the Beta
+     * distribution with parameters 1 + r and 1 + s into given arrays.
+     * Computed quantiles with integer parameters are stored into the table.
+     */
+    private void quantiles(double r, double s, double[] lower, double[] upper,
+                           int i) {
+        final boolean tabled = r >= 0 && s >= 0 && r < QUANTILES_LIMIT
+                && s < QUANTILES_LIMIT && r == (int) r && s == (int) s;
+        final int cell = tabled ? 2 * ((int) r * QUANTILES_LIMIT + (int) s) : -1;
+
+        if (tabled && !Double.isNaN(quantiles[cell])) {
+            lower[i] = quantiles[cell];
+            upper[i] = quantiles[cell + 1];
+            return;
+        }
+
+        final BetaDistribution beta = new BetaDistribution(1 + r, 1 + s);
+        lower[i] = beta.inverseCumulativeProbability(Q);
+        upper[i] = beta.inverseCumulativeProbability(1 - Q);
+
+        if (tabled) {
+            quantiles[cell] = lower[i];
+            quantiles[cell + 1] = upper[i];
+        }
+    }
+
     /**
      * Returns a map of aggregated experience tuples. Keys represents agents and
      * their values represent an aggregated vector of their past interaction
@@ -272,33 +399,27 @@ public class BRSWithFiltering extends AbstractTrustModel<Double> {
     }
 
     /**
-     * Expands the supporting data structures, which contain data of past
-     * interactions and received opinions.
-     *
-     * @param exp Set of experiences
-     * @param ops Set of opinions
+     * Estimates the footprint when every agent reports about every other
+     * agent. All experiences are kept, so their number grows with the length
+     * of the run; the estimate counts a single experience with every agent.
      */
-    private void expandArrays(List<Experience> exp, List<Opinion> ops) {
-        final int limit = opinions.length - 1;
-        int max = limit;
-
-        for (Experience e : exp)
-            if (e.agent > max)
-                max = e.agent;
-
-        for (Opinion o : ops)
-            if (o.agent2 > max || o.agent1 > max)
-                max = Math.max(o.agent1, o.agent2);
-
-        if (max > limit) {
-            // copy opinions
-            Opinion[][] newOp = new Opinion[max + 1][max + 1];
-            for (int i = 0; i < opinions.length; i++)
-                System.arraycopy(opinions[i], 0, newOp[i], 0,
-                        opinions[i].length);
-
-            opinions = newOp;
-        }
+    @Override
+    public long estimateRetainedBytes(int agents, int services) {
+        return MemorySizes.map(agents) + agents
+                * MemorySizes.list(1, MemorySizes.EXPERIENCE)
+                + MemorySizes.array(2 * QUANTILES_LIMIT * QUANTILES_LIMIT, 8)
+                + OpinionStore.estimateBytes(agents);
+    }
+
+    @Override
+    public long getRetainedBytes() {
+        long bytes = MemorySizes.map(experiences.size())
+                + MemorySizes.deep(quantiles) + opinions.retainedBytes();
+
+        for (List<Experience> list : experiences.values())
+            bytes += MemorySizes.list(list.size(), MemorySizes.EXPERIENCE);
+
+        return bytes;
     }
 
     @Override
@@ -313,11 +434,11 @@ public class BRSWithFiltering extends AbstractTrustModel<Double> {
 
     @Override
     public void setAgents(List<Integer> agents) {
-
+        invalidateTrust();
     }
 
     @Override
     public void setServices(List<Integer> services) {
-
+        invalidateTrust();
     }
 }
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2013 David Jelenc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     David Jelenc - initial API and implementation
+ */
+package atb.trustmodel;
+
+import atb.common.MemorySizes;
+import cern.jet.stat.Probability;
+
+/**
+ * Integrals of the Beta probability density function with memoization.
+ * <p>
+ * Parameters of the Beta distribution are given as counts m and n (alpha is m
+ * + 1 and beta is n + 1). When both counts are integers below the limit, the
+ * integrals are stored in a table that holds a few integration intervals per
+ * pair of counts; other integrals are computed directly. The memory is thus
+ * bounded by the limit.
+ * <p>
+ * Instances are not thread-safe; every trust model should use its own.
+ *
+ * @author David
+ */
+public final class BetaIntegrals {
+    // number of integration intervals stored for a pair of counts
+    private static final int INTERVALS = 8;
+
+    private final int limit;
+    // triples (low, high, integral) for every pair of counts
+    private final double[][] table;
+    // number of stores into every cell; kept below twice the capacity
+    private final int[] sizes;
+
+    /**
+     * Creates a cache for counts below the given limit.
+     *
+     * @param limit Counts from 0 to limit - 1 are cached
+     */
+    public BetaIntegrals(int limit) {
+        if (limit < 1)
+            throw new IllegalArgumentException(String.format(
+                    "The limit must be positive, but was %d", limit));
+
+        this.limit = limit;
+        this.table = new double[limit * limit][];
+        this.sizes = new int[limit * limit];
+    }
+
+    /**
+     * Integrates the Beta probability density function with parameters alpha
+     * = m + 1 and beta = n + 1 between the given bounds. Bounds are clamped to
+     * [0, 1].
+     *
+     * @param m    For setting alpha
+     * @param n    For setting beta
+     * @param low  Lower integration bound
+     * @param high Higher integration bound
+     * @return The integral
+     */
+    public double integrate(double m, double n, double low, double high) {
+        low = Math.min(Math.max(0, low), 1);
+        high = Math.min(Math.max(0, high), 1);
+
+        if (m < 0 || n < 0 || m >= limit || n >= limit || m != (int) m
+                || n != (int) n)
+            return compute(m, n, low, high);
+
+        final int cell = (int) m * limit + (int) n;
+        double[] entries = table[cell];
+
+        if (null == entries) {
+            entries = new double[3 * INTERVALS];
+            table[cell] = entries;
+        }
+
+        final int size = Math.min(sizes[cell], INTERVALS);
+
+        for (int i = 0; i < 3 * size; i += 3)
+            if (entries[i] == low && entries[i + 1] == high)
+                return entries[i + 2];
+
+        // store; when full, replace entries in a round-robin fashion
+        final double integral = compute(m, n, low, high);
+        final int i = 3 * (sizes[cell] % INTERVALS);
+        entries[i] = low;
+        entries[i + 1] = high;
+        entries[i + 2] = integral;
+        sizes[cell] = (sizes[cell] + 1 < 2 * INTERVALS ? sizes[cell] + 1 : INTERVALS);
+
+        return integral;
+    }
+
+    /**
+     * Returns the approximate number of bytes that the cache retains.
+     *
+     * @return Number of bytes
+     */
+    public long retainedBytes() {
+        return MemorySizes.object(3 * 4) + MemorySizes.deep(table)
+                + MemorySizes.deep(sizes);
+    }
+
+    /**
+     * Returns the approximate number of bytes that a full cache for counts
+     * below the given limit retains.
+     *
+     * @param limit Counts from 0 to limit - 1 are cached
+     * @return Number of bytes
+     */
+    public static long maximalBytes(int limit) {
+        final long cells = (long) limit * limit;
+
+        return MemorySizes.object(3 * 4)
+                + MemorySizes.array(cells, MemorySizes.REFERENCE)
+                + MemorySizes.array(cells, 4) + cells
+                * MemorySizes.array(3 * INTERVALS, 8);
+    }
+
+    private static double compute(double m, double n, double low, double high) {
+        return Probability.beta(m + 1, n + 1, high)
+                - Probability.beta(m + 1, n + 1, low);
+    }
+}
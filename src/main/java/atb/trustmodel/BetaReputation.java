@@ -10,13 +10,19 @@
  */
 package atb.trustmodel;
 
+import atb.common.AgentParallel;
+import atb.common.MemorySizes;
 import atb.common.Utils;
 import atb.interfaces.Experience;
+import atb.interfaces.IncrementalOpinions;
+import atb.interfaces.MemoryFootprint;
 import atb.interfaces.Opinion;
 import atb.interfaces.ParameterCondition;
 import atb.interfaces.ParametersPanel;
+import atb.interfaces.PrimitiveTrustModel;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -27,13 +33,21 @@ import java.util.Map;
  * As presented in <a href="http://aisel.aisnet.org/bled2002/41">﻿Audun Jøsang
  * and Roslan Ismail. The beta reputation system. Proceedings of the 15th Bled
  * Electronic Commerce Conference (Vol. 160), 2002.</a>
+ * <p>
+ * Experiences with every agent are aggregated into a decayed (r, s) pair:
+ * when a new experience arrives, the pair is multiplied by the forgetting
+ * factor and the outcome is added. Raw experiences are kept only when
+ * requested (see {@link #setKeepHistory(boolean)}).
  *
  * @author David
  */
-public class BetaReputation extends AbstractTrustModel<Double> {
+public class BetaReputation extends AbstractTrustModel<Double> implements
+        PrimitiveTrustModel, IncrementalOpinions, MemoryFootprint,
+        AgentParallel.Holder {
 
     protected static final String EX_FF = "The forgetting factor must be a between 0 and 1 inclusively, but was %.2f";
     protected static final ParameterCondition<Double> VAL_FF;
+    protected static final long PAIR_BYTES = MemorySizes.object(2 * 8);
 
     static {
         VAL_FF = new ParameterCondition<Double>() {
@@ -50,53 +64,97 @@ public class BetaReputation extends AbstractTrustModel<Double> {
     public double lambdaEx = 0.9;
     public double lambdaOp = 0;
 
+    // raw experiences; filled only when the history is kept
     public Map<Integer, ArrayList<Experience>> experiences = null;
+    // decayed aggregates of experiences
+    protected Map<Integer, BRSPair> aggregates = null;
+    protected boolean keepHistory = false;
 
-    public Opinion[][] opinions = null;
+    // latest opinions of reporters
+    public OpinionStore opinions = null;
     protected int time = 0;
 
+    // aggregates opinions about agents in parallel
+    protected AgentParallel parallel = new AgentParallel();
+
     @Override
     public void initialize(Object... params) {
+        invalidateTrust();
         time = 0;
         experiences = new LinkedHashMap<Integer, ArrayList<Experience>>();
-        opinions = new Opinion[0][0];
+        aggregates = new LinkedHashMap<Integer, BRSPair>();
+        opinions = new OpinionStore();
         lambdaEx = Utils.extractParameter(VAL_FF, 0, params);
         lambdaOp = Utils.extractParameter(VAL_FF, 1, params);
     }
 
     @Override
     public void setCurrentTime(int time) {
+        invalidateTrust();
         this.time = time;
     }
 
     @Override
     public void processExperiences(List<Experience> exps) {
-        expandArrays(exps, null);
-
+        invalidateTrust();
         for (Experience e : exps) {
-            ArrayList<Experience> list = experiences.get(e.agent);
+            BRSPair pair = aggregates.get(e.agent);
+
+            if (null == pair) {
+                pair = new BRSPair();
+                aggregates.put(e.agent, pair);
+            }
+
+            // discount is computed relatively: could also be absolutely
+            pair.R = pair.R * lambdaEx + e.outcome;
+            pair.S = pair.S * lambdaEx + (1 - e.outcome);
+
+            if (keepHistory) {
+                ArrayList<Experience> list = experiences.get(e.agent);
+
+                if (null == list) {
+                    list = new ArrayList<Experience>();
+                    experiences.put(e.agent, list);
+                }
 
-            if (null == list) {
-                list = new ArrayList<Experience>();
-                list.add(e);
-                experiences.put(e.agent, list);
-            } else {
                 list.add(e);
             }
         }
     }
 
+    /**
+     * Sets how opinions about agents are aggregated in parallel (see
+     * {@link #computeOpinions(Map)}). Defaults to a new
+     * {@link AgentParallel}.
+     *
+     * @param parallel Parallel execution of agents
+     */
     @Override
-    public void processOpinions(List<Opinion> ops) {
-        expandArrays(null, ops);
+    public void setParallel(AgentParallel parallel) {
+        this.parallel = parallel;
+    }
 
+    /**
+     * Sets whether raw experiences are kept in the {@link #experiences} map.
+     * Trust is always computed from decayed aggregates; raw experiences are
+     * only for inspection. Disabled by default.
+     *
+     * @param keepHistory True to keep raw experiences
+     */
+    public void setKeepHistory(boolean keepHistory) {
+        this.keepHistory = keepHistory;
+    }
+
+    @Override
+    public void processOpinions(List<Opinion> ops) {
+        invalidateTrust();
         for (Opinion o : ops)
-            opinions[o.agent1][o.agent2] = o;
+            opinions.put(o.agent1, o.agent2, o.internalTrustDegree, o.time);
     }
 
     @Override
     public void calculateTrust() {
-        // and whistle.
+        invalidateTrust();
     }
 
     public Map<Integer, BRSPair> computePairs() {
@@ -134,7 +192,7 @@ public class BetaReputation extends AbstractTrustModel<Double> {
     }
 
     @Override
-    public Map<Integer, Double> getTrust(int service) {
+    protected Map<Integer, Double> computeTrust(int service) {
         final Map<Integer, Double> trust = new LinkedHashMap<Integer, Double>();
         final Map<Integer, BRSPair> pairs = computePairs();
 
@@ -149,6 +207,22 @@ public class BetaReputation extends AbstractTrustModel<Double> {
         return trust;
     }
 
+    /**
+     * Copies trust degrees from the snapshot of {@link #getTrust(int)}, so
+     * trust is computed at most once per change of inputs.
+     */
+    @Override
+    public void getTrust(int service, double[] trust, BitSet known) {
+        for (Map.Entry<Integer, Double> entry : getTrust(service).entrySet()) {
+            final int agent = entry.getKey();
+
+            if (agent < trust.length) {
+                trust[agent] = entry.getValue();
+                known.set(agent);
+            }
+        }
+    }
+
     /**
      * Returns a map of aggregated experience tuples. Keys represents agents and
      * their values represent an aggregated vector of their past interaction
@@ -159,23 +233,9 @@ public class BetaReputation extends AbstractTrustModel<Double> {
     public Map<Integer, BRSPair> computeExperiences() {
         Map<Integer, BRSPair> experienceTrust = new LinkedHashMap<Integer, BRSPair>();
 
-        for (Map.Entry<Integer, ArrayList<Experience>> entry : experiences
-                .entrySet()) {
-            ArrayList<Experience> exps = entry.getValue();
-            final int agent = entry.getKey();
-
-            double r = 0, s = 0;
-
-            for (int i = 0; i < exps.size(); i++) {
-                // discount is computed relatively: could also be absolutely
-                final double discount = Math.pow(lambdaEx, exps.size() - 1 - i);
-                final Experience e = exps.get(i);
-
-                r += e.outcome * discount;
-                s += (1 - e.outcome) * discount;
-            }
-
-            experienceTrust.put(agent, new BRSPair(r, s));
+        for (Map.Entry<Integer, BRSPair> entry : aggregates.entrySet()) {
+            final BRSPair p = entry.getValue();
+            experienceTrust.put(entry.getKey(), new BRSPair(p.R, p.S));
         }
 
         return experienceTrust;
@@ -188,75 +248,68 @@ public class BetaReputation extends AbstractTrustModel<Double> {
      * <p>
      * If no experiences exist, opinions are discarded, because their
      * discounting factor is 0.
+     * <p>
+     * Agents are processed in parallel (see {@link #setParallel(AgentParallel)}).
      *
      * @param experienceTrust
      * @return
      */
     public Map<Integer, BRSPair> computeOpinions(
-            Map<Integer, BRSPair> experienceTrust) {
-        Map<Integer, BRSPair> opinionTrust = new LinkedHashMap<Integer, BRSPair>();
+            final Map<Integer, BRSPair> experienceTrust) {
+        final int agents = opinions.targetLimit();
+        final BRSPair[] pairs = new BRSPair[agents];
 
-        for (int agent = 0; agent < opinions.length; agent++) {
-            double r = 0, s = 0;
-
-            // only compute opinion if an experience with the provider exists
-            boolean computeOpinion = false;
-
-            for (int reporter = 0; reporter < opinions[agent].length; reporter++) {
-                final Opinion o = opinions[reporter][agent];
-
-                if (o != null) {
-                    // opinion is discounted absolutely
-                    final double discount = Math.pow(lambdaOp, time - o.time);
-                    final BRSPair p = experienceTrust.get(reporter);
-
-                    if (null != p) {
-                        computeOpinion = true;
-                        r += (2 * p.R * o.internalTrustDegree)
-                                / ((p.S + 2) * 3 + 2 * p.R) * discount;
-                        s += (2 * p.R * (1 - o.internalTrustDegree))
-                                / ((p.S + 2) * 3 + 2 * p.R) * discount;
-                    }
-                }
+        parallel.forEach(agents, new AgentParallel.Block() {
+            @Override
+            public void compute(int from, int to) {
+                for (int agent = from; agent < to; agent++)
+                    pairs[agent] = computeOpinion(agent, experienceTrust);
             }
+        });
 
-            if (computeOpinion)
-                opinionTrust.put(agent, new BRSPair(r, s));
-        }
+        Map<Integer, BRSPair> opinionTrust = new LinkedHashMap<Integer, BRSPair>();
+
+        for (int agent = 0; agent < agents; agent++)
+            if (null != pairs[agent])
+                opinionTrust.put(agent, pairs[agent]);
 
         return opinionTrust;
     }
 
     /**
-     * Expands the supporting data structures, which contain data of past
-     * interactions and received opinions.
+     * Returns the aggregated opinion about the given agent, or null if none of
+     * its reporters has experiences with Alpha.
      *
-     * @param exps Set of experiences
-     * @param ops  Set of opinions
+     * @param agent           Agent
+     * @param experienceTrust Aggregated experiences
+     * @return Aggregated opinion
      */
-    protected void expandArrays(List<Experience> exps, List<Opinion> ops) {
-        final int limit = opinions.length - 1;
-        int max = limit;
-
-        if (null != exps)
-            for (Experience e : exps)
-                if (e.agent > max)
-                    max = e.agent;
-
-        if (null != ops)
-            for (Opinion o : ops)
-                if (o.agent2 > max || o.agent1 > max)
-                    max = Math.max(o.agent1, o.agent2);
-
-        if (max > limit) {
-            // copy opinions
-            Opinion[][] newOp = new Opinion[max + 1][max + 1];
-            for (int i = 0; i < opinions.length; i++)
-                System.arraycopy(opinions[i], 0, newOp[i], 0,
-                        opinions[i].length);
-
-            opinions = newOp;
+    protected BRSPair computeOpinion(int agent,
+                                     Map<Integer, BRSPair> experienceTrust) {
+        double r = 0, s = 0;
+
+        // only compute opinion if an experience with the provider exists
+        boolean computeOpinion = false;
+
+        final int[] reporters = opinions.getReporters(agent);
+        final double[] itds = opinions.getTrustDegrees(agent);
+        final int[] times = opinions.getTimes(agent);
+
+        for (int i = 0; i < opinions.size(agent); i++) {
+            // opinion is discounted absolutely
+            final double discount = Math.pow(lambdaOp, time - times[i]);
+            final BRSPair p = experienceTrust.get(reporters[i]);
+
+            if (null != p) {
+                computeOpinion = true;
+                r += (2 * p.R * itds[i])
+                        / ((p.S + 2) * 3 + 2 * p.R) * discount;
+                s += (2 * p.R * (1 - itds[i]))
+                        / ((p.S + 2) * 3 + 2 * p.R) * discount;
+            }
         }
+
+        return computeOpinion ? new BRSPair(r, s) : null;
     }
 
     @Override
@@ -264,6 +317,29 @@ public class BetaReputation extends AbstractTrustModel<Double> {
         return new BetaReputationGUI();
     }
 
+    /**
+     * Estimates the footprint when every agent reports about every other
+     * agent. Raw experiences are kept only on request (see
+     * {@link #setKeepHistory(boolean)}) and are not part of the estimate.
+     */
+    @Override
+    public long estimateRetainedBytes(int agents, int services) {
+        return MemorySizes.map(0) + MemorySizes.map(agents) + agents
+                * PAIR_BYTES + OpinionStore.estimateBytes(agents);
+    }
+
+    @Override
+    public long getRetainedBytes() {
+        long bytes = MemorySizes.map(experiences.size())
+                + MemorySizes.map(aggregates.size()) + aggregates.size()
+                * PAIR_BYTES + opinions.retainedBytes();
+
+        for (List<Experience> list : experiences.values())
+            bytes += MemorySizes.list(list.size(), MemorySizes.EXPERIENCE);
+
+        return bytes;
+    }
+
     @Override
     public String toString() {
         return "Beta reputation system";
@@ -271,11 +347,11 @@ public class BetaReputation extends AbstractTrustModel<Double> {
 
     @Override
     public void setAgents(List<Integer> agents) {
-
+        invalidateTrust();
     }
 
     @Override
     public void setServices(List<Integer> services) {
-
+        invalidateTrust();
     }
 }
@@ -10,12 +10,19 @@
  */
 package atb.trustmodel;
 
+import atb.common.AgentParallel;
+import atb.common.MemorySizes;
 import atb.common.Utils;
 import atb.interfaces.Experience;
+import atb.interfaces.IncrementalOpinions;
+import atb.interfaces.MemoryFootprint;
 import atb.interfaces.Opinion;
 import atb.interfaces.ParameterCondition;
 import atb.interfaces.ParametersPanel;
+import atb.interfaces.PrimitiveTrustModel;
 
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -33,8 +40,23 @@ import java.util.Map;
  * pre-trust vector is computed by normalizing the values in the cntExp array.
  * If all values are zero, than the same value (1/N, N being the number of
  * agents) is given to all agents.
- * <li>Obtained opinions are stored in the cntOp array. This array is used to
- * compute normalized local trust values that constitute the matrix C.
+ * <li>Obtained opinions are stored in the sparse cntOp matrix. This matrix is
+ * used to compute normalized local trust values that constitute the matrix C.
+ * <li>Matrix C is kept in the compressed sparse row form and contains only
+ * normalized opinions. Columns of agents that have no opinions (dangling
+ * agents) equal the pre-trust vector; they are applied as a rank-one
+ * correction, so that an iteration takes time proportional to the number of
+ * opinions.
+ * <li>The power iteration starts from the trust vector of the previous
+ * computation and stops when the Euclidean distance between consecutive
+ * vectors falls below the tolerance (see {@link #setTolerance(double)}) or
+ * when it reaches the maximal number of iterations (see
+ * {@link #setMaxIterations(int)}).
+ * <li>Changes of cntOp and cntExp are tracked. When neither changed since the
+ * last computation, the previous trust vector is returned as is; otherwise
+ * only the affected parts (the pre-trust vector, matrix C or both) are
+ * recomputed. Modifications that bypass {@link #processExperiences(List)} and
+ * {@link #processOpinions(List)} are not tracked.
  * </ul>
  * <p>
  * <a href='http://doi.acm.org/10.1145/775152.775242'>Sepandar D. Kamvar, Mario
@@ -44,9 +66,14 @@ import java.util.Map;
  *
  * @author David
  */
-public class EigenTrust extends AbstractTrustModel<Double> {
+public class EigenTrust extends AbstractTrustModel<Double> implements
+        PrimitiveTrustModel, MemoryFootprint, IncrementalOpinions,
+        AgentParallel.Holder {
     private static final ParameterCondition<Double> VAL_WEIGHT;
     private static final ParameterCondition<Integer> VAL_SAMPLE_NUM;
+    private static final ParameterCondition<Double> VAL_TOLERANCE;
+    private static final ParameterCondition<Integer> VAL_MAX_ITERATIONS;
+    private static final ParameterCondition<Integer> VAL_PARALLEL_THRESHOLD;
     public static double WEIGHT = 0.5;
     public static double SATISFACTORY_THRESHOLD = 0.5;
     public static double OPINION_SAMPLE_SD = 0.1;
@@ -72,21 +99,77 @@ public class EigenTrust extends AbstractTrustModel<Double> {
                             var));
             }
         };
+
+        VAL_TOLERANCE = new ParameterCondition<Double>() {
+            @Override
+            public void eval(Double var) {
+                if (!(var > 0))
+                    throw new IllegalArgumentException(String.format(
+                            "The tolerance must be a positive double, but was %f",
+                            var));
+            }
+        };
+
+        VAL_MAX_ITERATIONS = new ParameterCondition<Integer>() {
+            @Override
+            public void eval(Integer var) {
+                if (var < 1)
+                    throw new IllegalArgumentException(String.format(
+                            "The maximal number of iterations must be positive, but was %d",
+                            var));
+            }
+        };
+
+        VAL_PARALLEL_THRESHOLD = new ParameterCondition<Integer>() {
+            @Override
+            public void eval(Integer var) {
+                if (var < 1)
+                    throw new IllegalArgumentException(String.format(
+                            "The parallel threshold must be positive, but was %d",
+                            var));
+            }
+        };
     }
 
-    // holds positive opinions count
-    public int[][] cntOp;
+    // holds positive opinions count; rows are agents, columns reporters
+    public SparseCountMatrix cntOp;
     // count experiences
     public int[] cntExp;
 
+    // convergence criteria of the power iteration
+    protected double tolerance = 0.01;
+    protected int maxIterations = 1000;
+
+    // number of matrix entries from which multiplication runs in parallel
+    protected int parallelThreshold = 1 << 16;
+    // multiplies blocks of rows in parallel
+    protected AgentParallel parallel = new AgentParallel();
+
+    // whether opinions are sampled with a single binomial variate
+    protected boolean binomialSampling = false;
+
+    // trust vector of the previous computation
+    protected double[] trust;
+    // pre-trust vector of the previous computation
+    protected double[] pretrust;
+    // whether cntOp and positive experiences changed since the last computation
+    protected boolean opinionsChanged, experiencesChanged;
+
+    // matrix C in the compressed sparse row form
+    protected int[] rowPointers = new int[1], columns = new int[0];
+    protected double[] values = new double[0];
+
     @Override
     public void initialize(Object... params) {
+        invalidateTrust();
         // cumulative number of positive interaction outcomes
         cntExp = new int[1];
 
         // cumulative number of positive opinions
         // this number gets rewritten each time a new opinion arrives
-        cntOp = new int[1][1];
+        cntOp = new SparseCountMatrix();
+        trust = null;
+        pretrust = null;
 
         WEIGHT = Utils.extractParameter(VAL_WEIGHT, 0, params);
         SATISFACTORY_THRESHOLD = Utils.extractParameter(VAL_WEIGHT, 1, params);
@@ -96,83 +179,292 @@ public class EigenTrust extends AbstractTrustModel<Double> {
 
     @Override
     public void processExperiences(List<Experience> experiences) {
+        invalidateTrust();
         expandArrays(experiences, null);
 
         // process experiences
         for (Experience e : experiences) {
+            final int previous = cntExp[e.agent];
             cntExp[e.agent] += (e.outcome >= SATISFACTORY_THRESHOLD ? 1 : -1);
+
+            // the pre-trust vector depends on positive counts only
+            if (Math.max(previous, 0) != Math.max(cntExp[e.agent], 0))
+                experiencesChanged = true;
         }
     }
 
     @Override
     public void processOpinions(List<Opinion> opinions) {
+        invalidateTrust();
         expandArrays(null, opinions);
 
         // process opinions by creating matrix C
         for (Opinion o : opinions) {
             final double itd = o.internalTrustDegree;
+            final int samples = (int) Math.ceil(OPINION_SAMPLE_NUM);
 
-            int pos = 0, neg = 0;
+            final int pos = binomialSampling
+                    ? OpinionSampling.sampleBinomial(generator, itd,
+                    OPINION_SAMPLE_SD, SATISFACTORY_THRESHOLD, samples)
+                    : OpinionSampling.sample(generator, itd, OPINION_SAMPLE_SD,
+                    SATISFACTORY_THRESHOLD, samples);
+            final int neg = samples - pos;
 
-            for (int i = 0; i < OPINION_SAMPLE_NUM; i++) {
-                if (generator.nextDoubleFromUnitTND(itd,
-                        OPINION_SAMPLE_SD) > SATISFACTORY_THRESHOLD) {
-                    pos += 1;
-                } else {
-                    neg += 1;
-                }
-            }
+            final int count = Math.max(pos - neg, 0);
 
-            cntOp[o.agent2][o.agent1] = (int) Math.max(pos - neg, 0);
+            if (cntOp.set(o.agent2, o.agent1, count) != count)
+                opinionsChanged = true;
         }
     }
 
+    /**
+     * Sets whether the number of positive samples of an opinion is drawn as a
+     * single binomial variate instead of drawing every sample from the
+     * truncated normal distribution (see {@link OpinionSampling}). Defaults to
+     * false.
+     *
+     * @param binomialSampling True to draw a single binomial variate
+     */
+    public void setBinomialSampling(boolean binomialSampling) {
+        this.binomialSampling = binomialSampling;
+    }
+
+    /**
+     * Sets the Euclidean distance between consecutive trust vectors below
+     * which the power iteration stops. Defaults to 0.01.
+     *
+     * @param tolerance A positive tolerance
+     */
+    public void setTolerance(double tolerance) {
+        VAL_TOLERANCE.eval(tolerance);
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * Sets the maximal number of iterations of the power iteration. Defaults
+     * to 1000.
+     *
+     * @param maxIterations A positive number of iterations
+     */
+    public void setMaxIterations(int maxIterations) {
+        VAL_MAX_ITERATIONS.eval(maxIterations);
+        this.maxIterations = maxIterations;
+    }
+
+    /**
+     * Sets the number of non-zero entries of matrix C from which the
+     * matrix-vector multiplication runs in parallel (see
+     * {@link #setParallel(AgentParallel)}). Smaller matrices are multiplied
+     * sequentially. Defaults to 65536.
+     *
+     * @param parallelThreshold A positive number of entries
+     */
+    public void setParallelThreshold(int parallelThreshold) {
+        VAL_PARALLEL_THRESHOLD.eval(parallelThreshold);
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    /**
+     * Sets how blocks of rows of matrix C are multiplied in parallel. Only
+     * the share of processors applies; whether a multiplication runs in
+     * parallel depends on {@link #setParallelThreshold(int)}. Defaults to a
+     * new {@link AgentParallel}.
+     *
+     * @param parallel Parallel execution of agents
+     */
+    @Override
+    public void setParallel(AgentParallel parallel) {
+        this.parallel = parallel;
+    }
+
     @Override
     public void calculateTrust() {
+        invalidateTrust();
+    }
+
+    @Override
+    protected Map<Integer, Double> computeTrust(int service) {
+        final double[] t = computeTrust();
+        final Map<Integer, Double> trust = new LinkedHashMap<Integer, Double>();
 
+        for (int i = 0; i < t.length; i++)
+            trust.put(i, t[i]);
+
+        return trust;
     }
 
     @Override
-    public Map<Integer, Double> getTrust(int service) {
+    public void getTrust(int service, double[] trust, BitSet known) {
+        final double[] t = computeTrust();
+        final int n = Math.min(t.length, trust.length);
+
+        System.arraycopy(t, 0, trust, 0, n);
+        known.set(0, n);
+    }
+
+    /**
+     * Computes global trust values with the power iteration method. If
+     * opinions and experiences have not changed since the last computation,
+     * the previous values are returned.
+     *
+     * @return Array in which indexes represent agents and values represent
+     * their trust values
+     */
+    protected double[] computeTrust() {
+        final int n = cntExp.length;
+        final boolean resized = null == trust || trust.length != n;
+
+        if (!resized && !opinionsChanged && !experiencesChanged)
+            return trust.clone();
+
         // pre-trust vector
-        double[] p = computePretrustVector(cntExp);
+        if (resized || experiencesChanged)
+            pretrust = computePretrustVector(cntExp);
+
+        final double[] p = pretrust;
 
         // matrix C
-        double[][] C = computeMatrix(cntOp, p);
+        if (resized || opinionsChanged)
+            computeSparseMatrix(n);
 
-        // execute algorithm
-        final double[] t_new = new double[p.length];
-        final double[] t_old = new double[p.length];
+        opinionsChanged = false;
+        experiencesChanged = false;
 
-        // t_new = p
-        System.arraycopy(p, 0, t_new, 0, p.length);
+        // execute algorithm
+        final double[] t_new = initialVector(p);
+        final double[] t_old = new double[n];
+        int iterations = 0;
 
         do {
             // t_old = t_new
-            System.arraycopy(t_new, 0, t_old, 0, t_new.length);
+            System.arraycopy(t_new, 0, t_old, 0, n);
 
             // t_new = C * t_old
-            for (int row = 0; row < t_old.length; row++) {
-                double sum = 0;
-
-                for (int col = 0; col < t_old.length; col++)
-                    sum += C[row][col] * t_old[col];
-
-                t_new[row] = sum;
-            }
+            multiply(t_old, p, t_new);
 
             // t_new = (1 - weight) * t_new + weight * p
-            for (int i = 0; i < t_old.length; i++)
+            for (int i = 0; i < n; i++)
                 t_new[i] = (1 - WEIGHT) * t_new[i] + WEIGHT * p[i];
 
-        } while (!hasConverged(t_new, t_old));
+            iterations++;
+        } while (!hasConverged(t_new, t_old) && iterations < maxIterations);
 
-        final Map<Integer, Double> trust = new LinkedHashMap<Integer, Double>();
+        trust = t_new.clone();
+        return t_new;
+    }
 
-        for (int i = 0; i < t_old.length; i++)
-            trust.put(i, t_new[i]);
+    /**
+     * Returns the starting vector of the power iteration: the trust vector of
+     * the previous computation, if there was one, or the pre-trust vector.
+     * Newly added agents start with their pre-trust values, after which the
+     * vector is normalized.
+     *
+     * @param p Pre-trust vector
+     * @return The starting vector
+     */
+    protected double[] initialVector(double[] p) {
+        final double[] t = p.clone();
 
-        return trust;
+        if (null == trust)
+            return t;
+
+        System.arraycopy(trust, 0, t, 0, Math.min(trust.length, t.length));
+
+        if (trust.length != t.length) {
+            double sum = 0;
+
+            for (double value : t)
+                sum += value;
+
+            if (sum > 0)
+                for (int i = 0; i < t.length; i++)
+                    t[i] /= sum;
+        }
+
+        return t;
+    }
+
+    /**
+     * Computes matrix C in the compressed sparse row form from opinions in
+     * cntOp. Opinions are normalized by the sums of columns; columns without
+     * opinions are left empty and handled in
+     * {@link #multiply(double[], double[], double[])}.
+     *
+     * @param n Number of agents
+     */
+    protected void computeSparseMatrix(int n) {
+        final int nonZeros = cntOp.getNonZeros();
+
+        if (rowPointers.length < n + 1)
+            rowPointers = new int[n + 1];
+
+        if (columns.length < nonZeros) {
+            columns = new int[nonZeros];
+            values = new double[nonZeros];
+        }
+
+        final int[] counts = new int[nonZeros];
+        cntOp.toCompressedRows(n, rowPointers, columns, counts);
+
+        for (int k = 0; k < rowPointers[n]; k++)
+            values[k] = counts[k] / (double) cntOp.getColumnSum(columns[k]);
+    }
+
+    /**
+     * Multiplies matrix C with a vector. Since columns of dangling agents
+     * equal the pre-trust vector, their contribution is the pre-trust vector
+     * multiplied by the sum of their entries in the vector.
+     * <p>
+     * Large matrices are split into blocks of consecutive rows that are
+     * multiplied in parallel (see {@link #setParallelThreshold(int)}). Every
+     * row is computed by a single task in the same order, so the result does
+     * not depend on the number of threads.
+     *
+     * @param t      The vector
+     * @param p      Pre-trust vector
+     * @param result Array that receives the product
+     */
+    protected void multiply(double[] t, double[] p, double[] result) {
+        final int n = t.length;
+        double dangling = 0;
+
+        for (int col = 0; col < n; col++)
+            if (cntOp.getColumnSum(col) == 0)
+                dangling += t[col];
+
+        if (rowPointers[n] >= parallelThreshold) {
+            final double sum = dangling;
+            parallel.forEachInParallel(n, new AgentParallel.Block() {
+                @Override
+                public void compute(int from, int to) {
+                    multiply(t, p, sum, result, from, to);
+                }
+            });
+        } else {
+            multiply(t, p, dangling, result, 0, n);
+        }
+    }
+
+    /**
+     * Multiplies a block of rows of matrix C with a vector.
+     *
+     * @param t        The vector
+     * @param p        Pre-trust vector
+     * @param dangling Sum of entries of dangling agents in the vector
+     * @param result   Array that receives the product
+     * @param from     First row (inclusive)
+     * @param to       Last row (exclusive)
+     */
+    protected void multiply(double[] t, double[] p, double dangling,
+                            double[] result, int from, int to) {
+        for (int row = from; row < to; row++) {
+            double sum = 0;
+
+            for (int k = rowPointers[row]; k < rowPointers[row + 1]; k++)
+                sum += values[k] * t[columns[k]];
+
+            result[row] = sum + p[row] * dangling;
+        }
     }
 
     /**
@@ -205,7 +497,9 @@ public class EigenTrust extends AbstractTrustModel<Double> {
     }
 
     /**
-     * Computes a matrix from an integer matrix of positive opinions
+     * Computes a dense matrix from an integer matrix of positive opinions.
+     * The model itself uses the sparse form (see
+     * {@link #computeSparseMatrix(int)}).
      *
      * @param opinionCount Array of positive opinion counts
      * @param p            Pre-trust vector (needed when no-one has an opinion about a
@@ -241,7 +535,8 @@ public class EigenTrust extends AbstractTrustModel<Double> {
 
     /**
      * Determines whether the Euclidean distance between two vectors is small
-     * enough in order for the EigenTrust algorithm to stop.
+     * enough in order for the EigenTrust algorithm to stop (see
+     * {@link #setTolerance(double)}).
      *
      * @param t_new The first vector
      * @param t_old The second vector
@@ -253,12 +548,49 @@ public class EigenTrust extends AbstractTrustModel<Double> {
         for (int i = 0; i < t_old.length; i++)
             sum += (t_new[i] - t_old[i]) * (t_new[i] - t_old[i]);
 
-        return Math.sqrt(sum) < 0.01;
+        return Math.sqrt(sum) < tolerance;
+    }
+
+    /**
+     * Estimates the footprint for the case in which every agent has an
+     * opinion about every other agent, so that matrices hold n * n entries.
+     * Vectors of the power iteration are included, since they are allocated
+     * on every computation of trust.
+     */
+    @Override
+    public long estimateRetainedBytes(int agents, int services) {
+        final long n = agents, nonZeros = n * n;
+        long slots = 16;
+
+        while (slots < 2 * nonZeros)
+            slots *= 2;
+
+        // sparse counts, column sums and the matrix in the CSR form
+        final long counts = MemorySizes.object(5 * 4)
+                + MemorySizes.array(slots, 8) + MemorySizes.array(slots, 4)
+                + MemorySizes.array(n, 4);
+        final long matrix = MemorySizes.array(n + 1, 4)
+                + MemorySizes.array(nonZeros, 4)
+                + MemorySizes.array(nonZeros, 8);
+
+        // experiences, trust, pre-trust and vectors of the power iteration
+        final long vectors = MemorySizes.array(n, 4) + 4
+                * MemorySizes.array(n, 8);
+
+        return counts + matrix + vectors;
     }
 
     @Override
-    public void setCurrentTime(int time) {
+    public long getRetainedBytes() {
+        return cntOp.retainedBytes() + MemorySizes.deep(cntExp)
+                + MemorySizes.deep(trust) + MemorySizes.deep(pretrust)
+                + MemorySizes.deep(rowPointers) + MemorySizes.deep(columns)
+                + MemorySizes.deep(values);
+    }
 
+    @Override
+    public void setCurrentTime(int time) {
+        invalidateTrust();
     }
 
     @Override
@@ -267,14 +599,15 @@ public class EigenTrust extends AbstractTrustModel<Double> {
     }
 
     /**
-     * Expands the underlying array that hold experiences and opinions
+     * Expands the underlying array that hold experiences. Opinions are stored
+     * in a sparse matrix that needs no expansion.
      *
      * @param experiences Set of experiences (can be null)
      * @param opinions    Set of opinions (can be null)
      */
     protected void expandArrays(List<Experience> experiences,
                                 List<Opinion> opinions) {
-        final int limit = cntOp.length - 1;
+        final int limit = cntExp.length - 1;
         int max = limit;
 
         if (null != experiences)
@@ -287,30 +620,17 @@ public class EigenTrust extends AbstractTrustModel<Double> {
                 if (o.agent2 > max || o.agent1 > max)
                     max = Math.max(o.agent1, o.agent2);
 
-        if (max > limit) {
-            // resize opinions' array
-            int[][] newCntOp = new int[max + 1][max + 1];
-
-            for (int i = 0; i < cntOp.length; i++)
-                for (int j = 0; j < cntOp.length; j++)
-                    newCntOp[i][j] = cntOp[i][j];
-
-            cntOp = newCntOp;
-
-            // resize positive experiences array
-            int[] newPosExp = new int[max + 1];
-            for (int i = 0; i < cntExp.length; i++)
-                newPosExp[i] = cntExp[i];
-
-            cntExp = newPosExp;
-        }
+        if (max > limit)
+            cntExp = Arrays.copyOf(cntExp, max + 1);
     }
 
     @Override
     public void setAgents(List<Integer> agents) {
+        invalidateTrust();
     }
 
     @Override
     public void setServices(List<Integer> services) {
+        invalidateTrust();
     }
 }
@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2013 David Jelenc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     David Jelenc - initial API and implementation
+ */
+package atb.trustmodel;
+
+import atb.common.MemorySizes;
+
+import java.util.Arrays;
+
+/**
+ * An open-addressing hash table that maps non-negative long keys, such as
+ * pairs of agents, to integer values.
+ * <p>
+ * Collisions are resolved with linear probing, and removal shifts back the
+ * entries that follow the removed one in the same probe sequence, so lookups
+ * never have to skip deleted entries. The table doubles when it becomes half
+ * full. Entries are addressed by slots, which stay valid until the next
+ * insertion or removal.
+ *
+ * @author David
+ */
+final class LongHashIndex {
+    static final long EMPTY = -1L;
+
+    private long[] keys;
+    private int[] values;
+    private int mask, size;
+
+    /**
+     * Creates an empty table.
+     */
+    LongHashIndex() {
+        allocate(16);
+    }
+
+    /**
+     * Returns the slot of the given key.
+     *
+     * @param key Key
+     * @return Slot or -1, if the key is not in the table
+     */
+    int find(long key) {
+        for (int slot = slotOf(key); keys[slot] != EMPTY; slot = (slot + 1) & mask)
+            if (keys[slot] == key)
+                return slot;
+
+        return -1;
+    }
+
+    /**
+     * Adds a key that is not in the table yet.
+     *
+     * @param key   A non-negative key
+     * @param value Value
+     */
+    void add(long key, int value) {
+        if (2 * (size + 1) > keys.length)
+            allocate(2 * keys.length);
+
+        insert(key, value);
+        size++;
+    }
+
+    /**
+     * Removes the entry at the given slot and shifts back the entries that
+     * follow it in the same probe sequence.
+     *
+     * @param slot Slot of an entry
+     */
+    void remove(int slot) {
+        int free = slot;
+
+        for (int next = (slot + 1) & mask; keys[next] != EMPTY; next = (next + 1) & mask) {
+            final int home = slotOf(keys[next]);
+            final boolean stays = free <= next
+                    ? (free < home && home <= next)
+                    : (free < home || home <= next);
+
+            if (!stays) {
+                keys[free] = keys[next];
+                values[free] = values[next];
+                free = next;
+            }
+        }
+
+        keys[free] = EMPTY;
+        size--;
+    }
+
+    /**
+     * Returns the key at the given slot.
+     *
+     * @param slot Slot
+     * @return Key or {@link #EMPTY}
+     */
+    long keyAt(int slot) {
+        return keys[slot];
+    }
+
+    int valueAt(int slot) {
+        return values[slot];
+    }
+
+    void setValueAt(int slot, int value) {
+        values[slot] = value;
+    }
+
+    /**
+     * Returns the number of slots, so that entries can be iterated with
+     * {@link #keyAt(int)} and {@link #valueAt(int)}.
+     *
+     * @return Number of slots
+     */
+    int capacity() {
+        return keys.length;
+    }
+
+    /**
+     * Returns the number of entries.
+     *
+     * @return Number of entries
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns the approximate number of bytes that the table retains.
+     *
+     * @return Number of bytes
+     */
+    long retainedBytes() {
+        return MemorySizes.object(4 * 4) + MemorySizes.deep(keys)
+                + MemorySizes.deep(values);
+    }
+
+    /**
+     * Estimates the number of bytes that a table with the given number of
+     * entries retains.
+     *
+     * @param entries Number of entries
+     * @return Number of bytes
+     */
+    static long estimateBytes(long entries) {
+        long capacity = 16;
+
+        while (2 * entries > capacity)
+            capacity *= 2;
+
+        return MemorySizes.object(4 * 4) + MemorySizes.array(capacity, 8)
+                + MemorySizes.array(capacity, 4);
+    }
+
+    private int slotOf(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private void insert(long key, int value) {
+        int slot = slotOf(key);
+
+        while (keys[slot] != EMPTY)
+            slot = (slot + 1) & mask;
+
+        keys[slot] = key;
+        values[slot] = value;
+    }
+
+    private void allocate(int capacity) {
+        final long[] oldKeys = keys;
+        final int[] oldValues = values;
+
+        keys = new long[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        Arrays.fill(keys, EMPTY);
+
+        if (null != oldKeys)
+            for (int slot = 0; slot < oldKeys.length; slot++)
+                if (oldKeys[slot] != EMPTY)
+                    insert(oldKeys[slot], oldValues[slot]);
+    }
+}
@@ -31,12 +31,14 @@ public class OnlyExperiences extends AbstractTrustModel<Double> {
 
     @Override
     public void initialize(Object... params) {
+        invalidateTrust();
         exSum = new LinkedHashMap<Integer, Double>();
         exCnt = new LinkedHashMap<Integer, Integer>();
     }
 
     @Override
     public void processExperiences(List<Experience> experiences) {
+        invalidateTrust();
         for (Experience e : experiences) {
             final int agent = e.agent;
             final double outcome = e.outcome;
@@ -56,12 +58,13 @@ public class OnlyExperiences extends AbstractTrustModel<Double> {
 
     @Override
     public void processOpinions(List<Opinion> opinions) {
+        invalidateTrust();
         // pass
     }
 
     @Override
     public void calculateTrust() {
-        // pass
+        invalidateTrust();
     }
 
     @Override
@@ -70,7 +73,7 @@ public class OnlyExperiences extends AbstractTrustModel<Double> {
     }
 
     @Override
-    public Map<Integer, Double> getTrust(int service) {
+    protected Map<Integer, Double> computeTrust(int service) {
         final Map<Integer, Double> trust = new LinkedHashMap<Integer, Double>();
 
         for (int agent : exSum.keySet()) {
@@ -85,16 +88,19 @@ public class OnlyExperiences extends AbstractTrustModel<Double> {
 
     @Override
     public void setCurrentTime(int time) {
+        invalidateTrust();
         // pass
     }
 
     @Override
     public void setAgents(List<Integer> agents) {
+        invalidateTrust();
         // pass
     }
 
     @Override
     public void setServices(List<Integer> services) {
+        invalidateTrust();
         // pass
     }
 }
@@ -11,6 +11,7 @@
 package atb.trustmodel;
 
 import atb.interfaces.Experience;
+import atb.interfaces.IncrementalOpinions;
 import atb.interfaces.Opinion;
 
 import java.util.LinkedHashMap;
@@ -24,33 +25,36 @@ import java.util.Map;
  *
  * @author David
  */
-public class OnlyOpinions extends AbstractTrustModel<Double> {
+public class OnlyOpinions extends AbstractTrustModel<Double> implements
+        IncrementalOpinions {
     // opinions
     private double[][] op;
 
     @Override
     public void initialize(Object... params) {
+        invalidateTrust();
         op = new double[0][0];
     }
 
     @Override
     public void processExperiences(List<Experience> experiences) {
-
+        invalidateTrust();
     }
 
     @Override
     public void processOpinions(List<Opinion> opinions) {
+        invalidateTrust();
         for (Opinion o : opinions)
             op[o.agent1][o.agent2] = o.internalTrustDegree;
     }
 
     @Override
     public void calculateTrust() {
-        // pass
+        invalidateTrust();
     }
 
     @Override
-    public Map<Integer, Double> getTrust(int service) {
+    protected Map<Integer, Double> computeTrust(int service) {
         Map<Integer, Double> trust = new LinkedHashMap<Integer, Double>();
 
         for (int agent = 0; agent < op.length; agent++) {
@@ -78,10 +82,12 @@ public class OnlyOpinions extends AbstractTrustModel<Double> {
 
     @Override
     public void setCurrentTime(int time) {
+        invalidateTrust();
     }
 
     @Override
     public void setAgents(List<Integer> agents) {
+        invalidateTrust();
         // current size of opinions' data structure
         int max = op.length - 1;
 
@@ -107,5 +113,6 @@ public class OnlyOpinions extends AbstractTrustModel<Double> {
 
     @Override
     public void setServices(List<Integer> services) {
+        invalidateTrust();
     }
 }
@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2013 David Jelenc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     David Jelenc - initial API and implementation
+ */
+package atb.trustmodel;
+
+import atb.interfaces.RandomGenerator;
+import cern.jet.math.Arithmetic;
+import cern.jet.stat.Probability;
+
+/**
+ * Conversion of opinions into counts of positive samples.
+ * <p>
+ * Trust models such as {@link EigenTrust} and {@link Travos} turn an internal
+ * trust degree into a count of samples, drawn from the truncated normal
+ * distribution on [0, 1], that exceed a threshold. Drawing the samples one by
+ * one calls the generator at least once per sample. The count, however,
+ * follows the binomial distribution whose success probability has a closed
+ * form, so it can be drawn with a single call instead. Both ways give counts
+ * with the same distribution, but not the same counts for the same seed.
+ *
+ * @author David
+ */
+public final class OpinionSampling {
+
+    private OpinionSampling() {
+    }
+
+    /**
+     * Draws the given number of samples from the truncated normal distribution
+     * one by one and counts those that exceed the threshold.
+     *
+     * @param generator Random generator
+     * @param mean      Mean (internal trust degree)
+     * @param sd        Standard deviation
+     * @param threshold Threshold
+     * @param samples   Number of samples
+     * @return Number of samples above the threshold
+     */
+    public static int sample(RandomGenerator generator, double mean,
+                             double sd, double threshold, int samples) {
+        int positive = 0;
+
+        for (int i = 0; i < samples; i++)
+            if (generator.nextDoubleFromUnitTND(mean, sd) > threshold)
+                positive += 1;
+
+        return positive;
+    }
+
+    /**
+     * Draws the number of samples from the truncated normal distribution that
+     * exceed the threshold as a single binomial variate.
+     *
+     * @param generator Random generator
+     * @param mean      Mean (internal trust degree)
+     * @param sd        Standard deviation
+     * @param threshold Threshold
+     * @param samples   Number of samples
+     * @return Number of samples above the threshold
+     */
+    public static int sampleBinomial(RandomGenerator generator, double mean,
+                                     double sd, double threshold, int samples) {
+        final double p = exceedance(mean, sd, threshold);
+
+        if (p <= 0d)
+            return 0;
+        else if (p >= 1d)
+            return samples;
+
+        // draw the count of the less likely outcome, so that the ratio between
+        // consecutive probabilities stays below one
+        final boolean flip = p > 0.5;
+        final double q = flip ? 1 - p : p;
+        final int k = binomial(generator.nextDoubleFromTo(0, 1), samples, q);
+
+        return flip ? samples - k : k;
+    }
+
+    /**
+     * Inverts the binomial distribution for the given uniform variate by
+     * searching outwards from the mode. The probability of the mode is
+     * computed in log space, so it does not underflow for large numbers of
+     * samples, and the search visits only the values around the mode that
+     * carry the probability mass.
+     *
+     * @param u       Uniform variate from [0, 1]
+     * @param samples Number of trials
+     * @param q       Success probability from (0, 0.5]
+     * @return Number of successes
+     */
+    private static int binomial(double u, int samples, double q) {
+        final int mode = (int) ((samples + 1) * q);
+        final double ratio = q / (1 - q);
+        final double pmf = Math.exp(Arithmetic.logFactorial(samples)
+                - Arithmetic.logFactorial(mode)
+                - Arithmetic.logFactorial(samples - mode) + mode * Math.log(q)
+                + (samples - mode) * Math.log1p(-q));
+
+        u -= pmf;
+
+        if (u <= 0)
+            return mode;
+
+        double lowPmf = pmf, highPmf = pmf;
+        int low = mode, high = mode;
+
+        while (low > 0 || high < samples) {
+            if (high < samples) {
+                highPmf *= ratio * (samples - high) / (high + 1);
+                high += 1;
+                u -= highPmf;
+
+                if (u <= 0)
+                    return high;
+            }
+
+            if (low > 0) {
+                lowPmf *= low / (ratio * (samples - low + 1));
+                low -= 1;
+                u -= lowPmf;
+
+                if (u <= 0)
+                    return low;
+            }
+        }
+
+        // the remainder of u is a rounding error
+        return mode;
+    }
+
+    /**
+     * Returns the probability that a sample from the normal distribution with
+     * the given mean and standard deviation, truncated to [0, 1], exceeds the
+     * threshold.
+     *
+     * @param mean      Mean within [0, 1]
+     * @param sd        Standard deviation
+     * @param threshold Threshold
+     * @return Probability
+     */
+    public static double exceedance(double mean, double sd, double threshold) {
+        if (mean > 1d || mean < 0d)
+            throw new IllegalArgumentException(String.format(
+                    "The mean must be between [0, 1], but was %.2f.", mean));
+
+        if (threshold >= 1d)
+            return 0d;
+        else if (threshold < 0d)
+            return 1d;
+        else if (!(sd > 0d))
+            return mean > threshold ? 1d : 0d;
+
+        final double low = -mean / sd;
+        final double high = (1 - mean) / sd;
+        final double t = (threshold - mean) / sd;
+
+        final double total = Probability.normal(high) - Probability.normal(low);
+
+        // upper tails above the mean avoid cancellation close to one
+        final double above = t > 0
+                ? Probability.normal(-t) - Probability.normal(-high)
+                : Probability.normal(high) - Probability.normal(t);
+
+        return Math.min(1d, Math.max(0d, above / total));
+    }
+}
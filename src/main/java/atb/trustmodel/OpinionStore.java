@@ -0,0 +1,264 @@
+/*
+ * Copyright (c) 2013 David Jelenc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     David Jelenc - initial API and implementation
+ */
+package atb.trustmodel;
+
+import atb.common.MemorySizes;
+
+/**
+ * A sparse store of the latest opinions that reporters gave about targets.
+ * <p>
+ * Opinions about each target are kept in columns of primitive arrays (reporter,
+ * internal trust degree and time), so the memory footprint is proportional to
+ * the number of stored opinions rather than to the square of the number of
+ * agents. A hash table maps pairs (reporter, target) to positions in the
+ * columns, which makes overwriting an opinion a constant-time operation.
+ * Opinions can be iterated by targets and by reporters; opinions are never
+ * removed.
+ *
+ * @author David
+ */
+public final class OpinionStore {
+    private static final int[] NO_INTS = new int[0];
+    private static final double[] NO_DOUBLES = new double[0];
+
+    // columns of opinions by targets
+    private int[][] reporters = new int[0][];
+    private double[][] trustDegrees = new double[0][];
+    private int[][] times = new int[0][];
+    private int[] sizes = new int[0];
+
+    // targets by reporters
+    private int[][] targets = new int[0][];
+    private int[] targetSizes = new int[0];
+
+    // positions of opinions in columns, keyed by pairs (target, reporter)
+    private final LongHashIndex positions = new LongHashIndex();
+
+    // one more than the largest target with an opinion
+    private int targetLimit;
+
+    /**
+     * Stores the opinion of the reporter about the target and replaces the
+     * previous one, if it exists.
+     *
+     * @param reporter    Agent that gave the opinion
+     * @param target      Agent that the opinion is about
+     * @param trustDegree Internal trust degree
+     * @param time        Time of the opinion
+     * @return True, if this is the first opinion of the reporter about the
+     * target
+     */
+    public boolean put(int reporter, int target, double trustDegree, int time) {
+        if (reporter < 0 || target < 0)
+            throw new IllegalArgumentException(String.format(
+                    "Invalid opinion of %d about %d", reporter, target));
+
+        final long key = key(target, reporter);
+        final int slot = positions.find(key);
+
+        if (slot >= 0) {
+            trustDegrees[target][positions.valueAt(slot)] = trustDegree;
+            times[target][positions.valueAt(slot)] = time;
+            return false;
+        }
+
+        // append to the columns of the target
+        if (target >= sizes.length) {
+            sizes = AgentArrays.ensureIndex(sizes, target, 0);
+            reporters = AgentArrays.ensureIndex(reporters, target);
+            trustDegrees = AgentArrays.ensureIndex(trustDegrees, target);
+            times = AgentArrays.ensureIndex(times, target);
+        }
+
+        final int position = sizes[target]++;
+        reporters[target] = AgentArrays.ensureIndex(
+                null == reporters[target] ? NO_INTS : reporters[target],
+                position, 0);
+        trustDegrees[target] = AgentArrays.ensureIndex(
+                null == trustDegrees[target] ? NO_DOUBLES : trustDegrees[target],
+                position, 0d);
+        times[target] = AgentArrays.ensureIndex(
+                null == times[target] ? NO_INTS : times[target], position, 0);
+
+        targetLimit = Math.max(targetLimit, target + 1);
+        reporters[target][position] = reporter;
+        trustDegrees[target][position] = trustDegree;
+        times[target][position] = time;
+
+        // append to the targets of the reporter
+        if (reporter >= targetSizes.length) {
+            targetSizes = AgentArrays.ensureIndex(targetSizes, reporter, 0);
+            targets = AgentArrays.ensureIndex(targets, reporter);
+        }
+
+        final int index = targetSizes[reporter]++;
+        targets[reporter] = AgentArrays.ensureIndex(
+                null == targets[reporter] ? NO_INTS : targets[reporter],
+                index, 0);
+        targets[reporter][index] = target;
+
+        positions.add(key, position);
+        return true;
+    }
+
+    /**
+     * Returns the number of stored opinions.
+     *
+     * @return Number of opinions
+     */
+    public int size() {
+        return positions.size();
+    }
+
+    /**
+     * Returns one more than the largest agent that has an opinion about it, so
+     * that targets can be iterated from 0 up to, but excluding, this value.
+     *
+     * @return Bound on targets
+     */
+    public int targetLimit() {
+        return targetLimit;
+    }
+
+    /**
+     * Returns the number of opinions about the target.
+     *
+     * @param target Target
+     * @return Number of opinions
+     */
+    public int size(int target) {
+        return target < sizes.length ? sizes[target] : 0;
+    }
+
+    /**
+     * Returns the reporters of opinions about the target. Only the first
+     * {@link #size(int)} entries are valid; the array must not be modified.
+     *
+     * @param target Target
+     * @return Reporters
+     */
+    public int[] getReporters(int target) {
+        return 0 == size(target) ? NO_INTS : reporters[target];
+    }
+
+    /**
+     * Returns the internal trust degrees of opinions about the target, in the
+     * order of {@link #getReporters(int)}. Only the first {@link #size(int)}
+     * entries are valid; the array must not be modified.
+     *
+     * @param target Target
+     * @return Internal trust degrees
+     */
+    public double[] getTrustDegrees(int target) {
+        return 0 == size(target) ? NO_DOUBLES : trustDegrees[target];
+    }
+
+    /**
+     * Returns the times of opinions about the target, in the order of
+     * {@link #getReporters(int)}. Only the first {@link #size(int)} entries
+     * are valid; the array must not be modified.
+     *
+     * @param target Target
+     * @return Times
+     */
+    public int[] getTimes(int target) {
+        return 0 == size(target) ? NO_INTS : times[target];
+    }
+
+    /**
+     * Returns the position of the opinion of the reporter in the columns of
+     * the target.
+     *
+     * @param reporter Reporter
+     * @param target   Target
+     * @return Position or -1, if the reporter gave no opinion about the target
+     */
+    public int indexOf(int reporter, int target) {
+        final int slot = positions.find(key(target, reporter));
+        return slot < 0 ? -1 : positions.valueAt(slot);
+    }
+
+    /**
+     * Returns the internal trust degree that the reporter gave about the
+     * target.
+     *
+     * @param reporter Reporter
+     * @param target   Target
+     * @return Internal trust degree or {@link Double#NaN}, if there is no such
+     * opinion
+     */
+    public double getTrustDegree(int reporter, int target) {
+        final int position = indexOf(reporter, target);
+        return position < 0 ? Double.NaN : trustDegrees[target][position];
+    }
+
+    /**
+     * Returns the number of targets that the reporter gave opinions about.
+     *
+     * @param reporter Reporter
+     * @return Number of targets
+     */
+    public int sizeByReporter(int reporter) {
+        return reporter < targetSizes.length ? targetSizes[reporter] : 0;
+    }
+
+    /**
+     * Returns the targets that the reporter gave opinions about. Only the
+     * first {@link #sizeByReporter(int)} entries are valid; the array must not
+     * be modified.
+     *
+     * @param reporter Reporter
+     * @return Targets
+     */
+    public int[] getTargets(int reporter) {
+        return 0 == sizeByReporter(reporter) ? NO_INTS : targets[reporter];
+    }
+
+    /**
+     * Returns the approximate number of bytes that the store retains.
+     *
+     * @return Number of bytes
+     */
+    public long retainedBytes() {
+        return MemorySizes.object(7 * MemorySizes.REFERENCE + 4)
+                + MemorySizes.deep(reporters) + MemorySizes.deep(trustDegrees)
+                + MemorySizes.deep(times) + MemorySizes.deep(sizes)
+                + MemorySizes.deep(targets) + MemorySizes.deep(targetSizes)
+                + positions.retainedBytes();
+    }
+
+    /**
+     * Estimates the number of bytes that a store retains when every agent
+     * gave an opinion about every agent. Columns grow geometrically, so they
+     * may be up to twice as long as needed.
+     *
+     * @param agents Number of agents
+     * @return Number of bytes
+     */
+    public static long estimateBytes(int agents) {
+        final long n = agents, capacity = 2 * n;
+        final int ref = MemorySizes.REFERENCE;
+
+        // columns by targets, targets by reporters and their sizes
+        final long columns = 4 * MemorySizes.array(capacity, ref)
+                + 2 * MemorySizes.array(capacity, 4) + n
+                * (2 * MemorySizes.array(capacity, 4)
+                + MemorySizes.array(capacity, 8)
+                + MemorySizes.array(capacity, 4));
+
+        return MemorySizes.object(7 * ref + 4) + columns
+                + LongHashIndex.estimateBytes(n * n);
+    }
+
+    private static long key(int target, int reporter) {
+        return ((long) target << 32) | reporter;
+    }
+}
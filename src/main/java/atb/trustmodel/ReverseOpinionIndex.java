@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2013 David Jelenc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     David Jelenc - initial API and implementation
+ */
+package atb.trustmodel;
+
+import atb.common.MemorySizes;
+
+import java.util.Arrays;
+
+/**
+ * An index of reporters that gave opinions about agents.
+ * <p>
+ * Trust models add a pair (target, reporter) when they store the first
+ * opinion of the reporter about the target, and then iterate over the actual
+ * reporters of a target instead of over all agents. Each pair must be added
+ * only once; the index does not check for duplicates.
+ *
+ * @author David
+ */
+public final class ReverseOpinionIndex {
+    private static final int[] EMPTY = new int[0];
+
+    // reporters by targets
+    private int[][] reporters = new int[0][];
+    private int[] sizes = new int[0];
+
+    /**
+     * Records that the reporter gave an opinion about the target.
+     *
+     * @param target   Agent that the opinion is about
+     * @param reporter Agent that gave the opinion
+     */
+    public void add(int target, int reporter) {
+        if (target >= sizes.length) {
+            final int capacity = Math.max(target + 1, 2 * sizes.length);
+            reporters = Arrays.copyOf(reporters, capacity);
+            sizes = Arrays.copyOf(sizes, capacity);
+        }
+
+        int[] list = reporters[target];
+
+        if (null == list) {
+            list = new int[4];
+            reporters[target] = list;
+        } else if (sizes[target] == list.length) {
+            list = Arrays.copyOf(list, 2 * list.length);
+            reporters[target] = list;
+        }
+
+        list[sizes[target]++] = reporter;
+    }
+
+    /**
+     * Returns the number of reporters that gave opinions about the target.
+     *
+     * @param target Agent
+     * @return Number of reporters
+     */
+    public int size(int target) {
+        return target < sizes.length ? sizes[target] : 0;
+    }
+
+    /**
+     * Returns reporters that gave opinions about the target in the order in
+     * which they were added. Only the first {@link #size(int)} elements are
+     * valid; the array is shared and must not be modified.
+     *
+     * @param target Agent
+     * @return Array of reporters
+     */
+    public int[] getReporters(int target) {
+        return target < reporters.length && null != reporters[target]
+                ? reporters[target] : EMPTY;
+    }
+
+    /**
+     * Returns the approximate number of bytes that the index retains.
+     *
+     * @return Number of bytes
+     */
+    public long retainedBytes() {
+        return MemorySizes.object(2 * 4) + MemorySizes.deep(reporters)
+                + MemorySizes.deep(sizes);
+    }
+}
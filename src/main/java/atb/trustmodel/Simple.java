@@ -11,8 +11,12 @@
 package atb.trustmodel;
 
 import atb.interfaces.Experience;
+import atb.interfaces.IncrementalOpinions;
 import atb.interfaces.Opinion;
+import atb.interfaces.PrimitiveTrustModel;
 
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -27,28 +31,37 @@ import java.util.Map;
  *
  * @author David
  */
-public class Simple extends AbstractTrustModel<Double> {
+public class Simple extends AbstractTrustModel<Double> implements
+        PrimitiveTrustModel, IncrementalOpinions {
     // cumulative interaction outcomes
     protected double[] exSum;
 
     // interaction count
     protected int[] exCnt;
 
-    // received opinions
+    private static final double[] EMPTY = new double[0];
+
+    // received opinions; rows are reporters, columns agents; rows grow on
+    // demand and may be shorter than the number of agents
     protected double[][] op;
 
-    // computed reputation
-    protected double[] rep;
+    // running sum and count of received opinions about each agent
+    protected double[] opSum;
+    protected int[] opCnt;
 
     @Override
     public void initialize(Object... params) {
+        invalidateTrust();
         exSum = new double[0];
         exCnt = new int[0];
         op = new double[0][0];
+        opSum = new double[0];
+        opCnt = new int[0];
     }
 
     @Override
     public void processExperiences(List<Experience> experiences) {
+        invalidateTrust();
         for (Experience e : experiences) {
             exSum[e.agent] += e.outcome;
             exCnt[e.agent] += 1;
@@ -57,72 +70,105 @@ public class Simple extends AbstractTrustModel<Double> {
 
     @Override
     public void processOpinions(List<Opinion> opinions) {
+        invalidateTrust();
         for (Opinion o : opinions) {
+            op[o.agent1] = AgentArrays.ensureIndex(op[o.agent1], o.agent2,
+                    Double.NaN);
+            final double previous = op[o.agent1][o.agent2];
+
+            // replace the previous opinion of the reporter
+            if (Double.isNaN(previous)) {
+                opCnt[o.agent2] += 1;
+                opSum[o.agent2] += o.internalTrustDegree;
+            } else {
+                opSum[o.agent2] += o.internalTrustDegree - previous;
+            }
+
             op[o.agent1][o.agent2] = o.internalTrustDegree;
         }
     }
 
     @Override
     public void calculateTrust() {
-        // pass
+        invalidateTrust();
     }
 
     @Override
-    public Map<Integer, Double> getTrust(int service) {
+    protected Map<Integer, Double> computeTrust(int service) {
         final Map<Integer, Double> trust = new LinkedHashMap<Integer, Double>();
 
-        // compute reputations
-        rep = new double[exSum.length];
+        for (int agent = 0; agent < exCnt.length; agent++) {
+            final double t = combine(agent);
 
-        for (int target = 0; target < op.length; target++) {
-            double sum = 0;
-            int count = 0;
+            if (!Double.isNaN(t))
+                trust.put(agent, t);
+        }
 
-            for (int reporter = 0; reporter < op.length; reporter++) {
-                if (!Double.isNaN(op[reporter][target])) {
-                    sum += op[reporter][target];
-                    count += 1;
-                }
-            }
+        return trust;
+    }
 
-            if (count > 0)
-                rep[target] = sum / count;
-            else
-                rep[target] = Double.NaN;
-        }
+    @Override
+    public void getTrust(int service, double[] trust, BitSet known) {
+        final int n = Math.min(exCnt.length, trust.length);
 
-        // combine experiences and reputation into trust
-        for (int agent = 0; agent < exCnt.length; agent++) {
-            double w_e = 0, w_r = 0, t = 0;
-
-            // compute weights
-            w_e = Math.min(exCnt[agent], 3) / 3d;
-            w_r = (Double.isNaN(rep[agent]) ? 0 : 1 - w_e);
-
-            // aggregate data
-            if (w_e > 0 || w_r > 0) {
-                if (w_e > 0 && w_r > 0) { // experience & opinions
-                    t = w_e * exSum[agent] / exCnt[agent] + w_r * rep[agent];
-                } else if (w_r > 0) { // opinions only
-                    t = rep[agent];
-                } else { // only experiences
-                    t = exSum[agent] / exCnt[agent];
-                }
+        for (int agent = 0; agent < n; agent++) {
+            final double t = combine(agent);
 
-                trust.put(agent, t);
+            if (!Double.isNaN(t)) {
+                trust[agent] = t;
+                known.set(agent);
             }
         }
+    }
 
-        return trust;
+    /**
+     * Computes the reputation of the given agent as the average of received
+     * opinions.
+     *
+     * @param agent Agent
+     * @return Reputation or {@link Double#NaN}, if there are no opinions
+     */
+    protected double reputation(int agent) {
+        if (agent < opCnt.length && opCnt[agent] > 0)
+            return opSum[agent] / opCnt[agent];
+        else
+            return Double.NaN;
+    }
+
+    /**
+     * Combines experiences and reputation of the given agent into trust.
+     *
+     * @param agent Agent
+     * @return Trust degree or {@link Double#NaN}, if the agent is unknown
+     */
+    protected double combine(int agent) {
+        double w_e = 0, w_r = 0;
+        final double rep = reputation(agent);
+
+        // compute weights
+        w_e = Math.min(exCnt[agent], 3) / 3d;
+        w_r = (Double.isNaN(rep) ? 0 : 1 - w_e);
+
+        // aggregate data
+        if (w_e > 0 && w_r > 0) { // experience & opinions
+            return w_e * exSum[agent] / exCnt[agent] + w_r * rep;
+        } else if (w_r > 0) { // opinions only
+            return rep;
+        } else if (w_e > 0) { // only experiences
+            return exSum[agent] / exCnt[agent];
+        } else {
+            return Double.NaN;
+        }
     }
 
     @Override
     public void setCurrentTime(int time) {
-
+        invalidateTrust();
     }
 
     @Override
     public void setAgents(List<Integer> agents) {
+        invalidateTrust();
         // current size of opinions' data structure
         int max = Math.max(op.length - 1, exSum.length - 1);
 
@@ -131,18 +177,11 @@ public class Simple extends AbstractTrustModel<Double> {
             if (agent > max)
                 max = agent;
 
-        // resize opinions' array
+        // resize opinions' array; rows are not copied
         if (max > op.length - 1) {
-            double[][] newOp = new double[max + 1][max + 1];
-
-            for (int i = 0; i < newOp.length; i++)
-                for (int j = 0; j < newOp.length; j++)
-                    newOp[i][j] = Double.NaN;
-
-            for (int i = 0; i < op.length; i++)
-                System.arraycopy(op[i], 0, newOp[i], 0, op.length);
-
-            op = newOp;
+            final int rows = op.length;
+            op = Arrays.copyOf(op, max + 1);
+            Arrays.fill(op, rows, op.length, EMPTY);
         }
 
         // resize experiences' array
@@ -154,11 +193,20 @@ public class Simple extends AbstractTrustModel<Double> {
             int[] newExCnt = new int[max + 1];
             System.arraycopy(exCnt, 0, newExCnt, 0, exCnt.length);
             exCnt = newExCnt;
+
+            double[] newOpSum = new double[max + 1];
+            System.arraycopy(opSum, 0, newOpSum, 0, opSum.length);
+            opSum = newOpSum;
+
+            int[] newOpCnt = new int[max + 1];
+            System.arraycopy(opCnt, 0, newOpCnt, 0, opCnt.length);
+            opCnt = newOpCnt;
         }
     }
 
     @Override
     public void setServices(List<Integer> services) {
+        invalidateTrust();
     }
 
 }
@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2013 David Jelenc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     David Jelenc - initial API and implementation
+ */
+package atb.trustmodel;
+
+import atb.common.MemorySizes;
+
+import java.util.Arrays;
+
+/**
+ * A sparse matrix of non-negative integer counts.
+ * <p>
+ * Only non-zero entries are stored, in an open-addressing hash table keyed by
+ * row and column, so the footprint is proportional to the number of non-zero
+ * entries. Setting, reading and clearing an entry takes constant time. The
+ * matrix maintains the sum of every column and can be exported into the
+ * compressed sparse row (CSR) form.
+ *
+ * @author David
+ */
+public final class SparseCountMatrix {
+    // non-zero counts keyed by row and column
+    private final LongHashIndex entries = new LongHashIndex();
+
+    // sums of columns
+    private int[] columnSums = new int[0];
+
+    /**
+     * Returns the count at the given row and column.
+     *
+     * @param row Row
+     * @param col Column
+     * @return The count, or 0 if the entry is empty
+     */
+    public int get(int row, int col) {
+        final int slot = entries.find(key(row, col));
+        return slot < 0 ? 0 : entries.valueAt(slot);
+    }
+
+    /**
+     * Sets the count at the given row and column. Setting a zero count removes
+     * the entry.
+     *
+     * @param row   Row
+     * @param col   Column
+     * @param value A non-negative count
+     * @return The previous count
+     */
+    public int set(int row, int col, int value) {
+        if (value < 0 || row < 0 || col < 0)
+            throw new IllegalArgumentException(String.format(
+                    "Invalid entry (%d, %d) = %d", row, col, value));
+
+        final long key = key(row, col);
+        final int slot = entries.find(key);
+        final int previous = slot < 0 ? 0 : entries.valueAt(slot);
+
+        if (slot >= 0) {
+            if (value == 0)
+                entries.remove(slot);
+            else
+                entries.setValueAt(slot, value);
+        } else if (value > 0) {
+            entries.add(key, value);
+        }
+
+        if (col >= columnSums.length)
+            columnSums = Arrays.copyOf(columnSums,
+                    Math.max(col + 1, 2 * columnSums.length));
+
+        columnSums[col] += value - previous;
+        return previous;
+    }
+
+    /**
+     * Returns the sum of counts in the given column.
+     *
+     * @param col Column
+     * @return The sum of counts
+     */
+    public int getColumnSum(int col) {
+        return col < columnSums.length ? columnSums[col] : 0;
+    }
+
+    /**
+     * Returns the number of non-zero entries.
+     */
+    public int getNonZeros() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the approximate number of bytes that the matrix retains.
+     */
+    public long retainedBytes() {
+        return MemorySizes.object(2 * MemorySizes.REFERENCE)
+                + entries.retainedBytes() + MemorySizes.deep(columnSums);
+    }
+
+    /**
+     * Exports the first {@code rows} rows into the compressed sparse row form.
+     * Entries of the row {@code r} are stored at positions from
+     * {@code rowPointers[r]} (inclusive) to {@code rowPointers[r + 1]}
+     * (exclusive) of arrays {@code columns} and {@code counts}. Entries in
+     * rows beyond the given number are skipped.
+     *
+     * @param rows        Number of rows
+     * @param rowPointers Array of at least {@code rows + 1} elements
+     * @param columns     Array of at least {@link #getNonZeros()} elements
+     * @param counts      Array of at least {@link #getNonZeros()} elements
+     */
+    public void toCompressedRows(int rows, int[] rowPointers, int[] columns,
+                                 int[] counts) {
+        Arrays.fill(rowPointers, 0, rows + 1, 0);
+
+        for (int slot = 0; slot < entries.capacity(); slot++) {
+            final long key = entries.keyAt(slot);
+
+            if (key != LongHashIndex.EMPTY && row(key) < rows)
+                rowPointers[row(key) + 1]++;
+        }
+
+        for (int r = 0; r < rows; r++)
+            rowPointers[r + 1] += rowPointers[r];
+
+        // fill by rows, using the pointers as cursors and shifting them back
+        for (int slot = 0; slot < entries.capacity(); slot++) {
+            final long key = entries.keyAt(slot);
+
+            if (key != LongHashIndex.EMPTY && row(key) < rows) {
+                final int position = rowPointers[row(key)]++;
+                columns[position] = column(key);
+                counts[position] = entries.valueAt(slot);
+            }
+        }
+
+        for (int r = rows; r > 0; r--)
+            rowPointers[r] = rowPointers[r - 1];
+
+        rowPointers[0] = 0;
+    }
+
+    private static long key(int row, int col) {
+        return ((long) row << 32) | col;
+    }
+
+    private static int row(long key) {
+        return (int) (key >>> 32);
+    }
+
+    private static int column(long key) {
+        return (int) key;
+    }
+}
@@ -10,14 +10,18 @@
  */
 package atb.trustmodel;
 
-import cern.jet.random.Beta;
-import cern.jet.random.engine.MersenneTwister;
+import atb.common.AgentParallel;
+import atb.common.MemorySizes;
 import atb.common.Utils;
 import atb.interfaces.Experience;
+import atb.interfaces.IncrementalOpinions;
+import atb.interfaces.MemoryFootprint;
 import atb.interfaces.Opinion;
 import atb.interfaces.ParameterCondition;
 import atb.interfaces.ParametersPanel;
+import atb.interfaces.PrimitiveTrustModel;
 
+import java.util.BitSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -45,12 +49,21 @@ import java.util.Map;
  * parameter: OPINION_SAMPLE_NUM. Such sampling gives all opinions the same
  * weight (r + s = OPINION_SAMPLE_NUM). The parameter OPINION_SAMPLE_NUM also
  * needs to be large enough so that an opinion has a chance of falling into
- * every possible bin.
+ * every possible bin. Optionally, the number of positive samples can be drawn
+ * as a single binomial variate (see {@link #setBinomialSampling(boolean)}).
  * </ul>
+ * <p>
+ * Unlike other models, TRAVOS does not keep opinions in an
+ * {@link OpinionStore}. It keeps the sampled (r, s) pairs instead of the
+ * internal trust degrees and times that the store holds, and the pairs are
+ * part of its public state. Pairs are therefore kept in an {@link AgentMatrix},
+ * which grows without copying.
  *
  * @author David
  */
-public class Travos extends AbstractTrustModel<Double> {
+public class Travos extends AbstractTrustModel<Double> implements
+        PrimitiveTrustModel, MemoryFootprint, IncrementalOpinions,
+        AgentParallel.Holder {
     protected static final ParameterCondition<Double> VAL_THRESHOLD;
     protected static final ParameterCondition<Integer> VAL_SAMPLE_NUM;
     // parameters
@@ -59,7 +72,12 @@ public class Travos extends AbstractTrustModel<Double> {
     public static double OPINION_SAMPLE_SD = 0.1;
     public static double CONFIDENCE_THRESHOLD = 0.95;
     public static double ERROR = 0.2;
-    protected static Beta BETA = null;
+    // counts below this limit have their Beta integrals memoized
+    protected static final int INTEGRALS_LIMIT = 64;
+    // number of bins for observations about opinions
+    protected static final int BINS = 5;
+    // size of a BRSPair on the heap
+    protected static final long PAIR_BYTES = MemorySizes.object(2 * 8);
 
     static {
         VAL_SAMPLE_NUM = new ParameterCondition<Integer>() {
@@ -86,15 +104,28 @@ public class Travos extends AbstractTrustModel<Double> {
     // experiences
     public Map<Integer, BRSPair> experiences = null;
     // opinions
-    public BRSPair[][] opinions = null;
+    public AgentMatrix<BRSPair> opinions = null;
     // observations about opinions
     public Map<Integer, BRSPair[]> observations = null;
+    // reporters of opinions by agents
+    protected ReverseOpinionIndex reporters = new ReverseOpinionIndex();
+    // number of stored (reporter, agent) opinion pairs
+    private long storedOpinions = 0;
+    // memoized integrals of the Beta PDF
+    protected BetaIntegrals integrals = new BetaIntegrals(INTEGRALS_LIMIT);
+    // whether opinions are sampled with a single binomial variate
+    protected boolean binomialSampling = false;
+    // computes reputation of agents in parallel
+    protected AgentParallel parallel = new AgentParallel();
 
     @Override
     public void initialize(Object... params) {
+        invalidateTrust();
         experiences = new LinkedHashMap<Integer, BRSPair>();
         observations = new LinkedHashMap<Integer, BRSPair[]>();
-        opinions = new BRSPair[0][0];
+        opinions = new AgentMatrix<BRSPair>();
+        reporters = new ReverseOpinionIndex();
+        storedOpinions = 0;
 
         SATISFACTORY_THRESHOLD = Utils.extractParameter(VAL_THRESHOLD, 0,
                 params);
@@ -103,11 +134,12 @@ public class Travos extends AbstractTrustModel<Double> {
         CONFIDENCE_THRESHOLD = Utils.extractParameter(VAL_THRESHOLD, 3, params);
         ERROR = Utils.extractParameter(VAL_THRESHOLD, 4, params);
 
-        BETA = new Beta(1, 1, new MersenneTwister(generator.getSeed()));
+        integrals = new BetaIntegrals(INTEGRALS_LIMIT);
     }
 
     @Override
     public void processExperiences(List<Experience> exps) {
+        invalidateTrust();
         // expand data structures
         expandExperiences(exps);
 
@@ -127,12 +159,18 @@ public class Travos extends AbstractTrustModel<Double> {
             }
 
             // Update deception detection mechanism
-            for (int reporter = 0; reporter < opinions.length; reporter++) {
+            final int[] agentReporters = reporters.getReporters(e.agent);
+
+            for (int i = 0; i < reporters.size(e.agent); i++) {
+                final int reporter = agentReporters[i];
+
+                final BRSPair opinion = reporter < opinions.size()
+                        ? opinions.get(reporter, e.agent) : null;
 
                 // if an opinion exists
-                if (null != opinions[reporter][e.agent]) {
-                    final double op_r = opinions[reporter][e.agent].R;
-                    final double op_s = opinions[reporter][e.agent].S;
+                if (null != opinion) {
+                    final double op_r = opinion.R;
+                    final double op_s = opinion.S;
 
                     // determine the bin
                     final int bin = determineBin(op_r, op_s);
@@ -146,32 +184,59 @@ public class Travos extends AbstractTrustModel<Double> {
         }
     }
 
+    /**
+     * Sets whether the number of positive samples of an opinion is drawn as a
+     * single binomial variate instead of drawing every sample from the
+     * truncated normal distribution (see {@link OpinionSampling}). Defaults to
+     * false.
+     *
+     * @param binomialSampling True to draw a single binomial variate
+     */
+    public void setBinomialSampling(boolean binomialSampling) {
+        this.binomialSampling = binomialSampling;
+    }
+
+    /**
+     * Sets how reputation of agents is computed in parallel. Probabilities of
+     * accuracy of reporters are computed beforehand, so that parallel
+     * computations only read shared data. Defaults to a new
+     * {@link AgentParallel}.
+     *
+     * @param parallel Parallel execution of agents
+     */
+    @Override
+    public void setParallel(AgentParallel parallel) {
+        this.parallel = parallel;
+    }
+
     @Override
     public void processOpinions(List<Opinion> ops) {
+        invalidateTrust();
         // expand data structures
         expandOpinions(ops);
 
         // store opinions
         for (Opinion o : ops) {
             // sample opinions to obtain (r, s) pair
-            int op_r = 0, op_s = 0;
-
-            for (int i = 0; i < OPINION_SAMPLE_NUM; i++) {
-                if (generator.nextDoubleFromUnitTND(o.internalTrustDegree,
-                        OPINION_SAMPLE_SD) > SATISFACTORY_THRESHOLD) {
-                    op_r += 1;
-                } else {
-                    op_s += 1;
-                }
+            final int samples = (int) Math.ceil(OPINION_SAMPLE_NUM);
+            final int op_r = binomialSampling
+                    ? OpinionSampling.sampleBinomial(generator,
+                    o.internalTrustDegree, OPINION_SAMPLE_SD,
+                    SATISFACTORY_THRESHOLD, samples)
+                    : OpinionSampling.sample(generator, o.internalTrustDegree,
+                    OPINION_SAMPLE_SD, SATISFACTORY_THRESHOLD, samples);
+            final int op_s = samples - op_r;
+
+            if (null == opinions.set(o.agent1, o.agent2, new BRSPair(op_r, op_s))) {
+                reporters.add(o.agent2, o.agent1);
+                storedOpinions += 1;
             }
-
-            opinions[o.agent1][o.agent2] = new BRSPair(op_r, op_s);
         }
     }
 
     @Override
     public void calculateTrust() {
-        // weird.
+        invalidateTrust();
     }
 
     /**
@@ -200,6 +265,9 @@ public class Travos extends AbstractTrustModel<Double> {
      * Integrates the Beta probability density function. Parameter alpha is
      * defined by m + 1, and Beta by n + 1. The PDF is integrated between low
      * and high values, respectively.
+     * <p>
+     * Integrals for small integer counts are memoized (see
+     * {@link BetaIntegrals}).
      *
      * @param m     For setting alpha
      * @param n     For setting beta
@@ -208,90 +276,156 @@ public class Travos extends AbstractTrustModel<Double> {
      * @return The integral
      */
     public double integrate(double m, double n, double _low, double _high) {
-        final double low = Math.min(Math.max(0, _low), 1);
-        final double high = Math.min(Math.max(0, _high), 1);
-
-        BETA.setState(m + 1, n + 1);
-
-        return BETA.cdf(high) - BETA.cdf(low);
+        return integrals.integrate(m, n, _low, _high);
     }
 
     @Override
-    public Map<Integer, Double> getTrust(int service) {
+    protected Map<Integer, Double> computeTrust(int service) {
+        int size = opinions.size();
+
+        for (int agent : experiences.keySet())
+            size = Math.max(size, agent + 1);
+
+        final double[] values = new double[size];
+        final BitSet known = new BitSet(size);
+
+        getTrust(service, values, known);
+
         // trust evaluations
-        Map<Integer, Double> trust = new LinkedHashMap<Integer, Double>();
+        final Map<Integer, Double> trust = new LinkedHashMap<Integer, Double>();
 
+        for (int agent = known.nextSetBit(0); agent >= 0; agent = known
+                .nextSetBit(agent + 1))
+            trust.put(agent, values[agent]);
+
+        return trust;
+    }
+
+    @Override
+    public void getTrust(int service, final double[] trust, final BitSet known) {
         for (Map.Entry<Integer, BRSPair> e : experiences.entrySet()) {
             final BRSPair p = e.getValue();
             final int agent = e.getKey();
 
+            if (agent >= trust.length)
+                continue;
+
             final double mean = (p.R + 1) / (p.R + p.S + 2);
             final double confidence = integrate(p.R, p.S, mean - ERROR,
                     mean + ERROR);
 
             // if confidence is high enough this is the final score
-            if (confidence > CONFIDENCE_THRESHOLD)
-                trust.put(agent, mean);
+            if (confidence > CONFIDENCE_THRESHOLD) {
+                trust[agent] = mean;
+                known.set(agent);
+            }
         }
 
         // compute reputation towards remaining agents
-        for (int agent = 0; agent < opinions.length; agent++) {
-            // flag to denote whether an agent actually exists
-            // (because some IDs may not be used)
-            boolean agentExists = false;
-
-            // omit the cases when trust has been computed only from experiences
-            if (!trust.containsKey(agent)) {
-                final BRSPair rep = new BRSPair();
-
-                // add experiences (if they exist)
-                // this part is not clear from the paper
-                if (experiences.containsKey(agent)) {
-                    rep.R += experiences.get(agent).R;
-                    rep.S += experiences.get(agent).S;
-                    agentExists = true;
+        final int agents = Math.min(opinions.size(), trust.length);
+        final double[] accuracies = accuracies(opinions.size());
+        final boolean[] exists = new boolean[agents];
+
+        parallel.forEach(agents, new AgentParallel.Block() {
+            @Override
+            public void compute(int from, int to) {
+                for (int agent = from; agent < to; agent++) {
+                    // omit the cases when trust has been computed only from
+                    // experiences
+                    if (!known.get(agent))
+                        exists[agent] = reputation(agent, accuracies, trust);
                 }
+            }
+        });
 
-                for (int reporter = 0; reporter < opinions.length; reporter++) {
-                    final BRSPair o = opinions[reporter][agent];
+        for (int agent = 0; agent < agents; agent++)
+            if (exists[agent])
+                known.set(agent);
+    }
 
-                    // if opinion exists
-                    if (null != o) {
-                        agentExists = true;
-                        // compute (m, n) from the opinion
-                        final double m = o.R;
-                        final double n = o.S;
+    /**
+     * Computes reputation of the given agent from experiences and opinions
+     * and stores it into the given array.
+     *
+     * @param agent      Agent
+     * @param accuracies Probabilities of accuracy (see
+     *                   {@link #accuracies(int)})
+     * @param trust      Array that receives reputation
+     * @return True if the agent actually exists, since some IDs may not be
+     * used
+     */
+    protected boolean reputation(int agent, double[] accuracies, double[] trust) {
+        // flag to denote whether an agent actually exists
+        boolean agentExists = false;
+        final BRSPair rep = new BRSPair();
+
+        // add experiences (if they exist)
+        // this part is not clear from the paper
+        final BRSPair experience = experiences.get(agent);
+
+        if (null != experience) {
+            rep.R += experience.R;
+            rep.S += experience.S;
+            agentExists = true;
+        }
 
-                        // determine the bin of this opinion
-                        final int bin = determineBin(m, n);
+        for (int reporter = 0; reporter < opinions.size(); reporter++) {
+            final BRSPair o = opinions.get(reporter, agent);
 
-                        // get values from the bin
-                        final BRSPair obs = observations.get(reporter)[bin];
+            // if opinion exists
+            if (null != o) {
+                agentExists = true;
+                // compute (m, n) from the opinion
+                final double m = o.R;
+                final double n = o.S;
 
-                        // compute probability of accuracy
-                        double p_acc = integrate(obs.R, obs.S, bin * 0.2,
-                                bin * 0.2 + 0.2);
+                // determine the bin of this opinion
+                final int bin = determineBin(m, n);
 
-                        // compute adjusted mean and adjusted standard deviation
-                        final double a_mean = adjustMean(m, n, p_acc);
-                        final double a_std = adjustSD(m, n, p_acc);
+                // probability of accuracy from the bin
+                final double p_acc = accuracies[reporter * BINS + bin];
 
-                        // compute adjusted m and n
-                        final double adjusted_m = scaleM(a_mean, a_std);
-                        final double adjusted_s = scaleN(a_mean, a_std);
+                // compute adjusted mean and adjusted standard deviation
+                final double a_mean = adjustMean(m, n, p_acc);
+                final double a_std = adjustSD(m, n, p_acc);
 
-                        // and add them to the reputation
-                        rep.R += adjusted_m;
-                        rep.S += adjusted_s;
-                    }
-                }
+                // compute adjusted m and n
+                final double adjusted_m = scaleM(a_mean, a_std);
+                final double adjusted_s = scaleN(a_mean, a_std);
 
-                if (agentExists)
-                    trust.put(agent, (rep.R + 1) / (rep.R + rep.S + 2));
+                // and add them to the reputation
+                rep.R += adjusted_m;
+                rep.S += adjusted_s;
             }
         }
 
-        return trust;
+        if (agentExists)
+            trust[agent] = (rep.R + 1) / (rep.R + rep.S + 2);
+
+        return agentExists;
+    }
+
+    /**
+     * Returns probabilities that the opinions of reporters that fall into
+     * individual bins are accurate. Since a probability depends only on the
+     * reporter and the bin, it is computed once per trust computation.
+     *
+     * @param reporters Number of reporters
+     * @return Table of probabilities, indexed by reporter * BINS + bin
+     */
+    protected double[] accuracies(int reporters) {
+        final double[] accuracies = new double[reporters * BINS];
+
+        for (int reporter = 0; reporter < reporters; reporter++) {
+            final BRSPair[] obs = observations.get(reporter);
+
+            if (null != obs)
+                for (int bin = 0; bin < BINS; bin++)
+                    accuracies[reporter * BINS + bin] = integrate(
+                            obs[bin].R, obs[bin].S, bin * 0.2, bin * 0.2 + 0.2);
+        }
+
+        return accuracies;
     }
 
     /**
@@ -362,7 +496,7 @@ public class Travos extends AbstractTrustModel<Double> {
      * @param ops Set of opinion tuples
      */
     protected void expandOpinions(List<Opinion> ops) {
-        int max = opinions.length - 1;
+        int max = opinions.size() - 1;
         final int limit = max;
 
         for (Opinion o : ops) {
@@ -383,7 +517,7 @@ public class Travos extends AbstractTrustModel<Double> {
      * @param experience Set of experience tuples
      */
     protected void expandExperiences(List<Experience> experience) {
-        int max = opinions.length - 1;
+        int max = opinions.size() - 1;
         final int limit = max;
 
         for (Experience e : experience)
@@ -409,21 +543,17 @@ public class Travos extends AbstractTrustModel<Double> {
             }
         }
 
-        // copy opinions
-        BRSPair[][] newOp = new BRSPair[max + 1][max + 1];
-        for (int i = 0; i < opinions.length; i++) {
-            System.arraycopy(opinions[i], 0, newOp[i], 0, opinions[i].length);
-        }
-
-        opinions = newOp;
+        opinions.ensureSize(max + 1);
     }
 
     @Override
     public void setAgents(List<Integer> agents) {
+        invalidateTrust();
     }
 
     @Override
     public void setServices(List<Integer> services) {
+        invalidateTrust();
     }
 
     @Override
@@ -432,7 +562,37 @@ public class Travos extends AbstractTrustModel<Double> {
     }
 
     @Override
-    public void setCurrentTime(int time) {
+    public long estimateRetainedBytes(int agents, int services) {
+        final int ref = MemorySizes.REFERENCE;
+        final long n = agents;
+
+        final long experienceBytes = MemorySizes.map(n) + n * PAIR_BYTES;
+        final long observationBytes = MemorySizes.map(n) + n
+                * (MemorySizes.array(BINS, ref) + BINS * PAIR_BYTES);
+        final long opinionBytes = MemorySizes.object(2 * 4)
+                + MemorySizes.array(n, ref) + n * MemorySizes.array(n, ref)
+                + n * n * PAIR_BYTES;
+        final long reporterBytes = MemorySizes.object(2 * ref)
+                + MemorySizes.array(n, ref) + MemorySizes.array(n, 4) + n
+                * MemorySizes.array(n, 4);
+
+        return experienceBytes + observationBytes + opinionBytes
+                + reporterBytes + BetaIntegrals.maximalBytes(INTEGRALS_LIMIT);
+    }
 
+    @Override
+    public long getRetainedBytes() {
+        final long pairs = experiences.size() + storedOpinions;
+
+        return MemorySizes.map(experiences.size())
+                + MemorySizes.map(observations.size()) + observations.size()
+                * (MemorySizes.array(BINS, MemorySizes.REFERENCE) + BINS
+                * PAIR_BYTES) + pairs * PAIR_BYTES + opinions.retainedBytes()
+                + reporters.retainedBytes() + integrals.retainedBytes();
+    }
+
+    @Override
+    public void setCurrentTime(int time) {
+        invalidateTrust();
     }
 }
\ No newline at end of file
@@ -42,6 +42,7 @@ public class TravosSelectingInteractionPartners extends Travos
     @Override
     public void setCurrentTime(int time) {
         this.time = time;
+        invalidateTrust();
     }
 
     @Override
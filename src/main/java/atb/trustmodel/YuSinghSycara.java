@@ -10,9 +10,15 @@
  */
 package atb.trustmodel;
 
+import atb.common.AgentParallel;
+import atb.common.MemorySizes;
 import atb.interfaces.Experience;
+import atb.interfaces.IncrementalOpinions;
+import atb.interfaces.MemoryFootprint;
 import atb.interfaces.Opinion;
+import atb.interfaces.PrimitiveTrustModel;
 
+import java.util.BitSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -27,7 +33,9 @@ import java.util.Map;
  *
  * @author David
  */
-public class YuSinghSycara extends AbstractTrustModel<Double> {
+public class YuSinghSycara extends AbstractTrustModel<Double> implements
+        PrimitiveTrustModel, IncrementalOpinions, MemoryFootprint,
+        AgentParallel.Holder {
 
     // discount factor for liars
     public static final double BETA = 0.5;
@@ -35,18 +43,24 @@ public class YuSinghSycara extends AbstractTrustModel<Double> {
 
     public Map<Integer, double[]> local = null;
 
-    public Opinion[][] opinions = null;
+    // latest opinions of witnesses
+    public OpinionStore opinions = null;
     public double[] credibility = null;
 
+    // computes scores of agents in parallel
+    protected AgentParallel parallel = new AgentParallel();
+
     @Override
     public void initialize(Object... params) {
+        invalidateTrust();
         local = new LinkedHashMap<Integer, double[]>();
-        opinions = new Opinion[0][0];
+        opinions = new OpinionStore();
         credibility = new double[0];
     }
 
     @Override
     public void processExperiences(List<Experience> exps) {
+        invalidateTrust();
         expandArrays(exps, null);
 
         for (Experience e : exps) {
@@ -62,81 +76,40 @@ public class YuSinghSycara extends AbstractTrustModel<Double> {
             history[0] = e.outcome;
 
             // update credibility of agents who gave an opinion about this agent
-            for (int reporter = 0; reporter < opinions.length; reporter++) {
-                final Opinion opinion = opinions[reporter][e.agent];
+            final int[] reporters = opinions.getReporters(e.agent);
+            final double[] itds = opinions.getTrustDegrees(e.agent);
 
-                if (null != opinion) {
-                    final double factor = 1 - (1 - BETA)
-                            * Math.abs(opinion.internalTrustDegree - e.outcome);
+            for (int i = 0; i < opinions.size(e.agent); i++) {
+                final double factor = 1 - (1 - BETA)
+                        * Math.abs(itds[i] - e.outcome);
 
-                    credibility[reporter] *= factor;
-                }
+                credibility[reporters[i]] *= factor;
             }
         }
     }
 
     @Override
     public void processOpinions(List<Opinion> ops) {
+        invalidateTrust();
         expandArrays(null, ops);
 
         for (Opinion o : ops)
-            opinions[o.agent1][o.agent2] = o;
+            opinions.put(o.agent1, o.agent2, o.internalTrustDegree, o.time);
     }
 
     @Override
     public void calculateTrust() {
-        // empty
+        invalidateTrust();
     }
 
-    public Map<Integer, Double> getTrust(int service) {
+    @Override
+    protected Map<Integer, Double> computeTrust(int service) {
         Map<Integer, Double> trust = new LinkedHashMap<Integer, Double>();
+        final double[] scores = new double[credibility.length];
+        computeScores(scores, scores.length);
 
-        for (int agent = 0; agent < opinions.length; agent++) {
-            double localRating = 0;
-            int countExp = 0;
-
-            final double[] localExperiences = local.get(agent);
-
-            if (null != localExperiences) {
-                for (double exp : localExperiences) {
-                    if (0 != Double.compare(exp, 0d)) {
-                        countExp += 1;
-                        localRating += exp;
-                    }
-                }
-            }
-
-            localRating = (countExp > 0 ? localRating / countExp : 0);
-            final double weight = ((double) countExp) / HISTORY_LENGTH;
-
-            double reputation = 0;
-            double credibilitySum = 0;
-
-            for (int witness = 0; witness < opinions.length; witness++) {
-                final Opinion o = opinions[witness][agent];
-
-                if (null != o) {
-                    credibilitySum += credibility[witness];
-                    reputation += credibility[witness] * o.internalTrustDegree;
-                }
-            }
-
-            // This should originally be like this:
-            // if (0 != Double.compare(numberOfWitnesses, 0d)) {
-            // reputation = reputation / numberOfWitnesses;
-            // but it works horribly -- it's a mistake
-
-            if (0 != Double.compare(credibilitySum, 0d)) {
-                reputation = reputation / credibilitySum;
-            } else {
-                reputation = 0.5;
-            }
-
-            final double score = weight * localRating
-                    + (1 - weight) * reputation;
-
-            trust.put(agent, score);
-        }
+        for (int agent = 0; agent < scores.length; agent++)
+            trust.put(agent, scores[agent]);
 
         // // debug
         // final List<Integer> neutrals = TargetedAttack.getNeutrals();
@@ -161,9 +134,104 @@ public class YuSinghSycara extends AbstractTrustModel<Double> {
         return trust;
     }
 
+    /**
+     * Copies trust degrees from the snapshot of {@link #getTrust(int)}, so
+     * scores are computed at most once per change of inputs.
+     */
     @Override
-    public void setCurrentTime(int time) {
+    public void getTrust(int service, double[] trust, BitSet known) {
+        for (Map.Entry<Integer, Double> entry : getTrust(service).entrySet()) {
+            final int agent = entry.getKey();
+
+            if (agent < trust.length) {
+                trust[agent] = entry.getValue();
+                known.set(agent);
+            }
+        }
+    }
+
+    /**
+     * Sets how trust scores of agents are computed in parallel. By default,
+     * scores of at least {@link AgentParallel#DEFAULT_THRESHOLD} agents are
+     * computed on all processors.
+     *
+     * @param parallel Parallel execution of agents
+     */
+    @Override
+    public void setParallel(AgentParallel parallel) {
+        this.parallel = parallel;
+    }
+
+    /**
+     * Computes trust scores of agents from 0 to agents - 1 and stores them
+     * into the given array.
+     *
+     * @param scores Array that receives scores
+     * @param agents Number of agents
+     */
+    protected void computeScores(final double[] scores, int agents) {
+        parallel.forEach(agents, new AgentParallel.Block() {
+            @Override
+            public void compute(int from, int to) {
+                for (int agent = from; agent < to; agent++)
+                    scores[agent] = computeScore(agent);
+            }
+        });
+    }
+
+    /**
+     * Computes the trust score of the given agent by combining local
+     * experiences and credibility-weighted opinions.
+     *
+     * @param agent Agent
+     * @return Trust score
+     */
+    protected double computeScore(int agent) {
+        double localRating = 0;
+        int countExp = 0;
+
+        final double[] localExperiences = local.get(agent);
+
+        if (null != localExperiences) {
+            for (double exp : localExperiences) {
+                if (0 != Double.compare(exp, 0d)) {
+                    countExp += 1;
+                    localRating += exp;
+                }
+            }
+        }
+
+        localRating = (countExp > 0 ? localRating / countExp : 0);
+        final double weight = ((double) countExp) / HISTORY_LENGTH;
+
+        double reputation = 0;
+        double credibilitySum = 0;
+
+        final int[] witnesses = opinions.getReporters(agent);
+        final double[] itds = opinions.getTrustDegrees(agent);
+
+        for (int i = 0; i < opinions.size(agent); i++) {
+            credibilitySum += credibility[witnesses[i]];
+            reputation += credibility[witnesses[i]] * itds[i];
+        }
+
+        // This should originally be like this:
+        // if (0 != Double.compare(numberOfWitnesses, 0d)) {
+        // reputation = reputation / numberOfWitnesses;
+        // but it works horribly -- it's a mistake
 
+        if (0 != Double.compare(credibilitySum, 0d)) {
+            reputation = reputation / credibilitySum;
+        } else {
+            reputation = 0.5;
+        }
+
+        return weight * localRating + (1 - weight) * reputation;
+    }
+
+    @Override
+    public void setCurrentTime(int time) {
+        invalidateTrust();
     }
 
     /**
@@ -174,7 +242,7 @@ public class YuSinghSycara extends AbstractTrustModel<Double> {
      * @param ops Set of opinions
      */
     protected void expandArrays(List<Experience> exp, List<Opinion> ops) {
-        final int limit = opinions.length - 1;
+        final int limit = credibility.length - 1;
         int max = limit;
 
         if (null != exp)
@@ -188,15 +256,6 @@ public class YuSinghSycara extends AbstractTrustModel<Double> {
                     max = Math.max(o.agent1, o.agent2);
 
         if (max > limit) {
-            // copy opinions
-            Opinion[][] newOp = new Opinion[max + 1][max + 1];
-
-            for (int i = 0; i < opinions.length; i++)
-                System.arraycopy(opinions[i], 0, newOp[i], 0,
-                        opinions[i].length);
-
-            opinions = newOp;
-
             // copy opinion weights
             double[] newWeights = new double[max + 1];
 
@@ -210,10 +269,31 @@ public class YuSinghSycara extends AbstractTrustModel<Double> {
 
     @Override
     public void setAgents(List<Integer> agents) {
+        invalidateTrust();
     }
 
     @Override
     public void setServices(List<Integer> services) {
+        invalidateTrust();
+    }
+
+    /**
+     * Estimates the footprint when every agent reports about every other
+     * agent.
+     */
+    @Override
+    public long estimateRetainedBytes(int agents, int services) {
+        return MemorySizes.map(agents) + agents
+                * MemorySizes.array(HISTORY_LENGTH, 8)
+                + MemorySizes.array(agents, 8)
+                + OpinionStore.estimateBytes(agents);
+    }
+
+    @Override
+    public long getRetainedBytes() {
+        return MemorySizes.map(local.size()) + local.size()
+                * MemorySizes.array(HISTORY_LENGTH, 8)
+                + MemorySizes.deep(credibility) + opinions.retainedBytes();
     }
 
     @Override
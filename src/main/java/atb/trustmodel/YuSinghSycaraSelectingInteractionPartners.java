@@ -43,6 +43,7 @@ public class YuSinghSycaraSelectingInteractionPartners extends YuSinghSycara
     @Override
     public void setCurrentTime(int time) {
         this.time = time;
+        invalidateTrust();
     }
 
     @Override
@@ -21,6 +21,14 @@ public enum Omega {
 
     private static final String MSG_NUM = "Cannot determine Omega for value %.2f";
     private static final String MSG_NORM = "Cannot determine Omega from normalized value %.2f";
+    private static final String MSG_ORD = "Cannot determine Omega for ordinal %d";
+
+    /**
+     * Ordinal that denotes a missing assessment in arrays of ordinals
+     */
+    public static final byte NONE = -1;
+
+    private static final Omega[] VALUES = values();
 
     public final double numeric;
 
@@ -46,6 +54,34 @@ public enum Omega {
         throw new IllegalArgumentException(String.format(MSG_NUM, d));
     }
 
+    /**
+     * Returns the {@link Omega} instance with the given ordinal or null, if the
+     * ordinal equals {@link #NONE}.
+     *
+     * @param ordinal
+     * @return
+     */
+    public static Omega fromOrdinal(int ordinal) {
+        if (NONE == ordinal)
+            return null;
+
+        if (ordinal < 0 || ordinal >= VALUES.length)
+            throw new IllegalArgumentException(String.format(MSG_ORD, ordinal));
+
+        return VALUES[ordinal];
+    }
+
+    /**
+     * Returns the ordinal of the given {@link Omega} instance or {@link #NONE},
+     * if the instance is null.
+     *
+     * @param omega
+     * @return
+     */
+    public static byte toOrdinal(Omega omega) {
+        return null == omega ? NONE : (byte) omega.ordinal();
+    }
+
     /**
      * Returns a {@link Omega} instance that is computed from a given double.
      * The given double must be normalized, that is it must lie within [0, 1].
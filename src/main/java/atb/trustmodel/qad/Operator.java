@@ -10,323 +10,220 @@
  */
 package atb.trustmodel.qad;
 
+import atb.common.AgentParallel;
+
 import java.util.HashMap;
 import java.util.Map;
 
+import static atb.trustmodel.qad.Omega.NONE;
+
 /**
  * Enumeration that represents operators for {@link QAD Qualitative Assessment
  * Dynamics}.
+ * <p>
+ * Operators work on ordinals of {@link Omega} values. Opinions are given as an
+ * array of columns, where column {@code op[agent2]} holds the opinions of all
+ * agents about agent2 and {@link Omega#NONE} denotes a missing opinion. A
+ * column may be shorter than the number of agents, if the remaining agents
+ * gave no opinion.
  *
  * @author David
  */
 public enum Operator {
     EXTREME_OPTIMIST, EXTREME_PESSIMIST, CENTRALIST, NON_CENTRALIST, MODERATE_OPTIMIST, MODERATE_PESSIMIST, STABLE;
 
-    public Map<Integer, Omega> compute(Omega[] exp, Omega[][] op) {
-        Map<Integer, Omega> trust = new HashMap<Integer, Omega>();
-
-        switch (this) {
-            case EXTREME_OPTIMIST:
-                extremeOptimist(exp, op, trust);
-                break;
-            case EXTREME_PESSIMIST:
-                extremePessimistic(exp, op, trust);
-                break;
-            case CENTRALIST:
-                centralist(exp, op, trust);
-                break;
-            case NON_CENTRALIST:
-                nonCentralist(exp, op, trust);
-                break;
-            case MODERATE_OPTIMIST:
-                moderateOptimist(exp, op, trust);
-                break;
-            case MODERATE_PESSIMIST:
-                moderatePessimist(exp, op, trust);
-                break;
-            case STABLE:
-                stable(exp, op, trust);
-                break;
-            default:
-                throw new IllegalArgumentException("Unknown operator: " + this);
-        }
-
-        return trust;
-    }
+    private static final byte D = (byte) Omega.D.ordinal();
+    private static final byte U = (byte) Omega.U.ordinal();
+    private static final byte T = (byte) Omega.T.ordinal();
 
     /**
-     * Extreme pessimistic operator
+     * Computes new assessments from the given experiences and opinions, where
+     * opinions are given as a matrix in which {@code op[agent1][agent2]} holds
+     * the opinion of agent1 about agent2.
      *
-     * @param exp
-     * @param op
-     * @param trust
+     * @param exp Alpha's assessments
+     * @param op  Opinions
+     * @return A map of new assessments
      */
-    public void extremePessimistic(Omega[] exp, Omega[][] op,
-                                   Map<Integer, Omega> trust) {
-        for (int agent2 = 0; agent2 < op.length; agent2++) {
-            Omega result = null;
+    public Map<Integer, Omega> compute(Omega[] exp, Omega[][] op) {
+        final int n = op.length;
+        final byte[] row = new byte[n];
+        final byte[][] columns = new byte[n][n];
 
-            for (int agent1 = 0; agent1 < op.length; agent1++) {
-                final Omega omega = op[agent1][agent2];
+        for (int agent2 = 0; agent2 < n; agent2++) {
+            row[agent2] = Omega.toOrdinal(exp[agent2]);
 
-                if (null != omega) {
-                    if (null == result) {
-                        result = omega;
-                    } else {
-                        if (omega.numeric < result.numeric) {
-                            result = omega;
-                        }
-                    }
-                }
-            }
+            for (int agent1 = 0; agent1 < n; agent1++)
+                columns[agent2][agent1] = Omega.toOrdinal(op[agent1][agent2]);
+        }
 
-            if (null != exp[agent2]) {
-                if (null == result) {
-                    result = exp[agent2];
-                } else {
-                    if (exp[agent2].numeric < result.numeric) {
-                        result = exp[agent2];
-                    }
-                }
-            }
+        final byte[] trust = compute(row, columns, null);
+        final Map<Integer, Omega> result = new HashMap<Integer, Omega>();
 
-            if (null != result)
-                trust.put(agent2, result);
-        }
+        for (int agent2 = 0; agent2 < n; agent2++)
+            if (NONE != trust[agent2])
+                result.put(agent2, Omega.fromOrdinal(trust[agent2]));
+
+        return result;
     }
 
     /**
-     * Extreme optimistic operator
+     * Computes new assessments from the given experiences and opinions. Both
+     * are given as ordinals of {@link Omega} values.
      *
-     * @param exp
-     * @param op
-     * @param trust
+     * @param exp      Alpha's assessments
+     * @param op       Opinions; column {@code op[agent2]} holds opinions about
+     *                 agent2
+     * @param parallel If not null, blocks of columns are processed in
+     *                 parallel with it; otherwise sequentially
+     * @return An array of new assessments, where {@link Omega#NONE} denotes
+     * that an agent could not be assessed
      */
-    public void extremeOptimist(Omega[] exp, Omega[][] op,
-                                Map<Integer, Omega> trust) {
-        for (int agent2 = 0; agent2 < op.length; agent2++) {
-            Omega result = null;
-
-            for (int agent1 = 0; agent1 < op.length; agent1++) {
-                final Omega omega = op[agent1][agent2];
-
-                if (null != omega) {
-                    if (null == result) {
-                        result = omega;
-                    } else {
-                        if (omega.numeric > result.numeric) {
-                            result = omega;
-                        }
-                    }
+    public byte[] compute(final byte[] exp, final byte[][] op,
+                          AgentParallel parallel) {
+        final byte[] trust = new byte[op.length];
+
+        if (null != parallel) {
+            parallel.forEachInParallel(op.length, new AgentParallel.Block() {
+                @Override
+                public void compute(int from, int to) {
+                    Operator.this.compute(exp, op, trust, from, to);
                 }
-            }
-
-            if (null != exp[agent2]) {
-                if (null == result) {
-                    result = exp[agent2];
-                } else {
-                    if (exp[agent2].numeric > result.numeric) {
-                        result = exp[agent2];
-                    }
-                }
-            }
-
-            if (null != result)
-                trust.put(agent2, result);
+            });
+        } else {
+            compute(exp, op, trust, 0, op.length);
         }
+
+        return trust;
     }
 
     /**
-     * Centralistic operator
+     * Computes new assessments of agents from {@code from} (inclusive) to
+     * {@code to} (exclusive) and stores them into array trust.
      *
-     * @param exp
-     * @param op
-     * @param trust
+     * @param exp   Alpha's assessments
+     * @param op    Opinions
+     * @param trust Array of new assessments
+     * @param from  First agent
+     * @param to    Agent after the last one
      */
-    public void centralist(Omega[] exp, Omega[][] op,
-                           Map<Integer, Omega> trust) {
-        for (int agent2 = 0; agent2 < op.length; agent2++) {
-            double sum = 0;
-            int count = 0;
-
-            for (int agent1 = 0; agent1 < op.length; agent1++) {
-                final Omega omega = op[agent1][agent2];
-
-                if (null != omega) {
-                    sum += omega.numeric;
-                    count += 1;
-                }
-            }
-
-            if (null != exp[agent2]) {
-                count += 1;
-                sum += exp[agent2].numeric;
-            }
-
-            if (count > 0) {
-                final double avg = sum / count;
-                final Omega result;
-                if (avg >= 0d) {
-                    result = Omega.fromNumeric(Math.floor(avg));
-                } else {
-                    result = Omega.fromNumeric(Math.ceil(avg));
-                }
+    public void compute(byte[] exp, byte[][] op, byte[] trust, int from,
+                        int to) {
+        for (int agent2 = from; agent2 < to; agent2++)
+            trust[agent2] = combine(exp[agent2], op[agent2]);
+    }
 
-                trust.put(agent2, result);
-            }
+    /**
+     * Combines Alpha's assessment with the opinions of a single column.
+     *
+     * @param exp    Alpha's assessment
+     * @param column Opinions about a single agent
+     * @return New assessment or {@link Omega#NONE}
+     */
+    private byte combine(byte exp, byte[] column) {
+        switch (this) {
+            case EXTREME_OPTIMIST:
+                return extremeOptimist(exp, column);
+            case EXTREME_PESSIMIST:
+                return extremePessimist(exp, column);
+            case STABLE:
+                return exp;
+            default:
+                return average(exp, column);
         }
     }
 
     /**
-     * Non-Centralistic operator
+     * Extreme optimistic operator; since {@link Omega#NONE} is smaller than
+     * any ordinal, missing opinions need not be skipped.
      *
      * @param exp
-     * @param op
-     * @param trust
+     * @param column
+     * @return
      */
-    public void nonCentralist(Omega[] exp, Omega[][] op,
-                              Map<Integer, Omega> trust) {
-        for (int agent2 = 0; agent2 < op.length; agent2++) {
-            double sum = 0;
-            int count = 0;
-
-            for (int agent1 = 0; agent1 < op.length; agent1++) {
-                final Omega omega = op[agent1][agent2];
+    private static byte extremeOptimist(byte exp, byte[] column) {
+        byte result = exp;
 
-                if (null != omega) {
-                    sum += omega.numeric;
-                    count += 1;
-                }
-            }
-
-            if (null != exp[agent2]) {
-                count += 1;
-                sum += exp[agent2].numeric;
-            }
-
-            if (count > 0) {
-                final double avg = sum / count;
-                final Omega result;
-                if (avg > 0d) {
-                    result = Omega.fromNumeric(Math.ceil(avg));
-                } else {
-                    result = Omega.fromNumeric(Math.floor(avg));
-                }
+        for (byte omega : column)
+            if (omega > result)
+                result = omega;
 
-                trust.put(agent2, result);
-            }
-        }
+        return result;
     }
 
     /**
-     * Moderate optimistic operator
+     * Extreme pessimistic operator
      *
      * @param exp
-     * @param op
-     * @param trust
+     * @param column
+     * @return
      */
-    public void moderateOptimist(Omega[] exp, Omega[][] op,
-                                 Map<Integer, Omega> trust) {
-        for (int agent2 = 0; agent2 < op.length; agent2++) {
-            double sum = 0;
-            int count = 0;
-
-            for (int agent1 = 0; agent1 < op.length; agent1++) {
-                final Omega omega = op[agent1][agent2];
-
-                if (null != omega) {
-                    sum += omega.numeric;
-                    count += 1;
-                }
-            }
+    private static byte extremePessimist(byte exp, byte[] column) {
+        byte result = NONE == exp ? Byte.MAX_VALUE : exp;
 
-            if (null != exp[agent2]) {
-                count += 1;
-                sum += exp[agent2].numeric;
-            }
-
-            if (count > 0) {
-                final double avg = sum / count;
-                final Omega result = Omega.fromNumeric(Math.round(avg));
-
-                final Omega previous;
-
-                if (null == exp[agent2]) {
-                    previous = Omega.D;
-                } else {
-                    previous = exp[agent2];
-                }
+        for (byte omega : column)
+            if (NONE != omega && omega < result)
+                result = omega;
 
-                if (result.numeric <= previous.numeric) {
-                    trust.put(agent2, previous);
-                } else {
-                    trust.put(agent2, Omega.fromNumeric(previous.numeric + 1d));
-                }
-            }
-        }
+        return Byte.MAX_VALUE == result ? NONE : result;
     }
 
     /**
-     * Moderate pessimistic operator
+     * Centralistic, non-centralistic, moderate optimistic and moderate
+     * pessimistic operators, which all depend on the average assessment.
      *
      * @param exp
-     * @param op
-     * @param trust
+     * @param column
+     * @return
      */
-    public void moderatePessimist(Omega[] exp, Omega[][] op,
-                                  Map<Integer, Omega> trust) {
-        for (int agent2 = 0; agent2 < op.length; agent2++) {
-            double sum = 0;
-            int count = 0;
-
-            for (int agent1 = 0; agent1 < op.length; agent1++) {
-                final Omega omega = op[agent1][agent2];
-
-                if (null != omega) {
-                    sum += omega.numeric;
-                    count += 1;
-                }
-            }
+    private byte average(byte exp, byte[] column) {
+        int sum = 0, count = 0;
 
-            if (null != exp[agent2]) {
+        for (byte omega : column) {
+            if (NONE != omega) {
+                sum += omega;
                 count += 1;
-                sum += exp[agent2].numeric;
             }
+        }
 
-            if (count > 0) {
-                final double avg = sum / count;
-                final Omega result = Omega.fromNumeric(Math.round(avg));
+        if (NONE != exp) {
+            sum += exp;
+            count += 1;
+        }
 
-                final Omega previous;
+        if (0 == count)
+            return NONE;
 
-                if (null == exp[agent2]) {
-                    previous = Omega.T;
-                } else {
-                    previous = exp[agent2];
-                }
+        // shift ordinals to numeric values
+        final double avg = (double) (sum - U * count) / count;
 
-                if (result.numeric >= previous.numeric) {
-                    trust.put(agent2, previous);
-                } else {
-                    trust.put(agent2, Omega.fromNumeric(previous.numeric - 1));
-                }
+        switch (this) {
+            case CENTRALIST:
+                return toOrdinal(avg >= 0d ? Math.floor(avg) : Math.ceil(avg));
+            case NON_CENTRALIST:
+                return toOrdinal(avg > 0d ? Math.ceil(avg) : Math.floor(avg));
+            case MODERATE_OPTIMIST: {
+                final byte previous = NONE == exp ? D : exp;
+
+                if (toOrdinal(Math.round(avg)) <= previous)
+                    return previous;
+                else
+                    return (byte) (previous + 1);
+            }
+            case MODERATE_PESSIMIST: {
+                final byte previous = NONE == exp ? T : exp;
+
+                if (toOrdinal(Math.round(avg)) >= previous)
+                    return previous;
+                else
+                    return (byte) (previous - 1);
             }
+            default:
+                throw new IllegalArgumentException("Unknown operator: " + this);
         }
     }
 
-    /**
-     * Stable operator
-     *
-     * @param exp
-     * @param op
-     * @param trust
-     */
-    public void stable(Omega[] exp, Omega[][] op, Map<Integer, Omega> trust) {
-        for (int agent2 = 0; agent2 < op.length; agent2++) {
-            final Omega value = exp[agent2];
-
-            if (null != value)
-                trust.put(agent2, value);
-        }
+    private static byte toOrdinal(double numeric) {
+        return (byte) (numeric + U);
     }
 }
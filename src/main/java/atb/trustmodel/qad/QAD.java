@@ -10,37 +10,70 @@
  */
 package atb.trustmodel.qad;
 
+import atb.common.AgentParallel;
 import atb.common.Utils;
 import atb.interfaces.*;
+import atb.trustmodel.AbstractTrustModel;
+import atb.trustmodel.AgentArrays;
 
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import static atb.trustmodel.qad.Omega.NONE;
 import static atb.trustmodel.qad.Omega.normalizedNumeric;
 
 /**
  * Qualitative assessment dynamics
+ * <p>
+ * The operator is applied once per call to {@link #calculateTrust()}, which
+ * also updates Alpha's row; {@link #getTrust(int)} returns the resulting
+ * assessments and leaves the model unchanged.
  *
  * @author David
  */
-public class QAD implements TrustModel<Omega> {
-    // matrix for other agents
-    public Omega[][] op;
+public class QAD extends AbstractTrustModel<Omega> implements
+        IncrementalOpinions, AgentParallel.Holder {
+    private static final ParameterCondition<Integer> VAL_PARALLEL_THRESHOLD = new ParameterCondition<Integer>() {
+        @Override
+        public void eval(Integer var) {
+            if (var < 1)
+                throw new IllegalArgumentException(String.format(
+                        "The parallel threshold must be positive, but was %d",
+                        var));
+        }
+    };
+
+    private static final byte[] EMPTY = new byte[0];
+
+    // opinions of other agents as ordinals of Omega; column op[agent2] holds
+    // opinions about agent2, Omega.NONE denotes a missing opinion; columns
+    // grow on demand and may be shorter than the number of agents
+    public byte[][] op;
 
-    // Alpha's row
-    public Omega[] row;
+    // Alpha's row as ordinals of Omega
+    public byte[] row;
+
+    // number of matrix entries from which operators run in parallel
+    protected int parallelThreshold = 1 << 16;
+    // processes blocks of columns in parallel
+    protected AgentParallel parallel = new AgentParallel();
 
     // operator
     public Operator operator;
-    protected RandomGenerator generator;
     // temporary storage for opinions and experiences
     private List<Opinion> opinions;
     private List<Experience> experiences;
+    // assessments of the last application of the operator
+    private Map<Integer, Omega> assessments;
 
     @Override
     public void initialize(Object... params) {
-        op = new Omega[0][0];
-        row = new Omega[0];
+        invalidateTrust();
+        op = new byte[0][0];
+        row = new byte[0];
+        assessments = new HashMap<Integer, Omega>();
 
         final ParameterCondition<Operator> validator = new ParameterCondition<Operator>() {
             @Override
@@ -55,36 +88,73 @@ public class QAD implements TrustModel<Omega> {
         opinions = null;
     }
 
+    /**
+     * Sets the number of entries of the opinion matrix from which operators
+     * process columns in parallel (see {@link #setParallel(AgentParallel)}).
+     * Smaller matrices are processed sequentially. Defaults to 65536.
+     *
+     * @param parallelThreshold A positive number of entries
+     */
+    public void setParallelThreshold(int parallelThreshold) {
+        VAL_PARALLEL_THRESHOLD.eval(parallelThreshold);
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    /**
+     * Sets how blocks of columns are processed in parallel. Only the share of
+     * processors applies; whether operators run in parallel depends on
+     * {@link #setParallelThreshold(int)}. Defaults to a new
+     * {@link AgentParallel}.
+     *
+     * @param parallel Parallel execution of agents
+     */
+    @Override
+    public void setParallel(AgentParallel parallel) {
+        this.parallel = parallel;
+    }
+
     @Override
     public void processExperiences(List<Experience> experiences) {
+        invalidateTrust();
         this.experiences = experiences;
     }
 
     @Override
     public void processOpinions(List<Opinion> opinions) {
+        invalidateTrust();
         this.opinions = opinions;
     }
 
     @Override
     public void calculateTrust() {
+        invalidateTrust();
         expandArray(experiences, opinions);
 
-        for (Opinion o : opinions)
-            op[o.agent1][o.agent2] = normalizedNumeric(o.internalTrustDegree);
+        for (Opinion o : opinions) {
+            op[o.agent2] = AgentArrays.ensureIndex(op[o.agent2], o.agent1, NONE);
+            op[o.agent2][o.agent1] = Omega.toOrdinal(normalizedNumeric(o.internalTrustDegree));
+        }
 
         for (Experience e : experiences)
-            row[e.agent] = normalizedNumeric(e.outcome);
-    }
+            row[e.agent] = Omega.toOrdinal(normalizedNumeric(e.outcome));
 
-    @Override
-    public Map<Integer, Omega> getTrust(int service) {
-        Map<Integer, Omega> newTrust = operator.compute(row, op);
+        final long entries = (long) op.length * op.length;
+        final byte[] trust = operator.compute(row, op,
+                entries >= parallelThreshold ? parallel : null);
+        assessments = new HashMap<Integer, Omega>();
 
         // now update Alpha's row
-        for (Map.Entry<Integer, Omega> e : newTrust.entrySet())
-            row[e.getKey()] = e.getValue();
+        for (int agent = 0; agent < trust.length; agent++) {
+            if (NONE != trust[agent]) {
+                row[agent] = trust[agent];
+                assessments.put(agent, Omega.fromOrdinal(trust[agent]));
+            }
+        }
+    }
 
-        return newTrust;
+    @Override
+    protected Map<Integer, Omega> computeTrust(int service) {
+        return assessments;
     }
 
     @Override
@@ -94,6 +164,7 @@ public class QAD implements TrustModel<Omega> {
 
     @Override
     public void setCurrentTime(int time) {
+        invalidateTrust();
     }
 
     private void expandArray(List<Experience> experiences,
@@ -110,14 +181,12 @@ public class QAD implements TrustModel<Omega> {
 
         // resize arrays
         if (max > op.length - 1 || max > row.length - 1) {
-            Omega[][] newOp = new Omega[max + 1][max + 1];
+            final int columns = op.length;
+            op = Arrays.copyOf(op, max + 1);
+            Arrays.fill(op, columns, op.length, EMPTY);
 
-            for (int i = 0; i < op.length; i++)
-                System.arraycopy(op[i], 0, newOp[i], 0, op.length);
-
-            op = newOp;
-
-            Omega[] newExp = new Omega[max + 1];
+            byte[] newExp = new byte[max + 1];
+            Arrays.fill(newExp, NONE);
             System.arraycopy(row, 0, newExp, 0, row.length);
             row = newExp;
         }
@@ -125,19 +194,16 @@ public class QAD implements TrustModel<Omega> {
 
     @Override
     public void setAgents(List<Integer> agents) {
+        invalidateTrust();
     }
 
     @Override
     public void setServices(List<Integer> services) {
+        invalidateTrust();
     }
 
     @Override
     public ParametersPanel getParametersPanel() {
         return new QADGUI();
     }
-
-    @Override
-    public void setRandomGenerator(RandomGenerator generator) {
-        this.generator = generator;
-    }
 }
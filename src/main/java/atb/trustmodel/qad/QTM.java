@@ -10,8 +10,11 @@
  */
 package atb.trustmodel.qad;
 
+import atb.common.AgentParallel;
 import atb.interfaces.*;
+import atb.trustmodel.AbstractTrustModel;
 
+import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -20,10 +23,16 @@ import java.util.Map;
  * A Qualitative Trust Model as proposed by Jelenc and Trček. The paper is
  * currently under review in Journal of Autonomous Agents and Multi-Agent
  * Systems.
+ * <p>
+ * Counts of correct and wrong opinions decay over time. The decay is applied
+ * lazily: every reporter has the time of its last update, and its counts are
+ * decayed by the elapsed time when they are used. Decay factors are taken
+ * from a table indexed by age.
  *
  * @author David
  */
-public class QTM implements TrustModel<Omega> {
+public class QTM extends AbstractTrustModel<Omega> implements
+        IncrementalOpinions, AgentParallel.Holder {
 
     protected static final double LOWER_CRED = 0.001;
     protected static final double TF = 0.1; // 0.01
@@ -42,35 +51,61 @@ public class QTM implements TrustModel<Omega> {
     protected Map<Integer, QADExp[]> local = null;
 
     protected QADOp[][] opinions = null;
+    // bit-sets of agents about which reporters gave opinions; rows are
+    // reporters and bits are agents, packed into words of 64 bits
+    protected long[][] acquaintances = null;
     protected double[] credibility = null;
     protected double[] cntCorrect = null;
     protected double[] cntWrong = null;
+    // times at which cntCorrect and cntWrong were last decayed
+    protected int[] cntTime = null;
+    // decay factors indexed by age
+    protected double[] decays = new double[0];
 
     protected int time;
 
-    protected RandomGenerator generator;
+    // assesses agents in parallel
+    protected AgentParallel parallel = new AgentParallel();
 
     @Override
     public void initialize(Object... params) {
+        invalidateTrust();
         time = 0;
         local = new LinkedHashMap<Integer, QADExp[]>();
         opinions = new QADOp[0][0];
+        acquaintances = new long[0][0];
         credibility = new double[0];
         cntCorrect = new double[0];
         cntWrong = new double[0];
+        cntTime = new int[0];
+    }
+
+    /**
+     * Sets how agents are assessed in parallel. Defaults to a new
+     * {@link AgentParallel}.
+     *
+     * @param parallel Parallel execution of agents
+     */
+    @Override
+    public void setParallel(AgentParallel parallel) {
+        this.parallel = parallel;
     }
 
     @Override
     public void processOpinions(List<Opinion> ops) {
+        invalidateTrust();
         expandArrays(null, ops);
 
         // store opinions
-        for (Opinion o : ops)
+        for (Opinion o : ops) {
             opinions[o.agent1][o.agent2] = new QADOp(o);
+            acquaintances[o.agent1][o.agent2 >>> 6] |= 1L << o.agent2;
+        }
     }
 
     @Override
     public void processExperiences(List<Experience> exps) {
+        invalidateTrust();
         expandArrays(exps, null);
 
         // store new experiences
@@ -107,6 +142,8 @@ public class QTM implements TrustModel<Omega> {
                     // (when no opinion is given the this remains null)
                     correct[reporter] = diff <= 1;
 
+                    decayCounts(reporter);
+
                     if (correct[reporter]) {
                         cntCorrect[reporter] += 1;
                     } else {
@@ -144,117 +181,154 @@ public class QTM implements TrustModel<Omega> {
 
     @Override
     public void calculateTrust() {
-
+        invalidateTrust();
     }
 
     @Override
-    public Map<Integer, Omega> getTrust(int service) {
+    protected Map<Integer, Omega> computeTrust(int service) {
+        final Omega[] assessments = new Omega[opinions.length];
+
+        // grow the table of decay factors up to the current time beforehand,
+        // so that agents can be assessed in parallel
+        decay(time);
+
+        parallel.forEach(assessments.length, new AgentParallel.Block() {
+            @Override
+            public void compute(int from, int to) {
+                for (int agent = from; agent < to; agent++)
+                    assessments[agent] = assess(agent);
+            }
+        });
+
         final Map<Integer, Omega> trust = new LinkedHashMap<Integer, Omega>();
 
-        for (int agent = 0; agent < opinions.length; agent++) {
-            // local experiences and their weights
-            final double[] experiences = new double[5];
-            final QADExp[] localExperiences = local.get(agent);
-            double expWeight = 0d;
-
-            if (null != localExperiences) {
-                for (QADExp exp : localExperiences) {
-                    if (null != exp) {
-                        final double weight = Math.exp(-TF * (time - exp.time));
-                        expWeight += weight;
-                        experiences[exp.outcome.ordinal()] += weight;
-                    }
+        for (int agent = 0; agent < assessments.length; agent++) {
+            if (null != assessments[agent]) {
+                trust.put(agent, assessments[agent]);
+            }
+        }
+
+        return trust;
+    }
+
+    /**
+     * Assesses the given agent by combining local experiences with opinions
+     * that are weighted by connectedness, recency and trustworthiness of
+     * witnesses.
+     *
+     * @param agent Agent
+     * @return Assessment or null, if the agent cannot be assessed
+     */
+    protected Omega assess(int agent) {
+        // local experiences and their weights
+        final double[] experiences = new double[5];
+        final QADExp[] localExperiences = local.get(agent);
+        double expWeight = 0d;
+
+        if (null != localExperiences) {
+            for (QADExp exp : localExperiences) {
+                if (null != exp) {
+                    final double weight = decay(time - exp.time);
+                    expWeight += weight;
+                    experiences[exp.outcome.ordinal()] += weight;
                 }
             }
+        }
 
-            // reputation of the selected agent
-            final double[] reputation = new double[5];
-
-            for (int witness = 0; witness < opinions.length; witness++) {
-                final QADOp o = opinions[witness][agent];
-
-                if (null != o) {
-                    // CONNECTEDNESS
-                    // number of mutual acquaintances
-                    int mutual = 0;
-
-                    // number of combined acquaintances
-                    int combined = 0;
-
-                    for (int i = 0; i < opinions.length; i++) {
-                        // skip mutual opinions
-                        if (i == agent || i == witness)
-                            continue;
-
-                        final QADOp o1 = opinions[witness][i];
-                        final QADOp o2 = opinions[agent][i];
-
-                        if (o1 != null && o2 != null) {
-                            // agent and witness know this agent
-                            mutual += 1;
-                            combined += 1;
-                        } else if ((o1 == null && o2 != null)
-                                || (o1 != null && o2 == null)) {
-                            // only one of them knows it
-                            combined += 1;
-                        } else if (o1 == null && o2 == null) {
-                            // neither of them knows this agent
-                        } else {
-                            // this should never execute
-                            throw new Error("Unreachable code.");
-                        }
-                    }
+        // reputation of the selected agent
+        final double[] reputation = new double[5];
 
-                    // TODO: increase connectedness for mutual opinions
-                    final double connectedness, recency, weight,
-                            providerTrustworthiness, pastAccuracy;
+        for (int witness = 0; witness < opinions.length; witness++) {
+            final QADOp o = opinions[witness][agent];
 
-                    pastAccuracy = 1d / (1d + Math
-                            .exp(cntWrong[witness] - cntCorrect[witness]));
+            if (null != o) {
+                // TODO: increase connectedness for mutual opinions
+                final double connectedness, recency, weight,
+                        providerTrustworthiness, pastAccuracy;
 
-                    providerTrustworthiness = Math
-                            .sqrt(credibility[witness] * pastAccuracy);
+                final double cntDecay = decay(time - cntTime[witness]);
+                pastAccuracy = 1d / (1d + Math.exp(cntWrong[witness]
+                        * cntDecay - cntCorrect[witness] * cntDecay));
 
-                    connectedness = (mutual + 0d) / combined;
+                providerTrustworthiness = Math
+                        .sqrt(credibility[witness] * pastAccuracy);
 
-                    recency = Math.exp(-TF * (time - o.time));
+                connectedness = connectedness(witness, agent);
 
-                    weight = Math.min(Math.min(connectedness, recency),
-                            providerTrustworthiness);
+                recency = decay(time - o.time);
 
-                    reputation[o.itd.ordinal()] += weight;
-                }
+                weight = Math.min(Math.min(connectedness, recency),
+                        providerTrustworthiness);
+
+                reputation[o.itd.ordinal()] += weight;
             }
+        }
 
-            double[] normalizedExp = normalize(experiences);
+        double[] normalizedExp = normalize(experiences);
 
-            if (null == normalizedExp)
-                normalizedExp = experiences;
+        if (null == normalizedExp)
+            normalizedExp = experiences;
 
-            double[] normalizedRep = normalize(reputation);
+        double[] normalizedRep = normalize(reputation);
 
-            if (null == normalizedRep) {
-                normalizedRep = reputation;
-            }
+        if (null == normalizedRep) {
+            normalizedRep = reputation;
+        }
 
-            // weight of local experiences
-            final double confidence = expWeight / (1 + expWeight);
+        // weight of local experiences
+        final double confidence = expWeight / (1 + expWeight);
 
-            // common vector
-            final double[] common = new double[5];
-            for (int i = 0; i < reputation.length; i++) {
-                common[i] = confidence * normalizedExp[i]
-                        + (1 - confidence) * normalizedRep[i];
-            }
+        // common vector
+        final double[] common = new double[5];
+        for (int i = 0; i < reputation.length; i++) {
+            common[i] = confidence * normalizedExp[i]
+                    + (1 - confidence) * normalizedRep[i];
+        }
+
+        return qualtitativeAverage(common);
+    }
+
+    /**
+     * Returns the connectedness of the witness and the agent: the number of
+     * their mutual acquaintances divided by the number of their combined
+     * acquaintances. Opinions about each other are skipped.
+     * <p>
+     * Acquaintances are counted with bit operations on rows of
+     * {@link #acquaintances}.
+     *
+     * @param witness Witness
+     * @param agent   Agent
+     * @return Connectedness
+     */
+    public double connectedness(int witness, int agent) {
+        // number of mutual acquaintances
+        int mutual = 0;
 
-            final Omega td = qualtitativeAverage(common);
+        // number of combined acquaintances
+        int combined = 0;
 
-            if (null != td) {
-                trust.put(agent, td);
-            }
+        final long[] known1 = acquaintances[witness];
+        final long[] known2 = acquaintances[agent];
+
+        for (int w = 0; w < known1.length; w++) {
+            mutual += Long.bitCount(known1[w] & known2[w]);
+            combined += Long.bitCount(known1[w] | known2[w]);
         }
 
-        return trust;
+        // skip mutual opinions
+        for (int k = 0; k < (agent == witness ? 1 : 2); k++) {
+            final int i = (k == 0 ? agent : witness);
+            final boolean o1 = null != opinions[witness][i];
+            final boolean o2 = null != opinions[agent][i];
+
+            if (o1 && o2)
+                mutual -= 1;
+
+            if (o1 || o2)
+                combined -= 1;
+        }
+
+        return (mutual + 0d) / combined;
     }
 
     public double[] normalize(double[] freq) {
@@ -314,12 +388,44 @@ public class QTM implements TrustModel<Omega> {
 
     @Override
     public void setCurrentTime(int time) {
+        invalidateTrust();
         this.time = time;
+    }
 
-        for (int i = 0; i < cntCorrect.length; i++) {
-            cntCorrect[i] *= Math.exp(-TF);
-            cntWrong[i] *= Math.exp(-TF);
+    /**
+     * Returns the decay factor exp(-TF * age). Factors for non-negative ages
+     * are stored in a table that grows as needed.
+     *
+     * @param age Age
+     * @return The decay factor
+     */
+    protected double decay(int age) {
+        if (age < 0)
+            return Math.exp(-TF * age);
+
+        if (age >= decays.length) {
+            final int previous = decays.length;
+            decays = Arrays.copyOf(decays, Math.max(age + 1, 2 * previous));
+
+            for (int i = previous; i < decays.length; i++)
+                decays[i] = Math.exp(-TF * i);
         }
+
+        return decays[age];
+    }
+
+    /**
+     * Applies the decay since the last update to counts of correct and wrong
+     * opinions of the given reporter.
+     *
+     * @param reporter Reporter
+     */
+    protected void decayCounts(int reporter) {
+        final double factor = decay(time - cntTime[reporter]);
+
+        cntCorrect[reporter] *= factor;
+        cntWrong[reporter] *= factor;
+        cntTime[reporter] = time;
     }
 
     /**
@@ -352,6 +458,14 @@ public class QTM implements TrustModel<Omega> {
 
             opinions = newOp;
 
+            // copy acquaintances
+            final long[][] newAcquaintances = new long[max + 1][(max >>> 6) + 1];
+            for (int i = 0; i < acquaintances.length; i++)
+                System.arraycopy(acquaintances[i], 0, newAcquaintances[i], 0,
+                        acquaintances[i].length);
+
+            acquaintances = newAcquaintances;
+
             // credibility weights
             final double[] newWeights = new double[max + 1];
 
@@ -370,20 +484,22 @@ public class QTM implements TrustModel<Omega> {
             final double[] newCntWrong = new double[max + 1];
             System.arraycopy(cntWrong, 0, newCntWrong, 0, cntWrong.length);
             cntWrong = newCntWrong;
+
+            final int[] newCntTime = new int[max + 1];
+            Arrays.fill(newCntTime, time);
+            System.arraycopy(cntTime, 0, newCntTime, 0, cntTime.length);
+            cntTime = newCntTime;
         }
     }
 
     @Override
     public void setAgents(List<Integer> agents) {
+        invalidateTrust();
     }
 
     @Override
     public void setServices(List<Integer> services) {
-    }
-
-    @Override
-    public void setRandomGenerator(RandomGenerator generator) {
-        this.generator = generator;
+        invalidateTrust();
     }
 
     @Override
@@ -1,15 +1,24 @@
 package atb.infrastructure
 
+import atb.common.AgentParallel
 import atb.common.DefaultRandomGenerator
+import atb.common.MemoryBudget
+import atb.common.MemorySizes
 import atb.core.AlphaTestbed
 import atb.core.EvaluationProtocol
+import atb.interfaces.CompositeAccuracy
+import atb.interfaces.MemoryFootprint
 import atb.interfaces.Metric
 import atb.interfaces.Scenario
 import atb.interfaces.TrustModel
 import java.util.*
 import java.util.concurrent.CompletableFuture
+import java.util.concurrent.Executors
 import java.util.concurrent.atomic.AtomicBoolean
 import java.util.function.Supplier
+import java.util.logging.Logger
+
+private val logger = Logger.getLogger("atb.infrastructure.Runner")
 
 
 /**
@@ -28,8 +37,13 @@ fun createProtocol(model: TrustModel<*>, modelParams: Array<Any>, scenario: Scen
 
 /** Represents an evaluation task that can be run on a thread pool; [supplier] is the task that is to be executed,
  * and the [interrupter] is a function that can be used to interrupt the task once it starts. Once the tasks ends,
- * invoking interrupter is a no-op. */
-class EvaluationTask(val supplier: Supplier<EvaluationState>, val interrupter: () -> Unit)
+ * invoking interrupter is a no-op. The [estimatedBytes] is the estimated heap footprint of the task, and
+ * [retainedBytes] returns its current footprint; the latter counts only the trust model and the scenario
+ * that implement [MemoryFootprint]. The [parallel] is the trust model, if it computes agents in parallel,
+ * so that batch runs can limit its share of processors. */
+class EvaluationTask(val supplier: Supplier<EvaluationState>, val interrupter: () -> Unit,
+                     val estimatedBytes: Long = 0, val retainedBytes: () -> Long = { 0 },
+                     val parallel: AgentParallel.Holder? = null)
 
 /**
  * Sets up an evaluation run and returns an EvaluationTask.
@@ -39,12 +53,18 @@ class EvaluationTask(val supplier: Supplier<EvaluationState>, val interrupter: (
  * evaluation run that has already ended, results in a no-op.
  */
 fun setupEvaluation(protocol: EvaluationProtocol, duration: Int, metrics: Set<Metric>): EvaluationTask {
+    // composite accuracy metrics also publish the results of their components
+    val published = metrics + metrics.filterIsInstance<CompositeAccuracy>()
+            .flatMap { it.components }
+            .distinct()
+            .map { it.newInstance() }
+
     // evaluation data
-    val data = EvaluationData(protocol, metrics, ArrayList(), protocol.scenario.randomGenerator.seed)
+    val data = EvaluationData(protocol, published, ArrayList(), protocol.scenario.randomGenerator.seed)
 
     // subscribe for updates
     protocol.subscribe {
-        for (metric in metrics) {
+        for (metric in published) {
             for (service in it.scenario.services) {
                 val value = it.getResult(service, metric)
                 data.readings.add(Reading(it.time, metric, service, value))
@@ -56,6 +76,14 @@ fun setupEvaluation(protocol: EvaluationProtocol, duration: Int, metrics: Set<Me
     val isInterrupted = AtomicBoolean(false)
     val interrupter = { isInterrupted.set(true) }
 
+    // estimate the footprint for the number of agents at the end of the run;
+    // components without a reported footprint get a conservative default
+    val components = listOf<Any>(protocol.trustModel, protocol.scenario)
+    val agents = MemorySizes.maximalAgents(protocol.scenario, duration)
+    val services = protocol.scenario.services.size
+    val estimatedBytes = components.map { MemorySizes.estimate(it, agents, services) }.sum()
+    val retainedBytes = { components.map { MemorySizes.retained(it) }.sum() }
+
     // create supplier (actual task)
     val supplier = Supplier supplier@{
         for (tick in 1..duration) {
@@ -72,7 +100,8 @@ fun setupEvaluation(protocol: EvaluationProtocol, duration: Int, metrics: Set<Me
         return@supplier Completed(data)
     }
 
-    return EvaluationTask(supplier, interrupter)
+    return EvaluationTask(supplier, interrupter, estimatedBytes, retainedBytes,
+            protocol.trustModel as? AgentParallel.Holder)
 }
 
 /**
@@ -90,21 +119,51 @@ fun run(task: EvaluationTask, callback: (EvaluationState) -> Unit): () -> Unit {
  * competition. The optional parameter, [progress], is invoked upon completion of every
  * task in the list.
  *
+ * Tasks run on a dedicated pool, and trust models of concurrent tasks compute agents
+ * on an equal share of processors. Tasks start only while the sum of their estimated
+ * footprints stays within the [memoryBudget] (in bytes, unlimited by default); a task
+ * whose estimate exceeds the budget runs alone. Estimated and retained footprints of
+ * tasks are logged.
+ *
  * @return A handle to interrupt the entire run (completed, running and scheduled tasks)
  */
 fun runBatch(tasks: List<EvaluationTask>, finished: (List<EvaluationState>) -> Unit,
-             progress: (EvaluationState) -> Unit = {}): () -> Unit {
+             progress: (EvaluationState) -> Unit = {}, memoryBudget: Long = Long.MAX_VALUE): () -> Unit {
     val interruptAll: () -> Unit = { tasks.forEach { it.interrupter() } }
+    val budget = MemoryBudget(memoryBudget)
+
+    // tasks wait for the budget on their own threads, so that waiting does not
+    // occupy the common pool, which trust models use for parallel computations
+    val threads = Runtime.getRuntime().availableProcessors()
+    val executor = Executors.newFixedThreadPool(threads) { runnable ->
+        Thread(runnable, "atb-batch").apply { isDaemon = true }
+    }
+
+    // trust models of concurrent tasks share the processors
+    val concurrent = Math.max(1, Math.min(tasks.size, threads))
+    val parallel = AgentParallel(AgentParallel.DEFAULT_THRESHOLD, 1.0 / concurrent)
+    tasks.forEach { it.parallel?.setParallel(parallel) }
+
+    val allTasksAsync = tasks.mapIndexed { index, task ->
+        CompletableFuture.supplyAsync(Supplier {
+            budget.acquire(task.estimatedBytes)
+            logger.info("Starting task $index, estimated footprint ${task.estimatedBytes} B")
 
-    val allTasksAsync = tasks.map {
-        CompletableFuture.supplyAsync(it.supplier).thenApply {
+            try {
+                val state = task.supplier.get()
+                logger.info("Task $index ended, retained footprint ${task.retainedBytes()} B")
+                state
+            } finally {
+                budget.release(task.estimatedBytes)
+            }
+        }, executor).thenApply {
             progress(it)
             it
         }
     }.toTypedArray()
 
     // wait for all to complete, then fire callback
-    CompletableFuture.allOf(*allTasksAsync).thenApply {
+    CompletableFuture.allOf(*allTasksAsync).whenComplete { _, _ -> executor.shutdown() }.thenApply {
         val completed = allTasksAsync.map { it.join() }
         finished(completed)
     }
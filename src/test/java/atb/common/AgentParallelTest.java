@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2013 David Jelenc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     David Jelenc - initial API and implementation
+ */
+package atb.common;
+
+import atb.interfaces.Scenario;
+import atb.interfaces.TrustModel;
+import atb.scenario.Transitive;
+import atb.trustmodel.BRSWithFiltering;
+import atb.trustmodel.BetaReputation;
+import atb.trustmodel.Travos;
+import atb.trustmodel.YuSinghSycara;
+import atb.trustmodel.qad.QTM;
+import org.junit.Test;
+
+import java.util.BitSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AgentParallelTest {
+
+    private static final AgentParallel PARALLEL = new AgentParallel(1, 1d);
+    private static final AgentParallel HALF = new AgentParallel(1, 0.5);
+    private static final AgentParallel SEQUENTIAL = new AgentParallel(
+            Integer.MAX_VALUE, 1d);
+
+    @Test
+    public void testForEach() {
+        for (AgentParallel parallel : new AgentParallel[]{PARALLEL, HALF, SEQUENTIAL}) {
+            for (int agents : new int[]{0, 1, 2, 7, 1000}) {
+                final int[] visits = new int[agents];
+
+                parallel.forEach(agents, new AgentParallel.Block() {
+                    @Override
+                    public void compute(int from, int to) {
+                        for (int agent = from; agent < to; agent++)
+                            visits[agent] += 1;
+                    }
+                });
+
+                for (int agent = 0; agent < agents; agent++)
+                    assertEquals(1, visits[agent]);
+            }
+        }
+    }
+
+    @Test
+    public void testForEachInParallelIgnoresThreshold() {
+        final int agents = 1000;
+        final int[] visits = new int[agents];
+        final AtomicInteger blocks = new AtomicInteger();
+
+        SEQUENTIAL.forEachInParallel(agents, new AgentParallel.Block() {
+            @Override
+            public void compute(int from, int to) {
+                blocks.incrementAndGet();
+
+                for (int agent = from; agent < to; agent++)
+                    visits[agent] += 1;
+            }
+        });
+
+        for (int agent = 0; agent < agents; agent++)
+            assertEquals(1, visits[agent]);
+
+        assertEquals(SEQUENTIAL.getParallelism() > 1, blocks.get() > 1);
+    }
+
+    @Test
+    public void testThreshold() {
+        final AgentParallel parallel = new AgentParallel(100, 1d);
+
+        assertFalse(parallel.isParallel(99));
+        assertEquals(parallel.getParallelism() > 1, parallel.isParallel(100));
+        assertFalse(SEQUENTIAL.isParallel(1000));
+        assertTrue(HALF.getParallelism() <= PARALLEL.getParallelism());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidThreshold() {
+        new AgentParallel(0, 1d);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidShare() {
+        new AgentParallel(1, 1.5);
+    }
+
+    @Test
+    public void testModels() {
+        final YuSinghSycara yss1 = new YuSinghSycara(), yss2 = new YuSinghSycara();
+        yss1.setParallel(PARALLEL);
+        yss2.setParallel(SEQUENTIAL);
+        compare(yss1, yss2);
+
+        final BetaReputation brs1 = new BetaReputation(), brs2 = new BetaReputation();
+        brs1.setParallel(HALF);
+        brs2.setParallel(SEQUENTIAL);
+        compare(brs1, brs2, 1d, 1d);
+
+        final Travos travos1 = new Travos(), travos2 = new Travos();
+        travos1.setParallel(PARALLEL);
+        travos2.setParallel(SEQUENTIAL);
+        compare(travos1, travos2, 0.5, 10, 0.1, 0.95, 0.2);
+
+        final BRSWithFiltering filtering1 = new BRSWithFiltering(),
+                filtering2 = new BRSWithFiltering();
+        filtering1.setParallel(PARALLEL);
+        filtering2.setParallel(SEQUENTIAL);
+        compare(filtering1, filtering2, 0.9d, 0.5d, 0.05, 10d);
+
+        final QTM qtm1 = new QTM(), qtm2 = new QTM();
+        qtm1.setParallel(HALF);
+        qtm2.setParallel(SEQUENTIAL);
+        compare(qtm1, qtm2);
+    }
+
+    @Test
+    public void testPrimitiveTrust() {
+        final Travos parallel = new Travos(), sequential = new Travos();
+        parallel.setParallel(PARALLEL);
+        sequential.setParallel(SEQUENTIAL);
+
+        run(parallel, 0.5, 10, 0.1, 0.95, 0.2);
+        run(sequential, 0.5, 10, 0.1, 0.95, 0.2);
+
+        final double[] trust1 = new double[50], trust2 = new double[50];
+        final BitSet known1 = new BitSet(), known2 = new BitSet();
+        parallel.getTrust(0, trust1, known1);
+        sequential.getTrust(0, trust2, known2);
+
+        assertEquals(known2, known1);
+
+        for (int agent = known1.nextSetBit(0); agent >= 0; agent = known1
+                .nextSetBit(agent + 1))
+            assertEquals(trust2[agent], trust1[agent], 0);
+    }
+
+    private static void compare(TrustModel<?> tm1, TrustModel<?> tm2,
+                                Object... params) {
+        final int service = run(tm1, params);
+        run(tm2, params);
+
+        assertEquals(tm1.toString(), tm2.getTrust(service),
+                tm1.getTrust(service));
+    }
+
+    /**
+     * Runs the given trust model on a transitive scenario for a few ticks and
+     * returns the first service.
+     */
+    private static int run(TrustModel<?> tm, Object... params) {
+        final Scenario scn = new Transitive();
+        scn.setRandomGenerator(new DefaultRandomGenerator(0));
+        scn.initialize(50, 0.05, 0.1, 1d, 1d);
+
+        tm.setRandomGenerator(new DefaultRandomGenerator(0));
+        tm.initialize(params);
+
+        for (int time = 1; time <= 5; time++) {
+            tm.setCurrentTime(time);
+            scn.setCurrentTime(time);
+            tm.setServices(scn.getServices());
+            tm.setAgents(scn.getAgents());
+            tm.processOpinions(scn.generateOpinions());
+            tm.processExperiences(scn.generateExperiences());
+            tm.calculateTrust();
+        }
+
+        return scn.getServices().get(0);
+    }
+}
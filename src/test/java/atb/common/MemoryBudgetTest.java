@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2013 David Jelenc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     David Jelenc - initial API and implementation
+ */
+package atb.common;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MemoryBudgetTest {
+
+    @Test
+    public void testAdmission() throws InterruptedException {
+        final MemoryBudget budget = new MemoryBudget(100);
+
+        budget.acquire(40);
+        budget.acquire(60);
+        assertEquals(100, budget.getUsed());
+
+        budget.release(40);
+        budget.release(60);
+        assertEquals(0, budget.getUsed());
+    }
+
+    @Test
+    public void testWaitsForRelease() throws InterruptedException {
+        final MemoryBudget budget = new MemoryBudget(100);
+        final CountDownLatch admitted = new CountDownLatch(1);
+
+        budget.acquire(70);
+
+        final Thread waiting = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    budget.acquire(50);
+                    admitted.countDown();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        waiting.start();
+
+        assertFalse(admitted.await(100, TimeUnit.MILLISECONDS));
+        assertEquals(70, budget.getUsed());
+
+        budget.release(70);
+
+        assertTrue(admitted.await(5, TimeUnit.SECONDS));
+        waiting.join();
+        assertEquals(50, budget.getUsed());
+    }
+
+    @Test
+    public void testOversizeTaskRunsAlone() throws InterruptedException {
+        final MemoryBudget budget = new MemoryBudget(100);
+        final CountDownLatch admitted = new CountDownLatch(1);
+
+        budget.acquire(250);
+        assertEquals(250, budget.getUsed());
+
+        final Thread waiting = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    budget.acquire(1);
+                    admitted.countDown();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        waiting.start();
+
+        assertFalse(admitted.await(100, TimeUnit.MILLISECONDS));
+
+        budget.release(250);
+
+        assertTrue(admitted.await(5, TimeUnit.SECONDS));
+        waiting.join();
+        assertEquals(1, budget.getUsed());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidLimit() {
+        new MemoryBudget(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeBytes() throws InterruptedException {
+        new MemoryBudget(100).acquire(-1);
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2013 David Jelenc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     David Jelenc - initial API and implementation
+ */
+package atb.common;
+
+import atb.deceptionmodel.Truthful;
+import atb.interfaces.DeceptionModel;
+import atb.interfaces.MemoryFootprint;
+import atb.interfaces.Scenario;
+import atb.interfaces.TrustModel;
+import atb.scenario.Oscillation;
+import atb.scenario.Random;
+import atb.scenario.RandomWithNewcomers;
+import atb.scenario.Transitive;
+import atb.trustmodel.AbdulRahmanHailes;
+import atb.trustmodel.BRSWithFiltering;
+import atb.trustmodel.BetaReputation;
+import atb.trustmodel.EigenTrust;
+import atb.trustmodel.Simple;
+import atb.trustmodel.Travos;
+import atb.trustmodel.YuSinghSycara;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MemorySizesTest {
+
+    private static final int AGENTS = 30;
+
+    @Test
+    public void testSizes() {
+        assertEquals(16, MemorySizes.object(0));
+        assertEquals(32, MemorySizes.object(16));
+        assertEquals(16, MemorySizes.array(0, 8));
+        assertEquals(56, MemorySizes.array(10, 4));
+        assertEquals(24, MemorySizes.array(5, 1));
+
+        assertEquals(MemorySizes.array(3, 4) + 3 * MemorySizes.array(2, 8),
+                MemorySizes.deep(new double[3][2]));
+        assertEquals(MemorySizes.array(2, 4) + MemorySizes.array(7, 4),
+                MemorySizes.deep(new int[][]{new int[7], null}));
+        assertEquals(MemorySizes.array(2, 4),
+                MemorySizes.deep(new Object[]{"a", 1}));
+        assertEquals(0, MemorySizes.deep(null));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNotAnArray() {
+        MemorySizes.deep("a");
+    }
+
+    @Test
+    public void testFootprints() {
+        check(new AbdulRahmanHailes());
+        check(new EigenTrust(), 0.5, 0.5, 10, 0.1);
+        check(new Travos(), 0.5, 10, 0.1, 0.95, 0.2);
+        check(new BetaReputation(), 1d, 1d);
+        check(new YuSinghSycara());
+        check(new BRSWithFiltering(), 0.9d, 0.5d, 0.05, 10d);
+    }
+
+    @Test
+    public void testScenarioFootprints() {
+        final Map<DeceptionModel, Double> dms = new HashMap<DeceptionModel, Double>();
+        dms.put(new Truthful(), 1d);
+
+        final Scenario random = new Random();
+        random.setRandomGenerator(new DefaultRandomGenerator(0));
+        random.initialize(AGENTS, 0.1, 0.05, dms, 1d, 1d, 1d);
+
+        final Scenario newcomers = new RandomWithNewcomers();
+        newcomers.setRandomGenerator(new DefaultRandomGenerator(0));
+        newcomers.initialize(AGENTS, 0.1, 0.05, dms, 1d, 1d, 1d, 2, 3);
+
+        final Scenario oscillation = new Oscillation();
+        oscillation.setRandomGenerator(new DefaultRandomGenerator(0));
+        oscillation.initialize(AGENTS, 0.1, 0.05, 2, 0.3, 0.3);
+
+        for (Scenario scn : new Scenario[]{random, newcomers, oscillation}) {
+            final int duration = 5;
+            final int agents = MemorySizes.maximalAgents(scn, duration);
+            final long estimate = MemorySizes.estimate(scn, agents, 1);
+
+            for (int time = 1; time <= duration; time++) {
+                scn.setCurrentTime(time);
+                scn.generateOpinions();
+                scn.generateExperiences();
+            }
+
+            final long retained = MemorySizes.retained(scn);
+            assertTrue(scn.toString(), retained > 0);
+            assertTrue(scn.toString(), retained <= estimate);
+        }
+    }
+
+    @Test
+    public void testDefaultEstimates() {
+        final Transitive transitive = new Transitive();
+        assertEquals(transitive.estimateRetainedBytes(AGENTS, 2),
+                MemorySizes.estimate(transitive, AGENTS, 2));
+
+        final long pairs = AGENTS * AGENTS * 2;
+        assertEquals(pairs * (MemorySizes.OPINION + MemorySizes.REFERENCE
+                        + MemorySizes.MAP_ENTRY),
+                MemorySizes.estimate(new Simple(), AGENTS, 2));
+        assertEquals(0, MemorySizes.retained(new Simple()));
+    }
+
+    @Test
+    public void testMaximalAgents() {
+        final Scenario transitive = new Transitive();
+        transitive.setRandomGenerator(new DefaultRandomGenerator(0));
+        transitive.initialize(AGENTS, 0.05, 0.1, 1d, 1d);
+        assertEquals(AGENTS, MemorySizes.maximalAgents(transitive, 100));
+
+        final Map<DeceptionModel, Double> dms = new HashMap<DeceptionModel, Double>();
+        dms.put(new Truthful(), 1d);
+
+        final Scenario newcomers = new RandomWithNewcomers();
+        newcomers.setRandomGenerator(new DefaultRandomGenerator(0));
+        newcomers.initialize(AGENTS, 0.1, 0.05, dms, 1d, 1d, 1d, 7, 3);
+
+        final int duration = 50;
+        final int maximal = MemorySizes.maximalAgents(newcomers, duration);
+
+        for (int time = 1; time <= duration; time++)
+            newcomers.setCurrentTime(time);
+
+        assertEquals(AGENTS + 3 * 7, maximal);
+        assertEquals(maximal, newcomers.getAgents().size());
+    }
+
+    /**
+     * Runs the given trust model on a fully connected transitive scenario and
+     * checks that footprints are positive, grow with the number of opinions
+     * and stay below their estimates.
+     */
+    private static void check(TrustModel<?> tm, Object... params) {
+        final Scenario scn = new Transitive();
+        scn.setRandomGenerator(new DefaultRandomGenerator(0));
+        scn.initialize(AGENTS, 0.05, 0.1, 1d, 1d);
+
+        final MemoryFootprint model = (MemoryFootprint) tm;
+        final MemoryFootprint scenario = (MemoryFootprint) scn;
+        final long modelEstimate = model.estimateRetainedBytes(AGENTS, 1);
+        final long scenarioEstimate = scenario.estimateRetainedBytes(AGENTS, 1);
+
+        tm.setRandomGenerator(new DefaultRandomGenerator(0));
+        tm.initialize(params);
+
+        final long initial = model.getRetainedBytes();
+        assertTrue(tm.toString(), initial > 0);
+
+        for (int time = 1; time <= 3; time++) {
+            tm.setCurrentTime(time);
+            scn.setCurrentTime(time);
+            tm.setServices(scn.getServices());
+            tm.setAgents(scn.getAgents());
+            tm.processOpinions(scn.generateOpinions());
+            tm.processExperiences(scn.generateExperiences());
+            tm.calculateTrust();
+            tm.getTrust(0);
+        }
+
+        final long retained = model.getRetainedBytes();
+        assertTrue(tm.toString(), retained > initial);
+        assertTrue(tm.toString(), retained <= modelEstimate);
+        assertTrue(modelEstimate < model.estimateRetainedBytes(2 * AGENTS, 1));
+
+        assertTrue(scenario.getRetainedBytes() > 0);
+        assertTrue(scenario.getRetainedBytes() <= scenarioEstimate);
+    }
+}
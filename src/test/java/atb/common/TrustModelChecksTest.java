@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2013 David Jelenc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     David Jelenc - initial API and implementation
+ */
+package atb.common;
+
+import atb.interfaces.Scenario;
+import atb.interfaces.TrustModel;
+import atb.scenario.Transitive;
+import atb.trustmodel.*;
+import atb.trustmodel.qad.Operator;
+import atb.trustmodel.qad.QAD;
+import atb.trustmodel.qad.QTM;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TrustModelChecksTest {
+
+    private static final int TICKS = 5;
+
+    @Test
+    public void testBundledModels() {
+        check(new AbdulRahmanHailes());
+        check(new BetaReputation(), 1d, 1d);
+        check(new BRSWithFiltering(), 0.9d, 0.5d, 0.05, 10d);
+        check(new EigenTrust(), 0.5, 0.5, 10, 0.1);
+        check(new OnlyExperiences());
+        check(new OnlyOpinions());
+        check(new Simple());
+        check(new Travos(), 0.5, 10, 0.1, 0.95, 0.2);
+        check(new YuSinghSycara());
+        check(new QAD(), Operator.CENTRALIST);
+        check(new QTM());
+    }
+
+    @Test
+    public void testSnapshotIsUnmodifiable() {
+        final Simple tm = new Simple();
+        final List<Integer> services = run(tm);
+
+        try {
+            tm.getTrust(services.get(0)).put(0, 1d);
+            fail();
+        } catch (UnsupportedOperationException e) {
+            assertTrue(true);
+        }
+    }
+
+    @Test
+    public void testSideEffects() {
+        final OnlyExperiences tm = new OnlyExperiences() {
+            private int calls = 0;
+
+            @Override
+            public Map<Integer, Double> getTrust(int service) {
+                final Map<Integer, Double> trust = new HashMap<Integer, Double>(
+                        super.getTrust(service));
+                trust.put(calls++, 0d);
+                return trust;
+            }
+        };
+
+        final List<Integer> services = run(tm);
+        assertTrue(TrustModelChecks.hasSideEffects(tm, services));
+    }
+
+    private static void check(TrustModel<?> tm, Object... params) {
+        final List<Integer> services = run(tm, params);
+        assertFalse(tm.toString(), TrustModelChecks.hasSideEffects(tm, services));
+    }
+
+    /**
+     * Runs the given trust model on a transitive scenario in the order of the
+     * no-decisions protocol and returns the services of the last tick.
+     */
+    private static List<Integer> run(TrustModel<?> tm, Object... params) {
+        final Scenario scn = new Transitive();
+        scn.setRandomGenerator(new DefaultRandomGenerator(0));
+        scn.initialize(20, 0.05, 0.1, 1d, 1d);
+
+        tm.setRandomGenerator(new DefaultRandomGenerator(0));
+        tm.initialize(params);
+
+        List<Integer> services = null;
+
+        for (int time = 1; time <= TICKS; time++) {
+            tm.setCurrentTime(time);
+            scn.setCurrentTime(time);
+            services = scn.getServices();
+            tm.setServices(services);
+            tm.setAgents(scn.getAgents());
+            tm.processOpinions(scn.generateOpinions());
+            tm.processExperiences(scn.generateExperiences());
+            tm.calculateTrust();
+        }
+
+        return services;
+    }
+}
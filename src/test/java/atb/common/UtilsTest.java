@@ -90,4 +90,13 @@ public class UtilsTest {
         }
     }
 
+    @Test
+    public void sortIndexesIsStable() {
+        final double[] keys = {0.5, 0.1, 0.5, 0.9, 0.1, 0.3, 0.5};
+        final int[] indexes = {0, 1, 2, 3, 4, 5, 6};
+
+        Utils.sortIndexes(indexes, indexes.length, keys, new int[indexes.length]);
+
+        Assert.assertArrayEquals(new int[]{1, 4, 5, 0, 2, 6, 3}, indexes);
+    }
 }
@@ -14,12 +14,16 @@ import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import atb.common.DefaultRandomGenerator;
+import atb.interfaces.Accuracy;
+import atb.interfaces.CapabilityIndex;
 import atb.interfaces.Metric;
 import atb.interfaces.Scenario;
 import atb.interfaces.TrustModel;
 import atb.metric.CumulativeNormalizedUtility;
 import atb.metric.DefaultOpinionCost;
+import atb.metric.FusedAccuracy;
 import atb.metric.KendallsTauA;
+import atb.metric.KendallsTauB;
 import atb.scenario.Transitive;
 import atb.scenario.TransitiveInteractionPartnerSelection;
 import atb.scenario.TransitiveOpinionProviderSelection;
@@ -99,6 +103,56 @@ public class EvaluationProtocolTests {
         epND.initialize(tm, scn, mtrcs);
     }
 
+    @Test
+    public void testCompositeAccuracyPublishesComponents() {
+        mtrcs.clear();
+        mtrcs.put(new FusedAccuracy(), null);
+        epND.initialize(tm, scn, mtrcs);
+        epND.step(1);
+
+        for (int service : scn.getServices()) {
+            final Accuracy ktb = new KendallsTauB();
+            final double expected = ktb.evaluate(tm.getTrust(service),
+                    scn.getCapabilities(service));
+
+            Assert.assertEquals(expected, epND.getResult(service, ktb), 1e-9);
+        }
+    }
+
+    @Test
+    public void testCapabilityIndexReusedWhileVersionUnchanged() {
+        final NoDecisions protocol = new NoDecisions();
+        protocol.initialize(tm, scn, mtrcs);
+        protocol.step(1);
+
+        final CapabilityIndex index = protocol.capabilityIndexes.get(0);
+        Assert.assertNotNull(index);
+
+        protocol.step(2);
+        Assert.assertSame(index, protocol.capabilityIndexes.get(0));
+
+        scn.initialize(100, 0.05, 0.1, 1d, 1d);
+        protocol.step(3);
+        Assert.assertNotSame(index, protocol.capabilityIndexes.get(0));
+    }
+
+    @Test
+    public void testPrimitiveAccuracyMatchesMaps() {
+        epND.initialize(tm, scn, mtrcs);
+
+        for (int time = 1; time <= 5; time++) {
+            epND.step(time);
+
+            for (int service : scn.getServices()) {
+                final double expected = ((Accuracy) acc).evaluate(
+                        tm.getTrust(service), scn.getCapabilities(service));
+
+                Assert.assertEquals(expected, epND.getResult(service, acc),
+                        1e-12);
+            }
+        }
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void testInitializeWrongTM() {
         tm = new YuSinghSycaraSelectingInteractionPartners();
@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) 2013 David Jelenc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     David Jelenc - initial API and implementation
+ */
+package atb.interfaces;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CapabilityIndexTest {
+
+    @Test
+    public void orderRanksAndSums() {
+        final CapabilityIndex index = new CapabilityIndex(
+                new double[]{0.5, 0.1, 0.5, 0.9, 0.3}, 3);
+
+        Assert.assertEquals(3, index.getVersion());
+        Assert.assertArrayEquals(new int[]{1, 4, 0, 2, 3}, index.getOrder());
+        Assert.assertEquals(3, index.getMinRank(0));
+        Assert.assertEquals(3, index.getMinRank(2));
+        Assert.assertEquals(5, index.getMinRank(3));
+        Assert.assertEquals(3.5, index.getFractionalRank(0), 0);
+        Assert.assertEquals(3.5, index.getFractionalRank(2), 0);
+        Assert.assertEquals(1, index.getFractionalRank(1), 0);
+        Assert.assertEquals(0.9, index.getMax(), 0);
+        Assert.assertEquals(0, index.getPrefixSum(0), 0);
+        Assert.assertEquals(0.4, index.getPrefixSum(2), 1e-12);
+        Assert.assertEquals(2.3, index.getPrefixSum(5), 1e-12);
+    }
+}
@@ -11,17 +11,26 @@
 package atb.metric;
 
 import atb.interfaces.Accuracy;
+import atb.interfaces.CapabilityIndex;
+import atb.interfaces.IndexedUtility;
 import atb.interfaces.Metric;
+import atb.interfaces.PrimitiveAccuracy;
 import atb.interfaces.Utility;
+import atb.scenario.TargetedAttack;
 import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Random;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 
 public class MetricsTest {
@@ -333,4 +342,253 @@ public class MetricsTest {
         assertEquals(0, accuracy.evaluatePair(2, 2, 0.7, 0.9));
     }
 
+    @Test
+    public void primitiveEvaluationMatchesMaps() {
+        final Random random = new Random(1);
+        final int n = 20;
+        final double[] trust = new double[n];
+        final double[] capabilities = new double[n];
+        final BitSet known = new BitSet();
+        final Map<Integer, Double> trustMap = new LinkedHashMap<Integer, Double>();
+
+        cpbs.clear();
+
+        for (int agent = 0; agent < n; agent++) {
+            capabilities[agent] = random.nextInt(5) / 4d;
+            cpbs.put(agent, capabilities[agent]);
+
+            if (random.nextDouble() < 0.8) {
+                trust[agent] = random.nextInt(8) / 7d;
+                trustMap.put(agent, trust[agent]);
+                known.set(agent);
+            }
+        }
+
+        final PrimitiveAccuracy[] metrics = new PrimitiveAccuracy[]{
+                new KendallsTauA(), new KendallsTauB(),
+                new WeightedKendallsTau(), new Coverage(),
+                new MeanAbsoluteError(), new Euclidean()};
+
+        for (PrimitiveAccuracy metric : metrics) {
+            metric.initialize();
+            assertEquals(metric.getClass().getSimpleName(),
+                    metric.evaluate(trustMap, cpbs),
+                    metric.evaluate(trust, known, capabilities), 1e-12);
+        }
+    }
+
+    @Test
+    public void fusedAccuracyMatchesComponents() {
+        final Random random = new Random(2);
+        final Map<Integer, Double> trust = new LinkedHashMap<Integer, Double>();
+
+        cpbs.clear();
+
+        for (int agent = 0; agent < 40; agent++) {
+            cpbs.put(agent, random.nextInt(6) / 5d);
+
+            if (random.nextDouble() < 0.7)
+                trust.put(agent, random.nextInt(10) / 9d);
+        }
+
+        final FusedAccuracy fused = new FusedAccuracy();
+        fused.initialize();
+
+        final double kta = fused.evaluate(trust, cpbs);
+
+        for (Class<? extends Accuracy> component : fused.getComponents()) {
+            try {
+                final Accuracy metric = component.newInstance();
+                metric.initialize();
+
+                assertEquals(component.getSimpleName(),
+                        metric.evaluate(trust, cpbs),
+                        fused.getComponentResult(component), 1e-9);
+            } catch (ReflectiveOperationException e) {
+                throw new AssertionError(e);
+            }
+        }
+
+        assertEquals(new KendallsTauA().evaluate(trust, cpbs), kta, 1e-9);
+    }
+
+    @Test
+    public void fusedAccuracyTrustOutsideUnitInterval() {
+        final FusedAccuracy fused = new FusedAccuracy();
+        fused.initialize();
+
+        cpbs.put(4, 0.8);
+        fused.evaluate(rnks, cpbs);
+
+        assertEquals(new KendallsTauB().evaluate(rnks, cpbs),
+                fused.getComponentResult(KendallsTauB.class), 1e-9);
+        assertTrue(Double.isNaN(fused.getComponentResult(MeanAbsoluteError.class)));
+    }
+
+    @Test
+    public void sampledMetricsWithinBounds() {
+        final Random random = new Random(3);
+        final Map<Integer, Double> trust = new LinkedHashMap<Integer, Double>();
+
+        cpbs.clear();
+
+        for (int agent = 0; agent < 60; agent++) {
+            cpbs.put(agent, random.nextInt(10) / 9d);
+            trust.put(agent, Math.min(1d, Math.max(0d,
+                    cpbs.get(agent) + random.nextGaussian() / 4)));
+        }
+
+        final Accuracy[] exact = {new KendallsTauA(), new KendallsTauB(),
+                new SpearmansFootRule()};
+        final AbstractSampledMetric[] sampled = {new SampledKendallsTauA(),
+                new SampledKendallsTauB(), new SampledSpearmansFootRule()};
+
+        for (int i = 0; i < exact.length; i++) {
+            exact[i].initialize();
+            sampled[i].initialize(50000, 7);
+
+            final double estimate = sampled[i].evaluate(trust, cpbs);
+            final double bound = sampled[i].getConfidenceBound();
+
+            assertTrue(bound > 0 && bound < 0.05);
+            assertEquals(sampled[i].toString(),
+                    exact[i].evaluate(trust, cpbs), estimate, bound);
+        }
+    }
+
+    @Test
+    public void sampledMetricStreamsDependOnRunAndService() {
+        final int[] first = sampledAgents(3, 0);
+
+        assertArrayEquals(first, sampledAgents(3, 0));
+        assertFalse(Arrays.equals(first, sampledAgents(3, 1)));
+        assertFalse(Arrays.equals(first, sampledAgents(4, 0)));
+    }
+
+    /**
+     * Returns the first agents that a sampled metric with the given run seed
+     * and service draws.
+     */
+    private static int[] sampledAgents(int runSeed, int service) {
+        final SampledKendallsTauA metric = new SampledKendallsTauA();
+        metric.initialize(20, 7);
+        metric.setSamplingStream(runSeed, service);
+
+        final int[] agents = new int[10];
+
+        for (int i = 0; i < agents.length; i++)
+            agents[i] = metric.nextAgent(1000);
+
+        return agents;
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void sampledMetricInvalidSampleSize() {
+        new SampledKendallsTauA().initialize(0);
+    }
+
+    @Test
+    public void indexedEvaluationMatchesMaps() {
+        final Random random = new Random(4);
+        final int n = 30;
+        final double[] trust = new double[n];
+        final double[] capabilities = new double[n];
+        final BitSet known = new BitSet();
+        final Map<Integer, Double> trustMap = new LinkedHashMap<Integer, Double>();
+
+        cpbs.clear();
+
+        for (int agent = 0; agent < n; agent++) {
+            capabilities[agent] = random.nextInt(8) / 7d;
+            trust[agent] = random.nextInt(5) / 4d;
+            cpbs.put(agent, capabilities[agent]);
+            trustMap.put(agent, trust[agent]);
+            known.set(agent);
+        }
+
+        final CapabilityIndex index = new CapabilityIndex(capabilities, 1);
+        final SpearmansFootRule footRule = new SpearmansFootRule();
+
+        assertEquals(footRule.evaluate(trustMap, cpbs),
+                footRule.evaluate(trust, known, index), 1e-12);
+
+        final Utility[] maps = {new NormalizedUtility(),
+                new CumulativeNormalizedUtility()};
+        final IndexedUtility[] indexed = {new NormalizedUtility(),
+                new CumulativeNormalizedUtility()};
+
+        for (int i = 0; i < maps.length; i++) {
+            maps[i].initialize();
+            indexed[i].initialize();
+
+            for (int agent = 0; agent < n; agent += 7) {
+                assertEquals(maps[i].evaluate(cpbs, agent),
+                        indexed[i].evaluate(index, agent), 1e-12);
+            }
+        }
+    }
+
+    @Test
+    public void targetedAgentsMatchesPairwiseDefinition() {
+        final Random random = new Random(5);
+        final int n = 40;
+        final double[] trust = new double[n];
+        final double[] capabilities = new double[n];
+        final BitSet known = new BitSet();
+        final BitSet attackers = new BitSet(), neutrals = new BitSet();
+        final Map<Integer, Double> trustMap = new LinkedHashMap<Integer, Double>();
+
+        cpbs.clear();
+
+        for (int agent = 0; agent < n; agent++) {
+            capabilities[agent] = random.nextInt(8) / 7d;
+            cpbs.put(agent, capabilities[agent]);
+
+            if (random.nextInt(4) > 0) {
+                trust[agent] = random.nextInt(5) / 4d;
+                trustMap.put(agent, trust[agent]);
+                known.set(agent);
+            }
+
+            final int group = random.nextInt(3);
+
+            if (group == 0)
+                attackers.set(agent);
+            else if (group == 1)
+                neutrals.set(agent);
+        }
+
+        // pairwise definition
+        double pairs = 0, difference = 0;
+
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                if (attackers.get(i) || attackers.get(j)
+                        || (neutrals.get(i) && neutrals.get(j)))
+                    continue;
+
+                pairs++;
+
+                if (known.get(i) && known.get(j))
+                    difference += Math.signum(Double.compare(trust[i], trust[j])
+                            * Double.compare(capabilities[i], capabilities[j]));
+            }
+        }
+
+        final Map<String, BitSet> groups = new LinkedHashMap<String, BitSet>();
+        groups.put(TargetedAttack.ATTACKERS, attackers);
+        groups.put(TargetedAttack.NEUTRALS, neutrals);
+
+        final KTAOfTargetedAgents metric = new KTAOfTargetedAgents();
+        metric.setAgentGroups(groups);
+
+        final double expected = (difference / pairs + 1d) / 2d;
+        assertEquals(expected, metric.evaluate(trustMap, cpbs), 1e-12);
+        assertEquals(expected, metric.evaluate(trust, known, capabilities), 1e-12);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void targetedAgentsRequiresGroups() {
+        new KTAOfTargetedAgents().evaluate(rnks, cpbs);
+    }
 }
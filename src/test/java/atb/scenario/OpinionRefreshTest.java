@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2013 David Jelenc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     David Jelenc - initial API and implementation
+ */
+package atb.scenario;
+
+import atb.common.DefaultRandomGenerator;
+import atb.deceptionmodel.Truthful;
+import atb.interfaces.DeceptionModel;
+import atb.interfaces.Opinion;
+import atb.trustmodel.Simple;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class OpinionRefreshTest {
+
+    private static final int AGENTS = 20;
+
+    @Test
+    public void testDefaultRefresh() {
+        final Transitive full = transitive(), incremental = transitive();
+
+        for (int time = 1; time <= 3; time++) {
+            full.setCurrentTime(time);
+            incremental.setCurrentTime(time);
+
+            final List<Opinion> all = full.generateOpinions();
+            final List<Opinion> deltas = incremental.generateOpinionDeltas();
+
+            assertEquals(all.size(), deltas.size());
+
+            for (int i = 0; i < all.size(); i++)
+                assertEquals(all.get(i).internalTrustDegree,
+                        deltas.get(i).internalTrustDegree, 0);
+        }
+    }
+
+    @Test
+    public void testRefreshPeriod() {
+        final int period = 4;
+        final Transitive scn = transitive();
+        scn.setOpinionRefresh(period, 1d);
+
+        scn.setCurrentTime(1);
+        final int pairs = scn.generateOpinionDeltas().size();
+        final Set<Long> refreshed = new HashSet<Long>();
+
+        for (int time = 2; time < 2 + period; time++) {
+            scn.setCurrentTime(time);
+            final List<Opinion> deltas = scn.generateOpinionDeltas();
+            assertTrue(deltas.size() < pairs);
+
+            for (Opinion o : deltas) {
+                assertEquals(0, (time + o.agent1 + o.agent2) % period);
+                assertTrue(refreshed.add((long) o.agent1 * AGENTS + o.agent2));
+            }
+        }
+
+        // every pair refreshes exactly once per period
+        assertEquals(pairs, refreshed.size());
+    }
+
+    @Test
+    public void testRefreshProbability() {
+        final Map<DeceptionModel, Double> deceptionModels = new HashMap<DeceptionModel, Double>();
+        deceptionModels.put(new Truthful(), 1d);
+
+        final Random scn = new Random();
+        scn.setRandomGenerator(new DefaultRandomGenerator(0));
+        scn.initialize(AGENTS, 0.1, 0.05, deceptionModels, 0d, 0d, 1d);
+        scn.setOpinionRefresh(1, 0.25);
+
+        scn.setCurrentTime(1);
+        final int pairs = scn.generateOpinionDeltas().size();
+        assertEquals(AGENTS * AGENTS, pairs);
+
+        scn.setCurrentTime(2);
+        final int refreshed = scn.generateOpinionDeltas().size();
+        assertTrue(refreshed > 0 && refreshed < pairs / 2);
+    }
+
+    @Test
+    public void testCapabilityChanges() {
+        final Oscillation scn = new Oscillation();
+        scn.setRandomGenerator(new DefaultRandomGenerator(0));
+        scn.initialize(AGENTS, 0.1, 0.05, 2, 0.3, 0.3);
+        scn.setOpinionRefresh(100, 1d);
+
+        scn.setCurrentTime(1);
+        final int pairs = scn.generateOpinionDeltas().size();
+
+        scn.setCurrentTime(3);
+        assertTrue(scn.generateOpinionDeltas().size() < pairs);
+
+        // capabilities change at time 4, so all pairs report again
+        scn.setCurrentTime(4);
+        assertEquals(pairs, scn.generateOpinionDeltas().size());
+    }
+
+    @Test
+    public void testTrustModel() {
+        final Transitive full = transitive(), incremental = transitive();
+        final Simple tm1 = new Simple(), tm2 = new Simple();
+        tm1.initialize();
+        tm2.initialize();
+
+        for (int time = 1; time <= 3; time++) {
+            full.setCurrentTime(time);
+            incremental.setCurrentTime(time);
+            tm1.setCurrentTime(time);
+            tm2.setCurrentTime(time);
+            tm1.setServices(full.getServices());
+            tm2.setServices(incremental.getServices());
+            tm1.setAgents(full.getAgents());
+            tm2.setAgents(incremental.getAgents());
+
+            tm1.processOpinions(full.generateOpinions());
+            tm2.processOpinionDeltas(incremental.generateOpinionDeltas());
+            tm1.processExperiences(full.generateExperiences());
+            tm2.processExperiences(incremental.generateExperiences());
+            tm1.calculateTrust();
+            tm2.calculateTrust();
+        }
+
+        assertEquals(tm1.getTrust(0), tm2.getTrust(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidPeriod() {
+        transitive().setOpinionRefresh(0, 1d);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidProbability() {
+        transitive().setOpinionRefresh(1, 0d);
+    }
+
+    private static Transitive transitive() {
+        final Transitive scn = new Transitive();
+        scn.setRandomGenerator(new DefaultRandomGenerator(0));
+        scn.initialize(AGENTS, 0.05, 0.1, 1d, 1d);
+        return scn;
+    }
+}
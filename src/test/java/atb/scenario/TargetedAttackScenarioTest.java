@@ -15,6 +15,7 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -63,12 +64,12 @@ public class TargetedAttackScenarioTest {
         final Set<Integer> attackers = new HashSet<Integer>();
         final Set<Integer> ip = new HashSet<Integer>();
 
-        targets.addAll(TargetedAttack.getTargets());
-        neutrals.addAll(TargetedAttack.getNeutrals());
-        attackers.addAll(TargetedAttack.getAttackers());
+        targets.addAll(group(TargetedAttack.TARGETS));
+        neutrals.addAll(group(TargetedAttack.NEUTRALS));
+        attackers.addAll(group(TargetedAttack.ATTACKERS));
 
         ip.addAll(scenario.determineInteractionPartners(numPartners,
-                TargetedAttack.getNeutrals(), TargetedAttack.getAttackers()));
+                group(TargetedAttack.NEUTRALS), group(TargetedAttack.ATTACKERS)));
 
         for (Integer agent : targets)
             assertFalse(ip.contains(agent));
@@ -97,12 +98,12 @@ public class TargetedAttackScenarioTest {
         final Set<Integer> attackers = new HashSet<Integer>();
         final Set<Integer> ip = new HashSet<Integer>();
 
-        targets.addAll(TargetedAttack.getTargets());
-        neutrals.addAll(TargetedAttack.getNeutrals());
-        attackers.addAll(TargetedAttack.getAttackers());
+        targets.addAll(group(TargetedAttack.TARGETS));
+        neutrals.addAll(group(TargetedAttack.NEUTRALS));
+        attackers.addAll(group(TargetedAttack.ATTACKERS));
 
         ip.addAll(scenario.determineInteractionPartners(numPartners,
-                TargetedAttack.getNeutrals(), TargetedAttack.getAttackers()));
+                group(TargetedAttack.NEUTRALS), group(TargetedAttack.ATTACKERS)));
 
         for (Integer agent : targets)
             assertFalse(ip.contains(agent));
@@ -116,4 +117,18 @@ public class TargetedAttackScenarioTest {
                     attackers.contains(agent) || neutrals.contains(agent));
         }
     }
+
+    /**
+     * Returns agents of the given group of the scenario.
+     */
+    private List<Integer> group(String name) {
+        final BitSet bits = scenario.getAgentGroups().get(name);
+        final List<Integer> agents = new ArrayList<Integer>();
+
+        for (int agent = bits.nextSetBit(0); agent >= 0; agent = bits
+                .nextSetBit(agent + 1))
+            agents.add(agent);
+
+        return agents;
+    }
 }
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2013 David Jelenc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     David Jelenc - initial API and implementation
+ */
+package atb.trustmodel;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class AgentMatrixTest {
+
+    @Test
+    public void matchesDenseMatrixWhileGrowing() {
+        final Random random = new Random(1);
+        final Integer[][] dense = new Integer[200][200];
+        final AgentMatrix<Integer> matrix = new AgentMatrix<Integer>();
+
+        for (int size = 1; size <= dense.length; size++) {
+            matrix.ensureSize(size);
+            assertEquals(size, matrix.size());
+
+            for (int i = 0; i < 20; i++) {
+                final int row = random.nextInt(size), col = random.nextInt(size);
+                final Integer value = random.nextInt(4) == 0 ? null : i;
+
+                assertEquals(dense[row][col], matrix.set(row, col, value));
+                dense[row][col] = value;
+            }
+        }
+
+        for (int row = 0; row < dense.length; row++)
+            for (int col = 0; col < dense.length; col++)
+                assertEquals(dense[row][col], matrix.get(row, col));
+    }
+
+    @Test
+    public void neverShrinks() {
+        final AgentMatrix<String> matrix = new AgentMatrix<String>();
+        matrix.ensureSize(5);
+        matrix.set(4, 3, "a");
+        matrix.ensureSize(2);
+
+        assertEquals(5, matrix.size());
+        assertEquals("a", matrix.get(4, 3));
+        assertNull(matrix.get(3, 4));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void outOfBounds() {
+        final AgentMatrix<String> matrix = new AgentMatrix<String>();
+        matrix.ensureSize(3);
+        matrix.get(0, 3);
+    }
+
+    @Test
+    public void growsArraysGeometrically() {
+        final double[] array = AgentArrays.ensureIndex(new double[]{1d}, 1,
+                Double.NaN);
+
+        assertEquals(1d, array[0], 0d);
+        assertEquals(Double.NaN, array[1], 0d);
+        assertEquals(array.length, AgentArrays.capacity(1, 2));
+        assertEquals(151, AgentArrays.capacity(100, 101));
+        assertEquals(500, AgentArrays.capacity(100, 500));
+        assertEquals(100, AgentArrays.capacity(100, 50));
+    }
+}
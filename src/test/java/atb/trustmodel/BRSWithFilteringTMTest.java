@@ -10,14 +10,19 @@
  */
 package atb.trustmodel;
 
+import atb.common.AgentParallel;
 import atb.interfaces.ExampleGenerator;
 import atb.interfaces.Experience;
 import atb.interfaces.Opinion;
 import atb.interfaces.RandomGenerator;
+import org.apache.commons.math3.distribution.BetaDistribution;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.Random;
 
 import static org.junit.Assert.assertEquals;
 
@@ -66,4 +71,128 @@ public class BRSWithFilteringTMTest {
         assertEquals(0.7500000000000000, score.get(2), 0.00001);
         assertEquals(0.5161290322580645, score.get(3), 0.00001);
     }
+
+    @Test
+    public void filteringMatchesIterativeDefinition() {
+        final Random random = new Random(1);
+        final BRSWithFiltering tm = new BRSWithFiltering();
+        tm.setRandomGenerator(new ExampleGenerator(0));
+        tm.initialize(0.9d, 0.5d, 0.05, 10d);
+
+        final ArrayList<Experience> experiences = new ArrayList<Experience>();
+        final ArrayList<Opinion> opinions = new ArrayList<Opinion>();
+        final int n = 15;
+
+        for (int time = 1; time <= 3; time++) {
+            experiences.clear();
+            opinions.clear();
+
+            for (int agent = 0; agent < n; agent++) {
+                if (random.nextBoolean())
+                    experiences.add(new Experience(agent, 0, time, random.nextDouble()));
+
+                for (int rater = 0; rater < n; rater++)
+                    if (random.nextInt(3) == 0)
+                        opinions.add(new Opinion(rater, agent, 0, time,
+                                random.nextInt(2) == 0 ? random.nextDouble() : 0.9, 0.05));
+            }
+
+            tm.setCurrentTime(time);
+            tm.processExperiences(experiences);
+            tm.processOpinions(opinions);
+            tm.calculateTrust();
+
+            final Map<Integer, BRSPair> experienceTrust = tm.computeExperiences();
+
+            for (int agent = 0; agent < n; agent++)
+                assertEquals(filter(tm, agent, experienceTrust, time, 0.5, 0.05, 10),
+                        tm.filterRatings(agent, experienceTrust), 1e-9);
+        }
+    }
+
+    @Test
+    public void testQuantilesStoredBeforeParallelFiltering() {
+        final BRSWithFiltering tm = new BRSWithFiltering();
+        tm.setRandomGenerator(new ExampleGenerator(0));
+        tm.setParallel(new AgentParallel(1, 1d));
+        tm.initialize(1d, 0d, 0.01, 10d);
+
+        final List<Opinion> opinions = new ArrayList<Opinion>();
+
+        for (int agent = 0; agent < 300; agent++)
+            opinions.add(new Opinion((agent + 1) % 300, agent, 0, 1,
+                    (agent % 11) / 10d, 0.05));
+
+        tm.setCurrentTime(1);
+        tm.processExperiences(new ArrayList<Experience>());
+        tm.processOpinions(opinions);
+        tm.calculateTrust();
+
+        assertEquals(0, tm.storedQuantiles());
+        tm.getTrust(0);
+
+        // one pair of quantiles for every distinct rating
+        assertEquals(11, tm.storedQuantiles());
+    }
+
+    /**
+     * Iterative filtering as defined in the paper; removes liars from a list
+     * and recomputes all sums and quantiles in every iteration.
+     */
+    private static double filter(BRSWithFiltering tm, int agent,
+                                 Map<Integer, BRSPair> experienceTrust, int time, double lambdaOp,
+                                 double q, double factor) {
+        final List<Integer> allRaters = new ArrayList<Integer>();
+        double reputation = Double.NEGATIVE_INFINITY;
+
+        for (int i = 0; i < tm.opinions.size(agent); i++)
+            allRaters.add(tm.opinions.getReporters(agent)[i]);
+
+        Collections.sort(allRaters);
+
+        int numRatersPrevious = 0;
+
+        while (numRatersPrevious != allRaters.size()) {
+            numRatersPrevious = allRaters.size();
+            double r = 0, s = 0;
+
+            if (experienceTrust.containsKey(agent)) {
+                r += experienceTrust.get(agent).R;
+                s += experienceTrust.get(agent).S;
+            }
+
+            for (int rater : allRaters) {
+                final int position = tm.opinions.indexOf(rater, agent);
+                final double discount = Math.pow(lambdaOp, time - tm.opinions.getTimes(agent)[position]);
+                final double rater_r = Math.round(factor * tm.opinions.getTrustDegrees(agent)[position]);
+                r += rater_r * discount;
+                s += (factor - rater_r) * discount;
+            }
+
+            reputation = (r + 1) / (r + s + 2);
+            final List<Integer> liars = new ArrayList<Integer>();
+
+            for (int rater : allRaters) {
+                final int position = tm.opinions.indexOf(rater, agent);
+                final double discount = Math.pow(lambdaOp, time - tm.opinions.getTimes(agent)[position]);
+                final double rater_r = Math.round(factor * tm.opinions.getTrustDegrees(agent)[position]) * discount;
+                final double rater_s = (factor - rater_r) * discount;
+                final BetaDistribution beta = new BetaDistribution(1 + rater_r, 1 + rater_s);
+
+                if (beta.inverseCumulativeProbability(q) > reputation
+                        || beta.inverseCumulativeProbability(1 - q) < reputation)
+                    liars.add(rater);
+            }
+
+            for (Integer liar : liars)
+                allRaters.remove(liar);
+        }
+
+        if (Double.isInfinite(reputation) && experienceTrust.containsKey(agent)) {
+            final BRSPair p = experienceTrust.get(agent);
+            reputation = (p.R + 1) / (p.R + p.S + 2);
+        }
+
+        return reputation;
+    }
 }
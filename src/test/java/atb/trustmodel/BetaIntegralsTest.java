@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2013 David Jelenc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     David Jelenc - initial API and implementation
+ */
+package atb.trustmodel;
+
+import cern.jet.random.Beta;
+import cern.jet.random.engine.MersenneTwister;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class BetaIntegralsTest {
+
+    @Test
+    public void matchesBetaDistribution() {
+        final Random random = new Random(1);
+        final BetaIntegrals integrals = new BetaIntegrals(16);
+        final Beta beta = new Beta(1, 1, new MersenneTwister(0));
+
+        for (int i = 0; i < 20000; i++) {
+            // small and large integer counts as well as fractional ones
+            final double m = random.nextInt(4) == 0 ? random.nextDouble() * 30 : random.nextInt(20);
+            final double n = random.nextInt(20);
+            // a few intervals, more than can be stored for a pair of counts
+            final double low = random.nextInt(12) * 0.1 - 0.1;
+            final double high = low + 0.2;
+
+            beta.setState(m + 1, n + 1);
+            final double expected = beta.cdf(Math.min(Math.max(0, high), 1))
+                    - beta.cdf(Math.min(Math.max(0, low), 1));
+
+            assertEquals(expected, integrals.integrate(m, n, low, high), 0);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidLimit() {
+        new BetaIntegrals(0);
+    }
+}
@@ -15,11 +15,48 @@ import atb.interfaces.Opinion;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
 
 public class BetaReputationTMTest {
 
+    @Test
+    public void testPrimitiveTrustReadsSnapshot() {
+        final int[] computations = new int[1];
+        final BetaReputation tm = new BetaReputation() {
+            @Override
+            protected Map<Integer, Double> computeTrust(int service) {
+                computations[0] += 1;
+                return super.computeTrust(service);
+            }
+        };
+        tm.initialize(1d, 1d);
+
+        final ArrayList<Experience> experiences = new ArrayList<Experience>();
+        final ArrayList<Opinion> opinions = new ArrayList<Opinion>();
+        experiences.add(new Experience(0, 0, 1, 0.7));
+        opinions.add(new Opinion(0, 1, 0, 1, 0.4, 0.05));
+
+        tm.setCurrentTime(1);
+        tm.processExperiences(experiences);
+        tm.processOpinions(opinions);
+        tm.calculateTrust();
+
+        final double[] trust = new double[2];
+        final BitSet known = new BitSet();
+        tm.getTrust(0, trust, known);
+        tm.getTrust(0, trust, known);
+        final Map<Integer, Double> snapshot = tm.getTrust(0);
+
+        assertEquals(1, computations[0]);
+        assertEquals(snapshot.size(), known.cardinality());
+
+        for (Map.Entry<Integer, Double> entry : snapshot.entrySet())
+            assertEquals(entry.getValue(), trust[entry.getKey()], 0);
+    }
+
     @Test
     public void testCompute() {
         ArrayList<Experience> experiences = new ArrayList<Experience>();
@@ -109,9 +146,9 @@ public class BetaReputationTMTest {
         tm.processOpinions(opinions);
         tm.calculateTrust();
 
-        assertEquals(0.50, tm.opinions[0][1].internalTrustDegree, 0.001);
-        assertEquals(0.75, tm.opinions[1][1].internalTrustDegree, 0.001);
-        assertEquals(1.00, tm.opinions[2][1].internalTrustDegree, 0.001);
+        assertEquals(0.50, tm.opinions.getTrustDegree(0, 1), 0.001);
+        assertEquals(0.75, tm.opinions.getTrustDegree(1, 1), 0.001);
+        assertEquals(1.00, tm.opinions.getTrustDegree(2, 1), 0.001);
 
         opinions.clear();
         opinions.add(new Opinion(2, 0, 0, 0, 0.50, 0.05));
@@ -122,9 +159,9 @@ public class BetaReputationTMTest {
         tm.processOpinions(opinions);
         tm.calculateTrust();
 
-        assertEquals(0.50, tm.opinions[2][0].internalTrustDegree, 0.001);
-        assertEquals(0.50, tm.opinions[2][1].internalTrustDegree, 0.001);
-        assertEquals(0.50, tm.opinions[5][4].internalTrustDegree, 0.001);
+        assertEquals(0.50, tm.opinions.getTrustDegree(2, 0), 0.001);
+        assertEquals(0.50, tm.opinions.getTrustDegree(2, 1), 0.001);
+        assertEquals(0.50, tm.opinions.getTrustDegree(5, 4), 0.001);
     }
 
     @Test
@@ -132,6 +169,7 @@ public class BetaReputationTMTest {
         ArrayList<Experience> experiences = new ArrayList<Experience>();
         ArrayList<Opinion> opinions = new ArrayList<Opinion>();
         BetaReputation tm = new BetaReputation();
+        tm.setKeepHistory(true);
         tm.initialize(1d, 1d);
 
         experiences.add(new Experience(0, 0, 0, 1.0));
@@ -153,4 +191,31 @@ public class BetaReputationTMTest {
         assertEquals(tm.experiences.get(0).get(1).outcome, 0.5, 0.001);
         assertEquals(tm.experiences.get(1).get(0).outcome, 0.3, 0.001);
     }
+
+    @Test
+    public void testDecayedExperiences() {
+        final ArrayList<Experience> experiences = new ArrayList<Experience>();
+        final BetaReputation tm = new BetaReputation();
+        final double[] outcomes = {0.2, 1.0, 0.7, 0.4, 0.9};
+        tm.initialize(0.8d, 1d);
+
+        for (int time = 0; time < outcomes.length; time++) {
+            experiences.clear();
+            experiences.add(new Experience(0, 0, time, outcomes[time]));
+            tm.setCurrentTime(time);
+            tm.processExperiences(experiences);
+        }
+
+        double r = 0, s = 0;
+
+        for (int i = 0; i < outcomes.length; i++) {
+            final double discount = Math.pow(0.8, outcomes.length - 1 - i);
+            r += outcomes[i] * discount;
+            s += (1 - outcomes[i]) * discount;
+        }
+
+        assertEquals(r, tm.computeExperiences().get(0).R, 1e-12);
+        assertEquals(s, tm.computeExperiences().get(0).S, 1e-12);
+        assertEquals(true, tm.experiences.isEmpty());
+    }
 }
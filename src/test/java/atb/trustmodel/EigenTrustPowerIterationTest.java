@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2013 David Jelenc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     David Jelenc - initial API and implementation
+ */
+package atb.trustmodel;
+
+import atb.common.DefaultRandomGenerator;
+import atb.interfaces.Experience;
+import atb.interfaces.Opinion;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class EigenTrustPowerIterationTest {
+
+    @Test
+    public void eigenTrustMatchesDenseIteration() {
+        final Random random = new Random(2);
+        final int n = 25;
+        final EigenTrust tm = new EigenTrust();
+        tm.initialize(0.5, 0.5, 10, 0.1);
+        tm.setTolerance(1e-12);
+        tm.cntExp = new int[n];
+
+        final int[][] dense = new int[n][n];
+
+        for (int i = 0; i < n; i++) {
+            tm.cntExp[i] = random.nextInt(5) - 1;
+
+            // agents 0 and 1 have no opinions
+            for (int j = 2; j < n; j++) {
+                if (random.nextInt(5) == 0) {
+                    dense[i][j] = random.nextInt(10);
+                    tm.cntOp.set(i, j, dense[i][j]);
+                }
+            }
+        }
+
+        final double[] p = tm.computePretrustVector(tm.cntExp);
+        final double[][] C = tm.computeMatrix(dense, p);
+        double[] t = p.clone();
+
+        for (int iteration = 0; iteration < 200; iteration++) {
+            final double[] next = new double[n];
+
+            for (int row = 0; row < n; row++) {
+                for (int col = 0; col < n; col++)
+                    next[row] += C[row][col] * t[col];
+
+                next[row] = 0.5 * next[row] + 0.5 * p[row];
+            }
+
+            t = next;
+        }
+
+        final double[] sparse = tm.computeTrust();
+
+        for (int i = 0; i < n; i++)
+            assertEquals(t[i], sparse[i], 1e-9);
+
+        // warm start converges to the same vector
+        final double[] warm = tm.computeTrust();
+
+        for (int i = 0; i < n; i++)
+            assertEquals(t[i], warm[i], 1e-9);
+    }
+
+    @Test
+    public void parallelMultiplicationMatchesSequential() {
+        final Random random = new Random(3);
+        final int n = 2000;
+        final EigenTrust sequential = new EigenTrust();
+        final EigenTrust parallel = new EigenTrust();
+        sequential.initialize(0.5, 0.5, 10, 0.1);
+        parallel.initialize(0.5, 0.5, 10, 0.1);
+        parallel.setParallelThreshold(1);
+        sequential.cntExp = new int[n];
+        parallel.cntExp = new int[n];
+
+        for (int i = 0; i < 20 * n; i++) {
+            final int row = random.nextInt(n), col = random.nextInt(n);
+            final int value = random.nextInt(10);
+            sequential.cntOp.set(row, col, value);
+            parallel.cntOp.set(row, col, value);
+        }
+
+        final double[] expected = sequential.computeTrust();
+        final double[] actual = parallel.computeTrust();
+
+        for (int i = 0; i < n; i++)
+            assertEquals(expected[i], actual[i], 0);
+    }
+
+    @Test
+    public void recomputesOnlyAfterChanges() {
+        final Random random = new Random(4);
+        final int n = 20;
+        final EigenTrust tm = new EigenTrust();
+        tm.initialize(0.5, 0.5, 10, 0.1);
+        tm.setTolerance(1e-12);
+        tm.setRandomGenerator(new DefaultRandomGenerator(0));
+
+        final List<Opinion> opinions = new ArrayList<Opinion>();
+        final List<Experience> experiences = new ArrayList<Experience>();
+
+        for (int i = 0; i < n; i++) {
+            experiences.add(new Experience(i, 0, 1, random.nextDouble()));
+
+            for (int j = 0; j < n; j++)
+                if (i != j && random.nextInt(3) == 0)
+                    opinions.add(new Opinion(i, j, 0, 1, random.nextDouble(), 0.1));
+        }
+
+        tm.processExperiences(experiences);
+        tm.processOpinions(opinions);
+        final double[] first = tm.computeTrust();
+
+        // no changes -- the same vector
+        tm.processExperiences(new ArrayList<Experience>());
+        assertArrayEquals(first, tm.computeTrust(), 0);
+
+        // a change converges to the same vector as a fresh computation
+        final List<Experience> more = new ArrayList<Experience>();
+        more.add(new Experience(3, 0, 2, 1));
+        more.add(new Experience(7, 0, 2, 1));
+        tm.processExperiences(more);
+        final double[] updated = tm.computeTrust();
+
+        final EigenTrust fresh = new EigenTrust();
+        fresh.initialize(0.5, 0.5, 10, 0.1);
+        fresh.setTolerance(1e-12);
+        fresh.cntExp = tm.cntExp.clone();
+        fresh.cntOp = tm.cntOp;
+
+        assertArrayEquals(fresh.computeTrust(), updated, 1e-9);
+    }
+}
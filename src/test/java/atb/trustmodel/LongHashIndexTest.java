@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2013 David Jelenc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     David Jelenc - initial API and implementation
+ */
+package atb.trustmodel;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LongHashIndexTest {
+
+    @Test
+    public void matchesHashMap() {
+        final Random random = new Random(1);
+        final Map<Long, Integer> expected = new HashMap<Long, Integer>();
+        final LongHashIndex index = new LongHashIndex();
+
+        for (int i = 0; i < 20000; i++) {
+            final long key = ((long) random.nextInt(40) << 32) | random.nextInt(40);
+            final int slot = index.find(key);
+
+            if (random.nextInt(3) == 0) {
+                if (slot >= 0)
+                    index.remove(slot);
+
+                expected.remove(key);
+            } else if (slot >= 0) {
+                index.setValueAt(slot, i);
+                expected.put(key, i);
+            } else {
+                index.add(key, i);
+                expected.put(key, i);
+            }
+        }
+
+        assertEquals(expected.size(), index.size());
+
+        for (Map.Entry<Long, Integer> e : expected.entrySet()) {
+            final int slot = index.find(e.getKey());
+            assertTrue(slot >= 0);
+            assertEquals(e.getKey().longValue(), index.keyAt(slot));
+            assertEquals(e.getValue().intValue(), index.valueAt(slot));
+        }
+
+        int entries = 0;
+
+        for (int slot = 0; slot < index.capacity(); slot++)
+            if (index.keyAt(slot) != LongHashIndex.EMPTY)
+                entries++;
+
+        assertEquals(expected.size(), entries);
+        assertEquals(-1, index.find(Long.MAX_VALUE));
+    }
+}
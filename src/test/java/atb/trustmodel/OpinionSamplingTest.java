@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2013 David Jelenc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     David Jelenc - initial API and implementation
+ */
+package atb.trustmodel;
+
+import atb.common.DefaultRandomGenerator;
+import atb.interfaces.RandomGenerator;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class OpinionSamplingTest {
+
+    @Test
+    public void exceedanceMatchesRejectionSampling() {
+        final RandomGenerator generator = new DefaultRandomGenerator(1);
+        final double[][] cases = {{0.5, 0.1, 0.5}, {0.9, 0.1, 0.5},
+                {0.1, 0.2, 0.5}, {0.6, 0.3, 0.8}, {0d, 0.1, 0.05}};
+        final int samples = 100000;
+
+        for (double[] c : cases) {
+            final int positive = OpinionSampling.sample(generator, c[0], c[1],
+                    c[2], samples);
+
+            assertEquals((double) positive / samples,
+                    OpinionSampling.exceedance(c[0], c[1], c[2]), 0.005);
+        }
+
+        assertEquals(0.5, OpinionSampling.exceedance(0.5, 0.1, 0.5), 1e-12);
+        assertEquals(1d, OpinionSampling.exceedance(0.7, 0d, 0.5), 0d);
+        assertEquals(0d, OpinionSampling.exceedance(0.3, 0d, 0.5), 0d);
+    }
+
+    @Test
+    public void binomialMatchesExpectedCount() {
+        final RandomGenerator generator = new DefaultRandomGenerator(1);
+        final int runs = 20000, samples = 10;
+        final double p = OpinionSampling.exceedance(0.6, 0.1, 0.5);
+        long total = 0;
+
+        for (int i = 0; i < runs; i++) {
+            final int positive = OpinionSampling.sampleBinomial(generator, 0.6,
+                    0.1, 0.5, samples);
+            assertTrue(positive >= 0 && positive <= samples);
+            total += positive;
+        }
+
+        assertEquals(samples * p, (double) total / runs, 0.05);
+    }
+
+    @Test
+    public void binomialHandlesLargeSampleCounts() {
+        final RandomGenerator generator = new DefaultRandomGenerator(1);
+        final int runs = 5000;
+        final double[][] cases = {{0.99, 200}, {0.6, 1000}, {0.01, 5000},
+                {0.5, 100000}};
+
+        for (double[] c : cases) {
+            final int samples = (int) c[1];
+            final double threshold = threshold(c[0]);
+            long total = 0;
+
+            for (int i = 0; i < runs; i++) {
+                final int positive = OpinionSampling.sampleBinomial(generator,
+                        0.5, 0.3, threshold, samples);
+                assertTrue(positive >= 0 && positive <= samples);
+                total += positive;
+            }
+
+            // within five standard errors of the mean
+            final double sd = Math.sqrt(samples * c[0] * (1 - c[0]) / runs);
+            assertEquals(samples * c[0], (double) total / runs, 5 * sd);
+        }
+    }
+
+    /**
+     * Returns the threshold that the truncated normal distribution with mean
+     * 0.5 and standard deviation 0.3 exceeds with the given probability.
+     */
+    private static double threshold(double p) {
+        double low = 0d, high = 1d;
+
+        for (int i = 0; i < 60; i++) {
+            final double threshold = (low + high) / 2;
+
+            if (OpinionSampling.exceedance(0.5, 0.3, threshold) > p)
+                low = threshold;
+            else
+                high = threshold;
+        }
+
+        return (low + high) / 2;
+    }
+
+    @Test
+    public void binomialIsReproducible() {
+        final RandomGenerator first = new DefaultRandomGenerator(7);
+        final RandomGenerator second = new DefaultRandomGenerator(7);
+
+        for (int i = 0; i < 100; i++) {
+            final double mean = (i % 11) / 10d;
+            assertEquals(
+                    OpinionSampling.sampleBinomial(first, mean, 0.1, 0.5, 10),
+                    OpinionSampling.sampleBinomial(second, mean, 0.1, 0.5, 10));
+        }
+    }
+}
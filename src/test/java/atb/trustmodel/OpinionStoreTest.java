@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2013 David Jelenc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     David Jelenc - initial API and implementation
+ */
+package atb.trustmodel;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class OpinionStoreTest {
+
+    @Test
+    public void matchesDenseMatrix() {
+        final Random random = new Random(1);
+        final int n = 40;
+        final double[][] itd = new double[n][n];
+        final int[][] time = new int[n][n];
+        final OpinionStore store = new OpinionStore();
+        int opinions = 0;
+
+        for (int i = 0; i < 2000; i++) {
+            final int reporter = random.nextInt(n), target = random.nextInt(n);
+            final boolean first = 0 == time[reporter][target];
+
+            itd[reporter][target] = random.nextDouble();
+            time[reporter][target] = i + 1;
+            opinions += first ? 1 : 0;
+
+            assertEquals(first, store.put(reporter, target,
+                    itd[reporter][target], i + 1));
+        }
+
+        assertEquals(opinions, store.size());
+
+        // by targets
+        int byTargets = 0;
+
+        for (int target = 0; target < store.targetLimit(); target++) {
+            final int[] reporters = store.getReporters(target);
+
+            for (int i = 0; i < store.size(target); i++) {
+                final int reporter = reporters[i];
+                assertEquals(itd[reporter][target],
+                        store.getTrustDegrees(target)[i], 0d);
+                assertEquals(time[reporter][target], store.getTimes(target)[i]);
+                assertEquals(i, store.indexOf(reporter, target));
+            }
+
+            byTargets += store.size(target);
+        }
+
+        assertEquals(opinions, byTargets);
+
+        // by reporters
+        for (int reporter = 0; reporter < n; reporter++) {
+            int count = 0;
+
+            for (int target = 0; target < n; target++) {
+                if (0 == time[reporter][target]) {
+                    assertEquals(-1, store.indexOf(reporter, target));
+                    assertTrue(Double.isNaN(store.getTrustDegree(reporter, target)));
+                } else {
+                    assertEquals(itd[reporter][target],
+                            store.getTrustDegree(reporter, target), 0d);
+                    count++;
+                }
+            }
+
+            assertEquals(count, store.sizeByReporter(reporter));
+
+            for (int i = 0; i < store.sizeByReporter(reporter); i++)
+                assertFalse(0 == time[reporter][store.getTargets(reporter)[i]]);
+        }
+    }
+
+    @Test
+    public void unknownAgents() {
+        final OpinionStore store = new OpinionStore();
+        store.put(2, 1000, 0.5, 1);
+
+        assertEquals(1001, store.targetLimit());
+        assertEquals(0, store.size(5000));
+        assertEquals(0, store.getReporters(5000).length);
+        assertEquals(0, store.sizeByReporter(5000));
+        assertEquals(1, store.sizeByReporter(2));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeAgent() {
+        new OpinionStore().put(-1, 0, 0.5, 0);
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2013 David Jelenc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     David Jelenc - initial API and implementation
+ */
+package atb.trustmodel;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class ReverseOpinionIndexTest {
+
+    @Test
+    public void storesReportersByTargets() {
+        final ReverseOpinionIndex index = new ReverseOpinionIndex();
+
+        for (int reporter = 0; reporter < 10; reporter++)
+            index.add(3, reporter);
+
+        index.add(20, 7);
+
+        assertEquals(10, index.size(3));
+        assertEquals(1, index.size(20));
+        assertEquals(0, index.size(5));
+        assertEquals(0, index.size(100));
+        assertEquals(0, index.getReporters(100).length);
+        assertEquals(7, index.getReporters(20)[0]);
+
+        for (int i = 0; i < index.size(3); i++)
+            assertEquals(i, index.getReporters(3)[i]);
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2013 David Jelenc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     David Jelenc - initial API and implementation
+ */
+package atb.trustmodel;
+
+import atb.interfaces.Experience;
+import atb.interfaces.Opinion;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class SimpleTMTest {
+
+    @Test
+    public void testReplacedOpinions() {
+        Simple tm = new Simple();
+        tm.initialize();
+        tm.setAgents(Arrays.asList(0, 1, 2, 3));
+
+        ArrayList<Opinion> opinions = new ArrayList<Opinion>();
+        ArrayList<Experience> experiences = new ArrayList<Experience>();
+
+        opinions.add(new Opinion(1, 0, 0, 0, 0.2, 0.05));
+        opinions.add(new Opinion(2, 0, 0, 0, 0.4, 0.05));
+        opinions.add(new Opinion(3, 1, 0, 0, 0.9, 0.05));
+        tm.processExperiences(experiences);
+        tm.processOpinions(opinions);
+        tm.calculateTrust();
+
+        Map<Integer, Double> trust = tm.getTrust(0);
+        assertEquals(0.3, trust.get(0), 0.001);
+        assertEquals(0.9, trust.get(1), 0.001);
+        assertFalse(trust.containsKey(2));
+
+        // a reporter updates its opinion and a new reporter appears
+        opinions.clear();
+        opinions.add(new Opinion(1, 0, 0, 0, 0.8, 0.05));
+        opinions.add(new Opinion(3, 0, 0, 0, 0.6, 0.05));
+        experiences.add(new Experience(1, 0, 0, 0.3));
+        tm.processExperiences(experiences);
+        tm.processOpinions(opinions);
+        tm.calculateTrust();
+
+        trust = tm.getTrust(0);
+        assertEquals(0.6, trust.get(0), 0.001);
+        assertEquals(0.3 / 3 + 0.9 * 2 / 3, trust.get(1), 0.001);
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2013 David Jelenc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     David Jelenc - initial API and implementation
+ */
+package atb.trustmodel;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class SparseCountMatrixTest {
+
+    @Test
+    public void matchesDenseMatrix() {
+        final Random random = new Random(1);
+        final int n = 30;
+        final int[][] dense = new int[n][n];
+        final SparseCountMatrix sparse = new SparseCountMatrix();
+
+        for (int i = 0; i < 5000; i++) {
+            final int row = random.nextInt(n), col = random.nextInt(n);
+            final int value = random.nextInt(3) == 0 ? 0 : random.nextInt(10);
+
+            dense[row][col] = value;
+            sparse.set(row, col, value);
+        }
+
+        int nonZeros = 0;
+
+        for (int col = 0; col < n; col++) {
+            int sum = 0;
+
+            for (int row = 0; row < n; row++) {
+                assertEquals(dense[row][col], sparse.get(row, col));
+                sum += dense[row][col];
+                nonZeros += dense[row][col] > 0 ? 1 : 0;
+            }
+
+            assertEquals(sum, sparse.getColumnSum(col));
+        }
+
+        assertEquals(nonZeros, sparse.getNonZeros());
+
+        final int[] rowPointers = new int[n + 1];
+        final int[] columns = new int[nonZeros], counts = new int[nonZeros];
+        sparse.toCompressedRows(n, rowPointers, columns, counts);
+
+        assertEquals(nonZeros, rowPointers[n]);
+
+        for (int row = 0; row < n; row++) {
+            int rowSum = 0, expected = 0;
+
+            for (int k = rowPointers[row]; k < rowPointers[row + 1]; k++) {
+                assertEquals(dense[row][columns[k]], counts[k]);
+                rowSum += counts[k];
+            }
+
+            for (int col = 0; col < n; col++)
+                expected += dense[row][col];
+
+            assertEquals(expected, rowSum);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeCount() {
+        new SparseCountMatrix().set(0, 0, -1);
+    }
+}
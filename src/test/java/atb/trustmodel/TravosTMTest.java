@@ -106,10 +106,11 @@ public class TravosTMTest {
         opinions.add(new Opinion(11, 11, 0, 0, 0.5, 0.05));
 
         // manually set opinions
-        tm.opinions = new BRSPair[11][11];
-        tm.opinions[8][6] = new BRSPair(15, 46);
-        tm.opinions[9][6] = new BRSPair(4, 1);
-        tm.opinions[10][6] = new BRSPair(3, 0);
+        tm.opinions = new AgentMatrix<BRSPair>();
+        tm.opinions.ensureSize(11);
+        tm.opinions.set(8, 6, new BRSPair(15, 46));
+        tm.opinions.set(9, 6, new BRSPair(4, 1));
+        tm.opinions.set(10, 6, new BRSPair(3, 0));
 
         // delete experience with agent 6
         tm.experiences.remove(6);
@@ -17,6 +17,8 @@ import atb.interfaces.Experience;
 import atb.interfaces.Opinion;
 
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Map;
 
 public class YuSinghSycaraTMTest {
 
@@ -28,6 +30,41 @@ public class YuSinghSycaraTMTest {
         tm.initialize();
     }
 
+    @Test
+    public void testPrimitiveTrustReadsSnapshot() {
+        final int[] computations = new int[1];
+        final YuSinghSycara counting = new YuSinghSycara() {
+            @Override
+            protected Map<Integer, Double> computeTrust(int service) {
+                computations[0] += 1;
+                return super.computeTrust(service);
+            }
+        };
+        counting.initialize();
+
+        final ArrayList<Opinion> opinions = new ArrayList<Opinion>();
+        final ArrayList<Experience> experiences = new ArrayList<Experience>();
+        experiences.add(new Experience(1, 0, 0, 0.5));
+        opinions.add(new Opinion(0, 1, 0, 0, 0.7, 0.05));
+        opinions.add(new Opinion(2, 1, 0, 0, 0.3, 0.05));
+
+        counting.processExperiences(experiences);
+        counting.processOpinions(opinions);
+        counting.calculateTrust();
+
+        final double[] trust = new double[3];
+        final BitSet known = new BitSet();
+        counting.getTrust(0, trust, known);
+        counting.getTrust(0, trust, known);
+        final Map<Integer, Double> snapshot = counting.getTrust(0);
+
+        Assert.assertEquals(1, computations[0]);
+        Assert.assertEquals(3, known.cardinality());
+
+        for (int agent = 0; agent < trust.length; agent++)
+            Assert.assertEquals(snapshot.get(agent), trust[agent], 0);
+    }
+
     @Test
     public void testExpandArray() {
         ArrayList<Opinion> opinions = new ArrayList<Opinion>();
@@ -10,13 +10,17 @@
  */
 package atb.trustmodel.qad;
 
+import atb.common.AgentParallel;
 import org.junit.Assert;
 import org.junit.Test;
 import atb.interfaces.Experience;
 import atb.interfaces.Opinion;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.Random;
 
 import static org.junit.Assert.*;
 import static atb.trustmodel.qad.Omega.*;
@@ -87,6 +91,86 @@ public class QADTMTest {
         assertNull(trust.get(2));
     }
 
+    @Test
+    public void testParallelOperators() {
+        final Random random = new Random(1);
+        final int n = 300;
+        final byte[] exp = new byte[n];
+        final byte[][] op = new byte[n][n];
+
+        for (int agent2 = 0; agent2 < n; agent2++) {
+            exp[agent2] = (byte) (random.nextInt(6) - 1);
+
+            for (int agent1 = 0; agent1 < n; agent1++)
+                op[agent2][agent1] = (byte) (random.nextInt(6) - 1);
+        }
+
+        Arrays.fill(op[0], NONE);
+        exp[0] = NONE;
+
+        for (Operator o : Operator.values()) {
+            final byte[] sequential = o.compute(exp, op, null);
+            final byte[] parallel = o.compute(exp, op,
+                    new AgentParallel(1, 1d));
+
+            assertArrayEquals(o.toString(), sequential, parallel);
+            assertEquals(o.toString(), NONE, sequential[0]);
+        }
+    }
+
+    @Test
+    public void testOpinionColumns() {
+        QAD tm = new QAD();
+        tm.initialize(Operator.EXTREME_PESSIMIST);
+
+        ArrayList<Experience> exps = new ArrayList<Experience>();
+        ArrayList<Opinion> opinions = new ArrayList<Opinion>();
+
+        exps.add(new Experience(1, 0, 0, 0.7));
+        opinions.add(new Opinion(2, 1, 0, 0, 0.1, 0.05));
+        opinions.add(new Opinion(1, 2, 0, 0, 0.9, 0.05));
+        tm.processExperiences(exps);
+        tm.processOpinions(opinions);
+        tm.calculateTrust();
+
+        assertEquals(D.ordinal(), tm.op[1][2]);
+        assertEquals(T.ordinal(), tm.op[2][1]);
+        assertEquals(NONE, tm.op[1][1]);
+        assertEquals(T.ordinal(), tm.row[2]);
+
+        Map<Integer, Omega> trust = tm.getTrust(0);
+        assertEquals(2, trust.size());
+        assertEquals(D, trust.get(1));
+        assertEquals(T, trust.get(2));
+        assertEquals(D.ordinal(), tm.row[1]);
+    }
+
+    @Test
+    public void testRepeatedGetTrust() {
+        QAD tm = new QAD();
+        tm.initialize(Operator.CENTRALIST);
+
+        ArrayList<Experience> exps = new ArrayList<Experience>();
+        ArrayList<Opinion> opinions = new ArrayList<Opinion>();
+
+        exps.add(new Experience(1, 0, 0, 0.1));
+        opinions.add(new Opinion(2, 1, 0, 0, 0.9, 0.05));
+        opinions.add(new Opinion(1, 2, 0, 0, 0.5, 0.05));
+        opinions.add(new Opinion(0, 2, 0, 0, 0.1, 0.05));
+        tm.processExperiences(exps);
+        tm.processOpinions(opinions);
+        tm.calculateTrust();
+
+        final byte[] row = tm.row.clone();
+        final Map<Integer, Omega> trust = new HashMap<Integer, Omega>(tm.getTrust(0));
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(trust, tm.getTrust(0));
+            assertEquals(trust, tm.getTrust(1));
+            assertArrayEquals(row, tm.row);
+        }
+    }
+
     @Test
     public void testOmegaFromNormalizedNumeric() {
         assertEquals(D, normalizedNumeric(0));
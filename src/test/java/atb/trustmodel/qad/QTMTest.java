@@ -17,6 +17,7 @@ import atb.interfaces.Experience;
 import atb.interfaces.Opinion;
 
 import java.util.ArrayList;
+import java.util.Random;
 
 import static atb.trustmodel.qad.Omega.*;
 
@@ -86,4 +87,65 @@ public class QTMTest {
         for (int j = 0; j < expected.length; j++)
             Assert.assertEquals(expected[j], tm.credibility[j], 0.001);
     }
+
+    @Test
+    public void testConnectedness() {
+        final Random random = new Random(1);
+        final ArrayList<Opinion> opinions = new ArrayList<Opinion>();
+        final int n = 70;
+
+        for (int i = 0; i < n; i++)
+            for (int j = 0; j < n; j++)
+                if (random.nextInt(3) == 0)
+                    opinions.add(new Opinion(i, j, 0, 0, random.nextDouble(), 0.05));
+
+        tm.processOpinions(opinions);
+
+        for (int witness = 0; witness < n; witness++) {
+            for (int agent = 0; agent < n; agent++) {
+                int mutual = 0, combined = 0;
+
+                for (int i = 0; i < n; i++) {
+                    if (i == agent || i == witness)
+                        continue;
+
+                    final boolean o1 = null != tm.opinions[witness][i];
+                    final boolean o2 = null != tm.opinions[agent][i];
+
+                    mutual += (o1 && o2) ? 1 : 0;
+                    combined += (o1 || o2) ? 1 : 0;
+                }
+
+                Assert.assertEquals((mutual + 0d) / combined,
+                        tm.connectedness(witness, agent), 0);
+            }
+        }
+    }
+
+    @Test
+    public void testLazyDecay() {
+        final ArrayList<Opinion> opinions = new ArrayList<Opinion>();
+        final ArrayList<Experience> experiences = new ArrayList<Experience>();
+        double expected = 0;
+
+        opinions.add(new Opinion(0, 1, 0, 0, 1d, 0.05));
+        tm.processOpinions(opinions);
+
+        for (int time = 1; time <= 20; time++) {
+            // eager decay, as if applied in every tick
+            expected *= Math.exp(-QTM.TF);
+            tm.setCurrentTime(time);
+
+            if (time % 3 == 0) {
+                experiences.clear();
+                experiences.add(new Experience(1, 0, time, 1d));
+                tm.processExperiences(experiences);
+                expected += 1;
+            }
+        }
+
+        final double decayed = tm.cntCorrect[0] * tm.decay(20 - tm.cntTime[0]);
+        Assert.assertEquals(expected, decayed, 1e-12);
+        Assert.assertEquals(Math.exp(-QTM.TF * 7), tm.decay(7), 0);
+    }
 }